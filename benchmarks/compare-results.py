@@ -0,0 +1,147 @@
+#!/usr/bin/env python3
+"""Сравнивает два JSON-отчёта JMH и отмечает регрессии скорости и выделения памяти.
+
+Отчёты получаются так:
+
+    java -jar benchmarks/target/benchmarks.jar -prof gc -rf json -rff current.json
+
+Бенчмарки сопоставляются по имени, режиму, числу потоков и параметрам. Скорость считается
+ухудшившейся, если результат стал хуже больше чем на --threshold процентов и разница больше
+суммы погрешностей обоих прогонов (если JMH их посчитал). Для режима thrpt хуже — меньше,
+для остальных режимов (avgt, sample, ss) — больше. Выделение памяти сравнивается по
+gc.alloc.rate.norm (байт на операцию, нужен -prof gc): регрессия — рост больше чем на
+--alloc-threshold процентов и больше чем на --alloc-min-bytes байт.
+
+Код выхода: 0 — регрессий нет, 1 — есть регрессии, 2 — ошибка в аргументах или файлах.
+"""
+
+import argparse
+import json
+import math
+import sys
+
+ALLOC_METRICS = ("gc.alloc.rate.norm", "·gc.alloc.rate.norm")
+
+
+def load(path):
+    try:
+        with open(path, encoding="utf-8") as file:
+            results = json.load(file)
+    except (OSError, ValueError) as error:
+        print(f"Cannot read {path}: {error}", file=sys.stderr)
+        sys.exit(2)
+    return {key_of(result): result for result in results}
+
+
+def key_of(result):
+    params = tuple(sorted((result.get("params") or {}).items()))
+    return result["benchmark"], result["mode"], result["threads"], params
+
+
+def describe(key):
+    benchmark, mode, threads, params = key
+    parts = benchmark.rsplit(".", 2)
+    name = ".".join(parts[-2:])
+    details = [mode, f"t={threads}"] + [f"{param}={value}" for param, value in params]
+    return f"{name} [{', '.join(details)}]"
+
+
+def number(value):
+    try:
+        value = float(value)
+    except (TypeError, ValueError):
+        return None
+    return None if math.isnan(value) else value
+
+
+def allocation(result):
+    metrics = result.get("secondaryMetrics") or {}
+    for name in ALLOC_METRICS:
+        if name in metrics:
+            return number(metrics[name].get("score"))
+    return None
+
+
+def compare_score(base, current, threshold):
+    """Возвращает (на сколько процентов результат хуже базового, регрессия ли это)."""
+    base_metric = base["primaryMetric"]
+    current_metric = current["primaryMetric"]
+    base_score = number(base_metric["score"])
+    current_score = number(current_metric["score"])
+    if not base_score or current_score is None:
+        return None, False
+    higher_is_better = base["mode"] == "thrpt"
+    worse = (base_score - current_score) if higher_is_better else (current_score - base_score)
+    worse_percent = worse / base_score * 100
+    error = (number(base_metric.get("scoreError")) or 0) + (number(current_metric.get("scoreError")) or 0)
+    return worse_percent, worse_percent > threshold and worse > error
+
+
+def compare_allocation(base, current, threshold, min_bytes):
+    base_bytes = allocation(base)
+    current_bytes = allocation(current)
+    if base_bytes is None or current_bytes is None:
+        return base_bytes, current_bytes, False
+    growth = current_bytes - base_bytes
+    regressed = growth > min_bytes and growth > base_bytes * threshold / 100
+    return base_bytes, current_bytes, regressed
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Compare two JMH JSON reports.")
+    parser.add_argument("baseline", help="JSON report of the reference run")
+    parser.add_argument("current", help="JSON report of the run to check")
+    parser.add_argument("--threshold", type=float, default=5.0,
+                        help="allowed slowdown, percent (default: 5)")
+    parser.add_argument("--alloc-threshold", type=float, default=10.0,
+                        help="allowed growth of bytes per operation, percent (default: 10)")
+    parser.add_argument("--alloc-min-bytes", type=float, default=16.0,
+                        help="ignore allocation growth below this many bytes per operation "
+                             "(default: 16)")
+    args = parser.parse_args()
+
+    baseline = load(args.baseline)
+    current = load(args.current)
+
+    regressions = 0
+    rows = []
+    for key in sorted(baseline.keys() & current.keys()):
+        base, cur = baseline[key], current[key]
+        worse_percent, slower = compare_score(base, cur, args.threshold)
+        base_bytes, current_bytes, heavier = compare_allocation(
+            base, cur, args.alloc_threshold, args.alloc_min_bytes)
+        flags = []
+        if slower:
+            flags.append("SLOWER")
+        if heavier:
+            flags.append("MORE ALLOCATION")
+        regressions += bool(flags)
+        unit = base["primaryMetric"]["scoreUnit"]
+        base_score = number(base["primaryMetric"]["score"])
+        current_score = number(cur["primaryMetric"]["score"])
+        change = "n/a"
+        if base_score and current_score is not None:
+            change = f"{(current_score - base_score) / base_score * 100:+.1f}%"
+        alloc = ""
+        if base_bytes is not None and current_bytes is not None:
+            alloc = f"{base_bytes:.0f} -> {current_bytes:.0f} B/op"
+        rows.append((describe(key),
+                     f"{base['primaryMetric']['score']:.3f} -> {cur['primaryMetric']['score']:.3f} {unit}",
+                     change, alloc, " ".join(flags) or "ok"))
+
+    if rows:
+        widths = [max(len(row[i]) for row in rows) for i in range(len(rows[0]))]
+        for row in rows:
+            print("  ".join(cell.ljust(width) for cell, width in zip(row, widths)).rstrip())
+    for key in sorted(baseline.keys() - current.keys()):
+        print(f"missing in current: {describe(key)}")
+    for key in sorted(current.keys() - baseline.keys()):
+        print(f"new in current: {describe(key)}")
+
+    print(f"\n{len(rows)} compared, {regressions} regressed "
+          f"(threshold {args.threshold}%, allocation {args.alloc_threshold}%)")
+    return 1 if regressions else 0
+
+
+if __name__ == "__main__":
+    sys.exit(main())
@@ -0,0 +1,109 @@
+package com.afavlad.homeworkpractice.concurrency;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Сравнение способов выполнить большую серию вычислительных задач.
+ * <ul>
+ *     <li>{@code perTask} — отдельный {@link CompletableFuture#supplyAsync} на каждую задачу
+ *         в {@link ForkJoinPool} того же размера,</li>
+ *     <li>{@code lanes} — {@link ComplexTaskExecutor#submitBatch}, poolSize потоков забирают
+ *         задачи по одной из общего счётчика,</li>
+ *     <li>{@code chunked} — {@link ComplexTaskExecutor#submitChunked}, адаптивные куски
+ *         с кражей работы.</li>
+ * </ul>
+ * Сценарий {@code tiny} — 10^6 крошечных задач, {@code skewed} — 2000 задач по 5 мкс, из
+ * которых каждая сотая в 1000 раз медленнее остальных.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChunkedBatchBenchmark {
+
+  private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+  @Param({"tiny", "skewed"})
+  public String scenario;
+
+  private ComplexTaskExecutor executor;
+  private ForkJoinPool perTaskPool;
+  private int numberOfTasks;
+  private long baseNanos;
+
+  @Setup
+  public void setUp() {
+    executor = new ComplexTaskExecutor(POOL_SIZE);
+    perTaskPool = new ForkJoinPool(POOL_SIZE);
+    boolean tiny = "tiny".equals(scenario);
+    numberOfTasks = tiny ? 1_000_000 : 2_000;
+    baseNanos = tiny ? 0 : 5_000;
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.close();
+    perTaskPool.shutdown();
+  }
+
+  @Benchmark
+  public long perTask() {
+    @SuppressWarnings("unchecked")
+    CompletableFuture<Long>[] futures =
+        (CompletableFuture<Long>[]) new CompletableFuture<?>[numberOfTasks];
+    for (int i = 0; i < numberOfTasks; i++) {
+      int input = i;
+      futures[i] = CompletableFuture.supplyAsync(() -> work(input, baseNanos), perTaskPool);
+    }
+    long sum = 0;
+    for (CompletableFuture<Long> future : futures) {
+      sum += future.join();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long lanes() {
+    return executor.submitBatch(numberOfTasks, i -> i, i -> work(i, baseNanos),
+        Collectors.summingLong(Long::longValue)).join();
+  }
+
+  @Benchmark
+  public long chunked() {
+    return executor.submitChunked(numberOfTasks, i -> i, i -> work(i, baseNanos),
+        Collectors.summingLong(Long::longValue)).join();
+  }
+
+  /**
+   * Задача с детерминированной длительностью: baseNanos, а для каждой сотой — в 1000 раз больше.
+   */
+  private static long work(int input, long baseNanos) {
+    long result = (long) input * input;
+    if (baseNanos > 0) {
+      long duration = input % 100 == 0 ? baseNanos * 1000 : baseNanos;
+      long deadline = System.nanoTime() + duration;
+      while (System.nanoTime() < deadline) {
+        result = result * 31 + ThreadLocalRandom.current().nextInt(2);
+      }
+    }
+    return result;
+  }
+}
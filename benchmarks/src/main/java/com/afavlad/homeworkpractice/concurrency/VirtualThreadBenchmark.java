@@ -0,0 +1,61 @@
+package com.afavlad.homeworkpractice.concurrency;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Одна серия {@link ComplexTaskExecutor#executeTasks(int)} в режимах
+ * {@link ExecutionMode#PLATFORM} и {@link ExecutionMode#VIRTUAL}.
+ * <p>
+ * Каждая задача спит 0.3–1 с, поэтому идеальное время серии около 1 с; платформенному режиму
+ * нужен отдельный поток ОС на каждую задачу. Режим VIRTUAL доступен только на Java 21 и новее:
+ * на более старой JVM его вариант завершится ошибкой в {@code @Setup}, остальные выполнятся.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class VirtualThreadBenchmark {
+
+  private static final int POOL_SIZE = 16;
+
+  @Param({"PLATFORM", "VIRTUAL"})
+  public ExecutionMode mode;
+
+  @Param({"1000", "10000"})
+  public int numberOfTasks;
+
+  private ComplexTaskExecutor executor;
+
+  @Setup
+  public void setUp() {
+    if (mode == ExecutionMode.VIRTUAL && !ComplexTaskExecutor.isVirtualThreadsSupported()) {
+      throw new IllegalStateException("VIRTUAL requires Java 21, running on "
+          + System.getProperty("java.version"));
+    }
+    executor = new ComplexTaskExecutor(POOL_SIZE, mode, ExecutorMetrics.NOOP);
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.close();
+  }
+
+  @Benchmark
+  public void executeTasks() {
+    executor.executeTasks(numberOfTasks);
+  }
+}
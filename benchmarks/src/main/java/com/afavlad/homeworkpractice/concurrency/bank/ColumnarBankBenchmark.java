@@ -0,0 +1,75 @@
+package com.afavlad.homeworkpractice.concurrency.bank;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ConcurrentBank} и {@link ColumnarBank} на {@value #ACCOUNTS} счетах: переводы из
+ * {@value #THREADS} потоков и время {@code getTotalBalance()}.
+ * <p>
+ * Банки держат в куче миллионы счетов, поэтому форк запускается с кучей 2 ГБ.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ColumnarBankBenchmark {
+
+  static final int THREADS = 4;
+
+  private static final int ACCOUNTS = 5_000_000;
+
+  @Param({"objects", "columns"})
+  public String storage;
+
+  private ConcurrentBank objects;
+  private ColumnarBank columns;
+
+  @Setup
+  public void setUp() {
+    if ("objects".equals(storage)) {
+      objects = new ConcurrentBank();
+      for (int i = 0; i < ACCOUNTS; i++) {
+        objects.createAccount(1_000);
+      }
+    } else {
+      columns = new ColumnarBank();
+      for (int i = 0; i < ACCOUNTS; i++) {
+        columns.createAccount(1_000);
+      }
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @Threads(THREADS)
+  public boolean transfer() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long fromId = 1 + random.nextInt(ACCOUNTS);
+    long toId = 1 + random.nextInt(ACCOUNTS);
+    long amount = 1 + random.nextInt(100);
+    return objects != null
+        ? objects.transfer(fromId, toId, amount)
+        : columns.transfer(fromId, toId, amount);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public long getTotalBalance() {
+    return objects != null ? objects.getTotalBalance() : columns.getTotalBalance();
+  }
+}
@@ -0,0 +1,64 @@
+package com.afavlad.homeworkpractice.concurrency.bank;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ConcurrentBank#transfer(long, long, long)} из {@value #THREADS} потоков при равномерном
+ * выборе счетов и при перекосе, когда половина переводов затрагивает один из
+ * {@value #HOT_ACCOUNTS} горячих счетов.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(ConcurrentBankTransferBenchmark.THREADS)
+@Fork(1)
+public class ConcurrentBankTransferBenchmark {
+
+  static final int THREADS = 4;
+
+  private static final int ACCOUNTS = 100_000;
+  private static final int HOT_ACCOUNTS = 8;
+
+  @Param({"uniform", "hot"})
+  public String distribution;
+
+  private ConcurrentBank bank;
+  private boolean hot;
+
+  @Setup
+  public void setUp() {
+    bank = new ConcurrentBank();
+    for (int i = 0; i < ACCOUNTS; i++) {
+      bank.createAccount(1_000_000);
+    }
+    hot = "hot".equals(distribution);
+  }
+
+  @Benchmark
+  public boolean transfer() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    return bank.transfer(pickAccount(random), pickAccount(random), 1 + random.nextInt(100));
+  }
+
+  private long pickAccount(ThreadLocalRandom random) {
+    if (hot && random.nextBoolean()) {
+      return 1 + random.nextInt(HOT_ACCOUNTS);
+    }
+    return 1 + random.nextInt(ACCOUNTS);
+  }
+}
@@ -0,0 +1,94 @@
+package com.afavlad.homeworkpractice.concurrency.bank;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Переводы долговечного банка ({@link ConcurrentBank#open(Path, Duration)}) по одному и
+ * пакетами по {@value #BATCH_SIZE}; результат — переводы в миллисекунду.
+ * <p>
+ * Каждый перевод ждёт сброса журнала на диск, поэтому один поток упирается в задержку
+ * {@code fsync}; с ростом числа потоков групповой сброс делит её между многими переводами.
+ * Число клиентов задаётся ключом {@code -t} (по умолчанию {@value #THREADS}); банк в памяти
+ * на той же нагрузке — {@link ConcurrentBankTransferBenchmark}. Снимки делаются каждые
+ * {@value #CHECKPOINT_MILLIS} мс.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(DurableBankBenchmark.THREADS)
+@Fork(1)
+public class DurableBankBenchmark {
+
+  static final int THREADS = 16;
+
+  private static final int ACCOUNTS = 100_000;
+  private static final int BATCH_SIZE = 100;
+  private static final long CHECKPOINT_MILLIS = 500;
+
+  private Path directory;
+  private ConcurrentBank bank;
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("durable-bank");
+    bank = ConcurrentBank.open(directory, Duration.ofMillis(CHECKPOINT_MILLIS));
+    for (int i = 0; i < ACCOUNTS; i++) {
+      bank.createAccount(1_000_000);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    bank.close();
+    try (Stream<Path> files = Files.walk(directory)) {
+      for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+
+  @Benchmark
+  public boolean transfer() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    return bank.transfer(pickAccount(random), pickAccount(random), 1 + random.nextInt(100));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public List<TransferResult> transferBatch() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    List<Transfer> batch = new ArrayList<>(BATCH_SIZE);
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      batch.add(new Transfer(pickAccount(random), pickAccount(random), 1 + random.nextInt(100)));
+    }
+    return bank.transferBatch(batch);
+  }
+
+  private static long pickAccount(ThreadLocalRandom random) {
+    return 1 + random.nextInt(ACCOUNTS);
+  }
+}
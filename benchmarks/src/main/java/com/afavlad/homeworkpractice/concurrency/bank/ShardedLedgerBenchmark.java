@@ -0,0 +1,82 @@
+package com.afavlad.homeworkpractice.concurrency.bank;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ShardedLedger} на перекошенной нагрузке: половина переводов затрагивает один из
+ * {@value #HOT_ACCOUNTS} горячих счетов. Нагрузка та же, что у
+ * {@link ConcurrentBankTransferBenchmark} с {@code distribution=hot}, и результаты (переводы в
+ * микросекунду) сравнимы напрямую.
+ * <p>
+ * Каждый из {@value #THREADS} клиентов держит в пути до {@value #WINDOW} переводов. Рост с
+ * числом шардов виден только при достаточном количестве ядер.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(ShardedLedgerBenchmark.THREADS)
+@Fork(1)
+public class ShardedLedgerBenchmark {
+
+  static final int THREADS = 4;
+
+  private static final int ACCOUNTS = 100_000;
+  private static final int HOT_ACCOUNTS = 8;
+  private static final int WINDOW = 256;
+
+  @Param({"1", "2", "4", "8"})
+  public int shards;
+
+  private ShardedLedger ledger;
+
+  @Setup
+  public void setUp() {
+    ledger = new ShardedLedger(shards, 1024);
+    for (int i = 0; i < ACCOUNTS; i++) {
+      ledger.createAccount(1_000_000);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    ledger.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(WINDOW)
+  public void transferWindow() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    @SuppressWarnings("unchecked")
+    CompletableFuture<TransferResult>[] inFlight =
+        (CompletableFuture<TransferResult>[]) new CompletableFuture<?>[WINDOW];
+    for (int i = 0; i < WINDOW; i++) {
+      inFlight[i] = ledger.transfer(pickAccount(random), pickAccount(random),
+          1 + random.nextInt(100));
+    }
+    for (CompletableFuture<TransferResult> result : inFlight) {
+      result.join();
+    }
+  }
+
+  private static long pickAccount(ThreadLocalRandom random) {
+    return random.nextBoolean() ? 1 + random.nextInt(HOT_ACCOUNTS) : 1 + random.nextInt(ACCOUNTS);
+  }
+}
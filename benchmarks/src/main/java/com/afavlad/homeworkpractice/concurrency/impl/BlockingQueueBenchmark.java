@@ -0,0 +1,97 @@
+package com.afavlad.homeworkpractice.concurrency.impl;
+
+import com.afavlad.homeworkpractice.concurrency.CustomBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Пропускная способность очередей {@link CustomBlockingQueue} при разном соотношении
+ * производителей и потребителей: 1:1, 4:1 и 1:4.
+ * <p>
+ * Операции идут с коротким таймаутом, чтобы потоки неравных групп не зависли в конце итерации,
+ * когда вторая сторона уже остановилась. Счёт ведётся по операциям обеих сторон; пустые
+ * {@code poll} и неудачные {@code offer} тоже считаются, поэтому сравнивать стоит прогоны одной
+ * группы.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockingQueueBenchmark {
+
+  private static final int CAPACITY = 1024;
+  private static final long TIMEOUT_MICROS = 100;
+  private static final Integer ELEMENT = 42;
+
+  @Param({"monitor", "twoLock", "ringBuffer"})
+  public String queueType;
+
+  private CustomBlockingQueue<Integer> queue;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    queue = switch (queueType) {
+      case "monitor" -> new CustomBlockingQueueImpl<>(CAPACITY);
+      case "twoLock" -> new TwoLockBlockingQueue<>(CAPACITY);
+      case "ringBuffer" -> new RingBufferBlockingQueue<>(CAPACITY);
+      default -> throw new IllegalArgumentException("Unknown queue type: " + queueType);
+    };
+  }
+
+  @Benchmark
+  @Group("oneToOne")
+  @GroupThreads(1)
+  public boolean oneToOneProduce() throws InterruptedException {
+    return queue.offer(ELEMENT, TIMEOUT_MICROS, TimeUnit.MICROSECONDS);
+  }
+
+  @Benchmark
+  @Group("oneToOne")
+  @GroupThreads(1)
+  public Integer oneToOneConsume() throws InterruptedException {
+    return queue.poll(TIMEOUT_MICROS, TimeUnit.MICROSECONDS);
+  }
+
+  @Benchmark
+  @Group("manyProducers")
+  @GroupThreads(4)
+  public boolean manyProducersProduce() throws InterruptedException {
+    return queue.offer(ELEMENT, TIMEOUT_MICROS, TimeUnit.MICROSECONDS);
+  }
+
+  @Benchmark
+  @Group("manyProducers")
+  @GroupThreads(1)
+  public Integer manyProducersConsume() throws InterruptedException {
+    return queue.poll(TIMEOUT_MICROS, TimeUnit.MICROSECONDS);
+  }
+
+  @Benchmark
+  @Group("manyConsumers")
+  @GroupThreads(1)
+  public boolean manyConsumersProduce() throws InterruptedException {
+    return queue.offer(ELEMENT, TIMEOUT_MICROS, TimeUnit.MICROSECONDS);
+  }
+
+  @Benchmark
+  @Group("manyConsumers")
+  @GroupThreads(4)
+  public Integer manyConsumersConsume() throws InterruptedException {
+    return queue.poll(TIMEOUT_MICROS, TimeUnit.MICROSECONDS);
+  }
+}
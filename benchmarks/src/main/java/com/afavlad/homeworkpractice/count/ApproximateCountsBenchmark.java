@@ -0,0 +1,58 @@
+package com.afavlad.homeworkpractice.count;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Точный ({@link ObjectCounts}) и приближённый ({@link ApproximateCounts}) подсчёт куска из
+ * {@value #CHUNK} строк: с ростом числа различных ключей точная таблица растёт, а скетчи нет.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApproximateCountsBenchmark {
+
+  private static final int CHUNK = 1_000_000;
+
+  @Param({"1000", "1000000"})
+  public int distinct;
+
+  private String[] chunk;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    chunk = new String[CHUNK];
+    for (int i = 0; i < CHUNK; i++) {
+      chunk[i] = "user-" + random.nextInt(distinct);
+    }
+  }
+
+  @Benchmark
+  public ObjectCounts<String> exact() {
+    ObjectCounts<String> counts = new ObjectCounts<>();
+    counts.addAll(chunk);
+    return counts;
+  }
+
+  @Benchmark
+  public ApproximateCounts<String> approximate() {
+    ApproximateCounts<String> counts = new ApproximateCounts<>(SketchAccuracy.defaults());
+    counts.addAll(chunk);
+    return counts;
+  }
+}
@@ -0,0 +1,74 @@
+package com.afavlad.homeworkpractice.count;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ElementsCounter#countOfElements(Object[])}, подсчёт в таблицы с открытой адресацией и
+ * параллельный подсчёт на массивах разного размера с малым и большим числом различных значений.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ElementsCounterBenchmark {
+
+  @Param({"10000", "1000000"})
+  public int size;
+
+  @Param({"16", "65536"})
+  public int distinct;
+
+  private Integer[] array;
+  private int[] ints;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    array = new Integer[size];
+    ints = new int[size];
+    for (int i = 0; i < size; i++) {
+      ints[i] = random.nextInt(distinct);
+      array[i] = ints[i];
+    }
+  }
+
+  @Benchmark
+  public Map<Integer, Integer> countOfElements() {
+    return ElementsCounter.countOfElements(array);
+  }
+
+  @Benchmark
+  public ObjectCounts<Integer> countOfElementsAsLong() {
+    return ElementsCounter.countOfElementsAsLong(array);
+  }
+
+  @Benchmark
+  public ObjectCounts<Integer> parallelCountOfElements() {
+    return ElementsCounter.parallelCountOfElements(array);
+  }
+
+  @Benchmark
+  public IntCounts countOfInts() {
+    return ElementsCounter.countOfElements(ints);
+  }
+
+  @Benchmark
+  public IntCounts parallelCountOfInts() {
+    return ElementsCounter.parallelCountOfElements(ints);
+  }
+}
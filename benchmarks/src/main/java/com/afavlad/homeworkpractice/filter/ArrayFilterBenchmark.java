@@ -0,0 +1,53 @@
+package com.afavlad.homeworkpractice.filter;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ArrayFilter#filter(Object[], Filter)} с дешёвым фильтром, который не выделяет память
+ * сам, и с фильтром, создающим новую строку на каждый элемент.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArrayFilterBenchmark {
+
+  private static final Filter<String> IDENTITY = value -> value;
+  private static final Filter<String> UPPER_CASE = String::toUpperCase;
+
+  @Param({"1000", "1000000"})
+  public int size;
+
+  private String[] array;
+
+  @Setup
+  public void setUp() {
+    array = new String[size];
+    for (int i = 0; i < size; i++) {
+      array[i] = "value-" + i;
+    }
+  }
+
+  @Benchmark
+  public String[] identity() {
+    return ArrayFilter.filter(array, IDENTITY);
+  }
+
+  @Benchmark
+  public String[] upperCase() {
+    return ArrayFilter.filter(array, UPPER_CASE);
+  }
+}
@@ -0,0 +1,35 @@
+package com.afavlad.homeworkpractice.stream;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link FactorialTask} в общем {@link ForkJoinPool}. Для n больше 20 произведение переполняет
+ * {@code long}; здесь важна стоимость разбиения на подзадачи, а не результат.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FactorialTaskBenchmark {
+
+  @Param({"20", "10000"})
+  public int n;
+
+  @Benchmark
+  public long factorial() {
+    return ForkJoinPool.commonPool().invoke(new FactorialTask(1, n));
+  }
+}
@@ -0,0 +1,70 @@
+package com.afavlad.homeworkpractice.stringbuilder;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Сравнение {@link ConcurrentCustomStringBuilder} с {@link CustomStringBuilder}, обёрнутым в
+ * {@code synchronized}, при дописывании из нескольких потоков.
+ * <p>
+ * Запуск: {@code main} прогоняет оба варианта на 1, 2, 4, 8, 16 и 32 потоках; в общем прогоне
+ * модуля — на числе потоков, заданном {@code -t}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentAppendBenchmark {
+
+  private static final int MAX_HISTORY = 1024;
+  private static final String FRAGMENT = "log line fragment;";
+
+  @Param({"concurrent", "synchronized"})
+  public String mode;
+
+  private ConcurrentCustomStringBuilder concurrent;
+  private CustomStringBuilder synchronizedBuilder;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    concurrent = new ConcurrentCustomStringBuilder("", MAX_HISTORY);
+    synchronizedBuilder = new CustomStringBuilder("", HistoryLimit.ofOperations(MAX_HISTORY));
+  }
+
+  @Benchmark
+  public Object append() {
+    if ("concurrent".equals(mode)) {
+      return concurrent.append(FRAGMENT);
+    }
+    synchronized (synchronizedBuilder) {
+      return synchronizedBuilder.append(FRAGMENT);
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    for (int threads : new int[]{1, 2, 4, 8, 16, 32}) {
+      Options options = new OptionsBuilder()
+          .include(ConcurrentAppendBenchmark.class.getSimpleName())
+          .threads(threads)
+          .build();
+      new Runner(options).run();
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package com.afavlad.homeworkpractice.stringbuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Правки и их отмена в {@link CustomStringBuilder} для обоих {@link StorageMode} на документе
+ * в {@value #DOCUMENT_SIZE} символов.
+ * <p>
+ * Каждый вызов делает четыре правки в случайных местах (вставка, замена, удаление, замена
+ * символа) и отменяет их, поэтому размер документа и истории не растёт от итерации к итерации.
+ * Места правок выбираются заранее.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EditUndoBenchmark {
+
+  private static final int DOCUMENT_SIZE = 64 * 1024;
+  private static final int OFFSETS = 1024;
+
+  @Param({"STRING_BUILDER", "ROPE"})
+  public StorageMode mode;
+
+  private CustomStringBuilder builder;
+  private int[] offsets;
+  private int next;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    builder = new CustomStringBuilder("x".repeat(DOCUMENT_SIZE), HistoryLimit.ofOperations(64),
+        mode);
+    Random random = new Random(42);
+    offsets = new int[OFFSETS];
+    for (int i = 0; i < OFFSETS; i++) {
+      offsets[i] = random.nextInt(DOCUMENT_SIZE - 16);
+    }
+  }
+
+  @Benchmark
+  public int editAndUndo() {
+    int offset = offsets[next++ & (OFFSETS - 1)];
+    builder.insert(offset, "inserted");
+    builder.replace(offset, offset + 8, "replaced");
+    builder.delete(offset, offset + 4);
+    builder.setCharAt(offset, 'y');
+    for (int i = 0; i < 4; i++) {
+      builder.undo();
+    }
+    return builder.length();
+  }
+
+  @Benchmark
+  public int insertUndo() {
+    builder.insert(offsets[next++ & (OFFSETS - 1)], "inserted");
+    builder.undo();
+    return builder.length();
+  }
+}
@@ -0,0 +1,72 @@
+package com.afavlad.homeworkpractice.stringbuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Случайные правки документа в {@value #DOCUMENT_SIZE} символов с историей, ограниченной
+ * {@link HistoryLimit#ofBytes(long)}.
+ * <p>
+ * Правки идут без отмены, поэтому история всё время упирается в лимит и вытесняет старые
+ * записи; каждая седьмая правка дополнительно отменяется и повторяется. После каждой итерации
+ * проверяется, что объём истории не превысил лимит; постоянство выделения памяти на правку
+ * видно в {@code -prof gc}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UndoHistoryBenchmark {
+
+  private static final int DOCUMENT_SIZE = 64 * 1024;
+  private static final long HISTORY_BYTES = 4L * 1024 * 1024;
+
+  private CustomStringBuilder builder;
+  private Random random;
+  private int edits;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    builder = new CustomStringBuilder("x".repeat(DOCUMENT_SIZE),
+        HistoryLimit.ofBytes(HISTORY_BYTES));
+    random = new Random(42);
+  }
+
+  @Benchmark
+  public int edit() {
+    int offset = random.nextInt(builder.length() - 16);
+    switch (++edits % 4) {
+      case 0 -> builder.replace(offset, offset + 8, "replaced");
+      case 1 -> builder.setCharAt(offset, (char) ('a' + random.nextInt(26)));
+      case 2 -> builder.insert(offset, "inserted");
+      default -> builder.delete(offset, offset + 8);
+    }
+    if (edits % 7 == 0) {
+      builder.undo();
+      builder.redo();
+    }
+    return builder.length();
+  }
+
+  @TearDown(Level.Iteration)
+  public void checkHistory() {
+    if (builder.historyRetainedBytes() > HISTORY_BYTES) {
+      throw new IllegalStateException("History exceeds its limit: "
+          + builder.historyRetainedBytes() + " bytes");
+    }
+  }
+}
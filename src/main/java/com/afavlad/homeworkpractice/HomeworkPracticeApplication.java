@@ -1,7 +1,13 @@
 package com.afavlad.homeworkpractice;
 
+import com.afavlad.homeworkpractice.concurrency.ComplexTaskExecutor;
+import com.afavlad.homeworkpractice.concurrency.ExecutionMode;
+import com.afavlad.homeworkpractice.concurrency.ExecutorMetricsBinder;
+import com.afavlad.homeworkpractice.concurrency.HistogramExecutorMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
 
 @SpringBootApplication
 public class HomeworkPracticeApplication {
@@ -10,4 +16,22 @@ public class HomeworkPracticeApplication {
     SpringApplication.run(HomeworkPracticeApplication.class, args);
   }
 
+  @Bean
+  public HistogramExecutorMetrics complexTaskExecutorMetrics() {
+    return new HistogramExecutorMetrics();
+  }
+
+  @Bean
+  public ComplexTaskExecutor complexTaskExecutor(
+      @Value("${homework.complex-task.pool-size:4}") int poolSize,
+      HistogramExecutorMetrics metrics) {
+    return new ComplexTaskExecutor(poolSize, ExecutionMode.PLATFORM, metrics);
+  }
+
+  @Bean
+  public ExecutorMetricsBinder complexTaskExecutorMetricsBinder(ComplexTaskExecutor executor,
+      HistogramExecutorMetrics metrics) {
+    return new ExecutorMetricsBinder(executor, metrics);
+  }
+
 }
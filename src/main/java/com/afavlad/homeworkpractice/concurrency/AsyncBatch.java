@@ -0,0 +1,118 @@
+package com.afavlad.homeworkpractice.concurrency;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collector;
+
+/**
+ * Одна асинхронная серия задач {@link ComplexTaskExecutor#submitBatch}.
+ * <p>
+ * Серия выполняется несколькими "полосами": каждая полоса в цикле забирает следующий индекс
+ * из общего счётчика, вычисляет результат и сразу накапливает его в свой контейнер
+ * коллектора. Когда все полосы закончили, контейнеры объединяются combiner-ом коллектора.
+ * Общего массива результатов нет, а ни один поток не блокируется в ожидании серии.
+ *
+ * @param <I> тип входных данных задачи
+ * @param <R> тип результата задачи
+ * @param <C> тип промежуточного контейнера коллектора
+ * @param <A> тип итогового результата серии
+ */
+final class AsyncBatch<I, R, C, A> {
+
+  private final int numberOfTasks;
+  private final IntFunction<? extends I> inputs;
+  private final Function<? super I, ? extends R> task;
+  private final Collector<? super R, C, A> collector;
+  private final ExecutorMetrics metrics;
+  private final long submitTime;
+  private final AtomicInteger nextIndex = new AtomicInteger();
+  private final CompletableFuture<A> result = new CompletableFuture<>();
+
+  AsyncBatch(int numberOfTasks,
+      IntFunction<? extends I> inputs,
+      Function<? super I, ? extends R> task,
+      Collector<? super R, C, A> collector,
+      ExecutorMetrics metrics,
+      long submitTime) {
+    this.numberOfTasks = numberOfTasks;
+    this.inputs = inputs;
+    this.task = task;
+    this.collector = collector;
+    this.metrics = metrics;
+    this.submitTime = submitTime;
+  }
+
+  /**
+   * Запускает полосы серии.
+   *
+   * @param executor исполнитель полос
+   * @param lanes    сколько полос запустить (не больше numberOfTasks)
+   * @return future с итоговым результатом
+   * @throws RejectedExecutionException если исполнитель не принял полосу
+   */
+  CompletableFuture<A> start(Executor executor, int lanes) {
+    int laneCount = Math.min(lanes, numberOfTasks);
+    if (laneCount == 0) {
+      result.complete(collector.finisher().apply(collector.supplier().get()));
+      return result;
+    }
+    @SuppressWarnings("unchecked")
+    CompletableFuture<C>[] containers = (CompletableFuture<C>[]) new CompletableFuture<?>[laneCount];
+    for (int i = 0; i < laneCount; i++) {
+      CompletableFuture<C> container = new CompletableFuture<>();
+      containers[i] = container;
+      try {
+        executor.execute(() -> runLane(container));
+      } catch (RejectedExecutionException e) {
+        // Уже запущенные полосы остановятся, увидев завершённый result.
+        result.completeExceptionally(e);
+        throw e;
+      }
+    }
+    CompletableFuture.allOf(containers).whenComplete((ignored, failure) -> {
+      if (failure != null) {
+        result.completeExceptionally(failure);
+        return;
+      }
+      try {
+        C combined = containers[0].join();
+        for (int i = 1; i < containers.length; i++) {
+          combined = collector.combiner().apply(combined, containers[i].join());
+        }
+        result.complete(collector.finisher().apply(combined));
+      } catch (Throwable e) {
+        result.completeExceptionally(e);
+      }
+    });
+    return result;
+  }
+
+  private void runLane(CompletableFuture<C> container) {
+    try {
+      C accumulated = collector.supplier().get();
+      BiConsumer<C, ? super R> accumulator = collector.accumulator();
+      int index;
+      // Завершённый result означает ошибку в другой полосе или отмену: новые задачи не берём.
+      while (!result.isDone() && (index = nextIndex.getAndIncrement()) < numberOfTasks) {
+        // Ожидание задачи в очереди — время от отправки серии до её начала.
+        long startTime = System.nanoTime();
+        metrics.taskStarted(startTime - submitTime);
+        try {
+          accumulator.accept(accumulated, task.apply(inputs.apply(index)));
+        } finally {
+          metrics.taskFinished(System.nanoTime() - startTime);
+        }
+      }
+      container.complete(accumulated);
+    } catch (Throwable e) {
+      result.completeExceptionally(e);
+      container.completeExceptionally(e);
+    }
+  }
+
+}
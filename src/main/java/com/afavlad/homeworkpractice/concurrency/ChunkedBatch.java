@@ -0,0 +1,142 @@
+package com.afavlad.homeworkpractice.concurrency;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collector;
+
+/**
+ * Одна серия {@link ComplexTaskExecutor#submitChunked} на {@link java.util.concurrent.ForkJoinPool}.
+ * <p>
+ * Диапазон индексов делится пополам, пока он больше текущего размера куска; куски
+ * выполняются последовательно, свободные потоки пула крадут ещё не начатые половины.
+ * Размер куска подбирается так, чтобы кусок выполнялся около {@link #TARGET_CHUNK_NANOS}:
+ * после каждого куска обновляется скользящее среднее времени одной задачи. Если кусок всё же
+ * выполняется дольше цели (попались медленные задачи), его оставшаяся часть отдаётся пулу
+ * для кражи, и медленные задачи не задерживают остальные.
+ * <p>
+ * Результаты объединяются слева направо, поэтому порядок индексов сохраняется.
+ *
+ * @param <I> тип входных данных задачи
+ * @param <R> тип результата задачи
+ * @param <C> тип промежуточного контейнера коллектора
+ * @param <A> тип итогового результата серии
+ */
+final class ChunkedBatch<I, R, C, A> {
+
+  static final long TARGET_CHUNK_NANOS = 100_000;
+
+  private static final int MAX_CHUNK = 1 << 16;
+
+  private final IntFunction<? extends I> inputs;
+  private final Function<? super I, ? extends R> task;
+  private final Collector<? super R, C, A> collector;
+  private final BiConsumer<C, ? super R> accumulator;
+  private final BinaryOperator<C> combiner;
+  private volatile long taskNanos;
+
+  ChunkedBatch(IntFunction<? extends I> inputs,
+      Function<? super I, ? extends R> task,
+      Collector<? super R, C, A> collector) {
+    this.inputs = inputs;
+    this.task = task;
+    this.collector = collector;
+    this.accumulator = collector.accumulator();
+    this.combiner = collector.combiner();
+  }
+
+  /**
+   * Выполняет серию; должен вызываться из потока {@link java.util.concurrent.ForkJoinPool}.
+   *
+   * @param numberOfTasks количество задач
+   * @return результат серии
+   */
+  A invoke(int numberOfTasks) {
+    return collector.finisher().apply(new Range(0, numberOfTasks).invoke());
+  }
+
+  /**
+   * @return текущий размер куска по последнему измерению
+   */
+  private int chunkSize() {
+    long nanos = taskNanos;
+    if (nanos == 0) {
+      // Измерений ещё нет: первый кусок из одной задачи служит пробой.
+      return 1;
+    }
+    return (int) Math.max(1, Math.min(MAX_CHUNK, TARGET_CHUNK_NANOS / nanos));
+  }
+
+  private void recordChunk(int tasks, long elapsedNanos) {
+    if (tasks == 0) {
+      return;
+    }
+    long sample = Math.max(1, elapsedNanos / tasks);
+    long previous = taskNanos;
+    // Гонка обновлений безобидна: потеряется лишь одно измерение.
+    taskNanos = previous == 0 ? sample : (previous * 7 + sample) / 8;
+  }
+
+  private final class Range extends RecursiveTask<C> {
+    private static final long serialVersionUID = 1L;
+
+    private final int from;
+    private final int to;
+
+    Range(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected C compute() {
+      int size = to - from;
+      if (size > chunkSize()) {
+        int middle = (from + to) >>> 1;
+        Range right = new Range(middle, to);
+        right.fork();
+        C left = new Range(from, middle).compute();
+        return combiner.apply(left, right.join());
+      }
+      return computeChunk();
+    }
+
+    private C computeChunk() {
+      C container = collector.supplier().get();
+      Deque<Range> donated = new ArrayDeque<>();
+      int end = to;
+      // Часы опрашиваются не после каждой задачи: для крошечных задач nanoTime() дороже их самих.
+      int checkEvery = Math.max(1, chunkSize() / 8);
+      long start = System.nanoTime();
+      long sliceStart = start;
+      int index = from;
+      while (index < end) {
+        accumulator.accept(container, task.apply(inputs.apply(index)));
+        index++;
+        if ((index - from) % checkEvery != 0) {
+          continue;
+        }
+        long now = System.nanoTime();
+        if (now - sliceStart > TARGET_CHUNK_NANOS && end - index > 1) {
+          // Кусок оказался медленнее ожидаемого: отдаём вторую половину остатка на кражу.
+          int middle = (index + end) >>> 1;
+          Range rest = new Range(middle, end);
+          rest.fork();
+          donated.push(rest);
+          end = middle;
+          sliceStart = now;
+        }
+      }
+      recordChunk(index - from, System.nanoTime() - start);
+      // Последняя отданная часть лежит ближе всего к обработанному префиксу.
+      while (!donated.isEmpty()) {
+        container = combiner.apply(container, donated.pop().join());
+      }
+      return container;
+    }
+  }
+}
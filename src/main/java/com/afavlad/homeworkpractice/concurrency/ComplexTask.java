@@ -9,29 +9,57 @@ public class ComplexTask implements Runnable {
   private final int inputData;
   private final int[] partialResults;
   private final CyclicBarrier barrier;
+  private final ExecutorMetrics metrics;
+  private final long createdAt = System.nanoTime();
 
   public ComplexTask(int taskId, int inputData, int[] partialResults, CyclicBarrier barrier) {
+    this(taskId, inputData, partialResults, barrier, ExecutorMetrics.NOOP);
+  }
+
+  /**
+   * @param metrics получает начало и конец задачи (ожидание начала считается от создания задачи),
+   *                время вычисления и время ожидания на барьере
+   */
+  public ComplexTask(int taskId, int inputData, int[] partialResults, CyclicBarrier barrier,
+      ExecutorMetrics metrics) {
     this.taskId = taskId;
     this.inputData = inputData;
     this.partialResults = partialResults;
     this.barrier = barrier;
+    this.metrics = metrics;
   }
 
   public void execute() {
     try {
-      System.out.println(Thread.currentThread().getName() + " executing task " + taskId + " with input " + inputData);
-      Thread.sleep(300 + (int) (Math.random() * 700));
-      int result = inputData * inputData;
-      partialResults[taskId] = result;
-      System.out.println(Thread.currentThread().getName() + " finished task " + taskId + " with result " + result);
+      long startTime = System.nanoTime();
+      metrics.taskStarted(startTime - createdAt);
+      try {
+        partialResults[taskId] = (int) compute(inputData);
+      } finally {
+        metrics.taskFinished(System.nanoTime() - startTime);
+      }
+      long barrierTime = System.nanoTime();
       barrier.await();
+      metrics.barrierPassed(System.nanoTime() - barrierTime);
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
     } catch (BrokenBarrierException e) {
-      System.out.println(Thread.currentThread().getName() + " barrier is broken for task " + taskId);
+      metrics.barrierBroken();
     }
   }
 
+  /**
+   * Полезная работа задачи: имитирует долгое вычисление и возвращает квадрат входных данных.
+   *
+   * @param inputData входные данные
+   * @return квадрат входных данных
+   * @throws InterruptedException если поток прерван во время вычисления
+   */
+  static long compute(long inputData) throws InterruptedException {
+    Thread.sleep(300 + (int) (Math.random() * 700));
+    return inputData * inputData;
+  }
+
   @Override
   public void run() {
     execute();
@@ -1,27 +1,123 @@
 package com.afavlad.homeworkpractice.concurrency;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
 
 /**
  * Оркестратор выполнения "сложных задач".
  * <p>
- * Для каждой серии задач метод {@link #executeTasks(int)}:
+ * Исполнитель владеет одним долгоживущим пулом потоков, который создаётся в конструкторе и
+ * разделяется всеми вызовами {@link #executeTasks(int)}, в том числе параллельными. Для каждой
+ * серии задач метод {@link #executeTasks(int)}:
  * <ul>
- *     <li>создаёт пул потоков,</li>
  *     <li>создаёт {@link CyclicBarrier} для синхронизации задач,</li>
- *     <li>запускает указное количество задач {@link ComplexTask},</li>
- *     <li>ждёт завершения всех задач и объединяет их результаты в barrier-action.</li>
+ *     <li>создаёт {@link CountDownLatch} для отслеживания завершения именно этой серии,</li>
+ *     <li>запускает указное количество задач {@link ComplexTask} в общем пуле,</li>
+ *     <li>ждёт завершения всех задач серии и объединяет их результаты в barrier-action.</li>
  * </ul>
+ * Пул нужно освободить методом {@link #close()}.
+ * <p>
+ * В режиме {@link ExecutionMode#VIRTUAL} вместо пула каждая задача получает свой виртуальный
+ * поток, что позволяет держать на одном барьере сотни тысяч блокирующихся задач.
+ * <p>
+ * Методы {@code submitBatch} — асинхронная альтернатива {@link #executeTasks(int)}: они сразу
+ * возвращают {@link CompletableFuture} с объединённым результатом серии, поэтому одновременно
+ * может выполняться несколько серий.
  */
-public class ComplexTaskExecutor {
+public class ComplexTaskExecutor implements AutoCloseable {
+
+  private static final long KEEP_ALIVE_SECONDS = 60;
 
   private final int poolSize;
+  private final ExecutionMode mode;
+  private final ExecutorService executor;
+  private final ForkJoinPool forkJoinPool;
+  private final ExecutorMetrics metrics;
 
+  /**
+   * @param poolSize сколько потоков пул держит постоянно
+   */
   public ComplexTaskExecutor(int poolSize) {
+    this(poolSize, ExecutionMode.PLATFORM);
+  }
+
+  /**
+   * @param poolSize сколько потоков пул держит постоянно; в режиме
+   *                 {@link ExecutionMode#VIRTUAL} не используется
+   * @param mode     способ выполнения задач
+   * @throws UnsupportedOperationException если виртуальные потоки недоступны в этой JVM
+   */
+  public ComplexTaskExecutor(int poolSize, ExecutionMode mode) {
+    this(poolSize, mode, new HistogramExecutorMetrics());
+  }
+
+  /**
+   * @param poolSize сколько потоков пул держит постоянно; в режиме
+   *                 {@link ExecutionMode#VIRTUAL} не используется
+   * @param mode     способ выполнения задач
+   * @param metrics  приёмник метрик выполнения; {@link ExecutorMetrics#NOOP}, чтобы не собирать их
+   * @throws UnsupportedOperationException если виртуальные потоки недоступны в этой JVM
+   */
+  public ComplexTaskExecutor(int poolSize, ExecutionMode mode, ExecutorMetrics metrics) {
+    if (poolSize <= 0) {
+      throw new IllegalArgumentException("Pool size must be greater than zero");
+    }
+    if (mode == null || metrics == null) {
+      throw new IllegalArgumentException("Execution mode and metrics must not be null");
+    }
     this.poolSize = poolSize;
+    this.mode = mode;
+    this.metrics = metrics;
+    this.executor = mode == ExecutionMode.VIRTUAL ? createVirtualExecutor() : createExecutor();
+    this.forkJoinPool = new ForkJoinPool(poolSize);
+  }
+
+  /**
+   * @return способ, которым исполнитель выполняет задачи
+   */
+  public ExecutionMode getMode() {
+    return mode;
+  }
+
+  /**
+   * @return сколько потоков пул держит постоянно
+   */
+  public int getPoolSize() {
+    return poolSize;
+  }
+
+  /**
+   * @return приёмник метрик выполнения
+   */
+  public ExecutorMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * @return {@code true}, если JVM поддерживает {@link ExecutionMode#VIRTUAL}
+   */
+  public static boolean isVirtualThreadsSupported() {
+    try {
+      Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
   }
 
   /**
@@ -32,29 +128,189 @@ public class ComplexTaskExecutor {
    *     <li>Создаётся массив для частичных результатов всех задач.</li>
    *     <li>Создаётся барьер, ожидающий numberOfTasks задач и выполняющий
    *         объединение результатов (barrier action).</li>
-   *     <li>Создаётся пул потоков ограниченного размера.</li>
-   *     <li>Каждой задаче выдаётся свой индекс и входные данные, задача отправляется в пул.</li>
-   *     <li>После отправки всех задач пул закрывается для новых задач и ожидается
-   *         завершение всех текущих.</li>
+   *     <li>Каждой задаче выдаётся свой индекс и входные данные, задача отправляется в общий пул.</li>
+   *     <li>Вызывающий поток ждёт, пока все задачи серии не отработают. Пул при этом не
+   *         останавливается и продолжает обслуживать другие серии.</li>
    * </ol>
    *
    * @param numberOfTasks количество задач, которые нужно запустить параллельно
+   * @throws IllegalStateException если исполнитель уже закрыт
    */
   public void executeTasks(int numberOfTasks) {
-    System.out.println(Thread.currentThread().getName() + " started executeTasks with " + numberOfTasks + " tasks.");
-
+    long startTime = System.nanoTime();
     int[] partialResults = createPartialResultsArray(numberOfTasks);
     CyclicBarrier barrier = createBarrier(numberOfTasks, partialResults);
-    ExecutorService executor = createExecutor(numberOfTasks);
+    CountDownLatch completion = new CountDownLatch(numberOfTasks);
+
+    submitTasks(numberOfTasks, partialResults, barrier, completion);
+    if (waitForCompletion(numberOfTasks, completion)) {
+      metrics.batchFinished(numberOfTasks, System.nanoTime() - startTime);
+    }
+  }
+
+  /**
+   * Асинхронно выполняет серию из numberOfTasks задач с теми же вычислениями, что и
+   * {@link #executeTasks(int)}: задача i получает входные данные i+1 и возвращает их квадрат.
+   *
+   * @param numberOfTasks количество задач
+   * @return future с суммой результатов всех задач
+   * @throws IllegalArgumentException если numberOfTasks отрицательно
+   * @throws IllegalStateException    если исполнитель уже закрыт
+   */
+  public CompletableFuture<Long> submitBatch(int numberOfTasks) {
+    return submitBatch(numberOfTasks, i -> i + 1L, ComplexTaskExecutor::computeTask,
+        Collectors.summingLong(Long::longValue));
+  }
 
+  /**
+   * Асинхронно выполняет серию задач и объединяет их результаты коллектором.
+   * <p>
+   * Вызывающий поток не блокируется. Задачи серии распределяются между несколькими
+   * исполнителями-"полосами" (poolSize полос в режиме {@link ExecutionMode#PLATFORM}, по одной
+   * на задачу в режиме {@link ExecutionMode#VIRTUAL}); каждая полоса накапливает результаты в
+   * свой контейнер, в конце контейнеры объединяются combiner-ом коллектора. Порядок
+   * накопления не совпадает с порядком индексов, поэтому коллектор не должен от него зависеть.
+   * <p>
+   * Если задача выбросила исключение, новые задачи серии не запускаются, а future завершается
+   * этим исключением. Отмена future также прекращает запуск новых задач.
+   *
+   * @param numberOfTasks количество задач
+   * @param inputs        генератор входных данных по индексу задачи (0..numberOfTasks-1)
+   * @param task          вычисление одной задачи
+   * @param combiner      коллектор, объединяющий результаты задач
+   * @param <I>           тип входных данных задачи
+   * @param <R>           тип результата задачи
+   * @param <A>           тип результата серии
+   * @return future с результатом серии
+   * @throws IllegalArgumentException если numberOfTasks отрицательно или аргумент равен null
+   * @throws IllegalStateException    если исполнитель уже закрыт
+   */
+  public <I, R, A> CompletableFuture<A> submitBatch(int numberOfTasks,
+      IntFunction<? extends I> inputs,
+      Function<? super I, ? extends R> task,
+      Collector<? super R, ?, A> combiner) {
+    if (numberOfTasks < 0) {
+      throw new IllegalArgumentException("Number of tasks must not be negative");
+    }
+    if (inputs == null || task == null || combiner == null) {
+      throw new IllegalArgumentException("Inputs, task and combiner must not be null");
+    }
+    long startTime = System.nanoTime();
     try {
-      submitTasks(numberOfTasks, partialResults, barrier, executor);
-    } finally {
-      executor.shutdown();
+      return recordBatch(startBatch(numberOfTasks, inputs, task, combiner, startTime),
+          numberOfTasks, startTime);
+    } catch (RejectedExecutionException e) {
+      throw new IllegalStateException("Executor is closed", e);
     }
-    waitForCompletion(executor);
+  }
 
-    System.out.println(Thread.currentThread().getName() + " finished executeTasks.");
+  /**
+   * Асинхронно выполняет серию коротких задач кусками на пуле с кражей работы.
+   * <p>
+   * В отличие от {@link #submitBatch(int, IntFunction, Function, Collector)}, задачи не
+   * раздаются по одной: диапазон индексов делится на куски, размер которых подбирается по
+   * измеренному времени задач (около 100 мкс на кусок), а свободные потоки крадут
+   * невыполненные куски у занятых. Подходит для очень большого количества задач и для задач
+   * с сильно различающимся временем выполнения. Пул размером poolSize рассчитан на
+   * вычислительные задачи: задачи, надолго блокирующие поток, лучше запускать через
+   * {@code submitBatch}.
+   * <p>
+   * Результаты накапливаются в порядке индексов задач. Чтобы не замедлять крошечные задачи,
+   * в {@link ExecutorMetrics} записывается только время всей серии.
+   *
+   * @param numberOfTasks количество задач
+   * @param inputs        генератор входных данных по индексу задачи (0..numberOfTasks-1)
+   * @param task          вычисление одной задачи
+   * @param combiner      коллектор, объединяющий результаты задач
+   * @param <I>           тип входных данных задачи
+   * @param <R>           тип результата задачи
+   * @param <A>           тип результата серии
+   * @return future с результатом серии
+   * @throws IllegalArgumentException если numberOfTasks отрицательно или аргумент равен null
+   * @throws IllegalStateException    если исполнитель уже закрыт
+   */
+  public <I, R, A> CompletableFuture<A> submitChunked(int numberOfTasks,
+      IntFunction<? extends I> inputs,
+      Function<? super I, ? extends R> task,
+      Collector<? super R, ?, A> combiner) {
+    if (numberOfTasks < 0) {
+      throw new IllegalArgumentException("Number of tasks must not be negative");
+    }
+    if (inputs == null || task == null || combiner == null) {
+      throw new IllegalArgumentException("Inputs, task and combiner must not be null");
+    }
+    ChunkedBatch<I, R, ?, A> batch = new ChunkedBatch<>(inputs, task, combiner);
+    long startTime = System.nanoTime();
+    try {
+      return recordBatch(CompletableFuture.supplyAsync(() -> batch.invoke(numberOfTasks), forkJoinPool),
+          numberOfTasks, startTime);
+    } catch (RejectedExecutionException e) {
+      throw new IllegalStateException("Executor is closed", e);
+    }
+  }
+
+  /**
+   * Создаёт многофазное вычисление, участники которого выполняются в этом исполнителе.
+   *
+   * @param maxPhases максимальное количество фаз
+   * @param combiner  шаг объединения после каждой фазы
+   * @param <R>       тип частичного результата участника
+   * @return новое, ещё не запущенное вычисление
+   */
+  public <R> PhasedComputation<R> newPhasedComputation(int maxPhases,
+      PhasedComputation.Combiner<R> combiner) {
+    return new PhasedComputation<>(executor, maxPhases, combiner);
+  }
+
+  private <I, R, C, A> CompletableFuture<A> startBatch(int numberOfTasks,
+      IntFunction<? extends I> inputs,
+      Function<? super I, ? extends R> task,
+      Collector<? super R, C, A> combiner,
+      long startTime) {
+    int lanes = mode == ExecutionMode.VIRTUAL ? numberOfTasks : poolSize;
+    return new AsyncBatch<>(numberOfTasks, inputs, task, combiner, metrics, startTime)
+        .start(executor, lanes);
+  }
+
+  private <A> CompletableFuture<A> recordBatch(CompletableFuture<A> batch, int numberOfTasks,
+      long startTime) {
+    batch.whenComplete((result, failure) -> {
+      if (failure == null) {
+        metrics.batchFinished(numberOfTasks, System.nanoTime() - startTime);
+      }
+    });
+    return batch;
+  }
+
+  private static long computeTask(long inputData) {
+    try {
+      return ComplexTask.compute(inputData);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CompletionException(e);
+    }
+  }
+
+  /**
+   * Останавливает общий пул и пул {@link #submitChunked}: новые серии не принимаются,
+   * уже отправленные задачи доработают.
+   */
+  @Override
+  public void close() {
+    forkJoinPool.shutdown();
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(5, TimeUnit.MINUTES)) {
+        executor.shutdownNow();
+      }
+      if (!forkJoinPool.awaitTermination(5, TimeUnit.MINUTES)) {
+        forkJoinPool.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      forkJoinPool.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
   }
 
   /**
@@ -85,19 +341,40 @@ public class ComplexTaskExecutor {
   }
 
   /**
-   * Создаёт пул потоков для выполнения задач.
-   * Реальный размер пула ограничивается минимумом из:
-   * <ul>
-   *     <li>глобального параметра poolSize,</li>
-   *     <li>количества задач numberOfTasks.</li>
-   * </ul>
+   * Создаёт общий пул потоков.
+   * <p>
+   * poolSize потоков запускаются сразу и живут, пока исполнитель не закрыт. Задачи одной серии
+   * ждут друг друга на барьере, поэтому должны выполняться одновременно: если ставить их в
+   * очередь, серия, которой не хватило потоков, зависнет навсегда. Поэтому задачи не ставятся
+   * в очередь, а при нехватке свободных потоков пул временно создаёт дополнительные, которые
+   * завершаются после {@value #KEEP_ALIVE_SECONDS} секунд простоя.
+   *
+   * @return настроенный {@link ExecutorService}
+   */
+  private ExecutorService createExecutor() {
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, Integer.MAX_VALUE,
+        KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<>(), new WorkerThreadFactory());
+    pool.prestartAllCoreThreads();
+    return pool;
+  }
+
+  /**
+   * Создаёт исполнитель "виртуальный поток на задачу".
+   * <p>
+   * Метод {@code Executors.newVirtualThreadPerTaskExecutor()} появился в Java 21, а проект
+   * собирается под Java 17, поэтому он вызывается через reflection.
    *
-   * @param numberOfTasks количество задач в текущем запуске
-   * @return настроенный {@link ExecutorService} с фиксированным числом потоков
+   * @return исполнитель, запускающий каждую задачу в новом виртуальном потоке
+   * @throws UnsupportedOperationException если JVM не поддерживает виртуальные потоки
    */
-  private ExecutorService createExecutor(int numberOfTasks) {
-    int actualPoolSize = Math.min(poolSize, numberOfTasks);
-    return Executors.newFixedThreadPool(actualPoolSize);
+  private static ExecutorService createVirtualExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (NoSuchMethodException e) {
+      throw new UnsupportedOperationException("Virtual threads require Java 21 or newer", e);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Cannot create virtual thread executor", e);
+    }
   }
 
   /**
@@ -108,60 +385,92 @@ public class ComplexTaskExecutor {
    *     <li>задаётся уникальный идентификатор taskId (0..numberOfTasks-1),</li>
    *     <li>формируются входные данные (в примере просто i+1),</li>
    *     <li>создаётся {@link ComplexTask},</li>
-   *     <li>задача отправляется на исполнение через {@link ExecutorService#submit(Runnable)}.</li>
+   *     <li>задача отправляется на исполнение через {@link ExecutorService#execute(Runnable)}
+   *         и по завершении отмечается в completion.</li>
    * </ul>
    *
    * @param numberOfTasks  общее количество задач
    * @param partialResults общий массив для записи частичных результатов
    * @param barrier        барьер, с которым синхронизируются задачи
-   * @param executor       пул потоков, в который отправляются задачи
+   * @param completion     счётчик незавершённых задач серии
    */
   private void submitTasks(int numberOfTasks,
       int[] partialResults,
       CyclicBarrier barrier,
-      ExecutorService executor) {
+      CountDownLatch completion) {
     for (int i = 0; i < numberOfTasks; i++) {
       int taskId = i;
       int inputData = i + 1;
-      ComplexTask task = new ComplexTask(taskId, inputData, partialResults, barrier);
-      executor.submit(task);
+      // Задача сама сообщает о начале и конце: создаётся она непосредственно перед отправкой.
+      ComplexTask task = new ComplexTask(taskId, inputData, partialResults, barrier, metrics);
+      try {
+        executor.execute(() -> {
+          try {
+            task.run();
+          } finally {
+            completion.countDown();
+          }
+        });
+      } catch (RuntimeException e) {
+        // Уже запущенные задачи этой серии не дождутся остальных на барьере.
+        barrier.reset();
+        throw new IllegalStateException("Executor is closed", e);
+      }
     }
   }
 
   /**
-   * Ожидает завершения всех задач в пуле потоков.
+   * Ожидает завершения всех задач серии.
    * <p>
-   * Использует {@link ExecutorService#awaitTermination(long, TimeUnit)} для ожидания
+   * Использует {@link CountDownLatch#await(long, TimeUnit)} для ожидания
    * в течение ограниченного времени. Если задачи не успели завершиться,
-   * выводит диагностическое сообщение.
+   * сообщает об этом в {@link ExecutorMetrics#batchTimedOut(int)}.
    *
-   * @param executor пул потоков, который был ранее закрыт методом {@link ExecutorService#shutdown()}
+   * @param numberOfTasks количество задач серии
+   * @param completion    счётчик незавершённых задач серии
+   * @return {@code true}, если все задачи серии завершились
    */
-  private void waitForCompletion(ExecutorService executor) {
+  private boolean waitForCompletion(int numberOfTasks, CountDownLatch completion) {
     try {
-      boolean finished = executor.awaitTermination(5, TimeUnit.MINUTES);
+      boolean finished = completion.await(5, TimeUnit.MINUTES);
       if (!finished) {
-        System.out.println(Thread.currentThread().getName() + " timeout while waiting for tasks to finish.");
+        metrics.batchTimedOut(numberOfTasks);
       }
+      return finished;
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
+      return false;
     }
   }
 
   /**
    * Объединяет все частичные результаты задач.
    * <p>
-   * В текущем примере просто суммирует все элементы массива и печатает итоговую сумму.
+   * В текущем примере просто суммирует все элементы массива и передаёт сумму в
+   * {@link ExecutorMetrics#batchCombined(int, long)}.
    * Вызывается как barrier-action в {@link CyclicBarrier}, то есть гарантированно
    * только после того, как все задачи записали свои результаты в массив.
    *
    * @param partialResults массив, содержащий результаты всех задач
    */
   private void combineResults(int[] partialResults) {
-    int sum = 0;
+    long sum = 0;
     for (int value : partialResults) {
       sum += value;
     }
-    System.out.println(Thread.currentThread().getName() + " barrier action: combined sum = " + sum);
+    metrics.batchCombined(partialResults.length, sum);
+  }
+
+  private static final class WorkerThreadFactory implements ThreadFactory {
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger(1);
+
+    private final int poolNumber = POOL_NUMBER.getAndIncrement();
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      return new Thread(runnable,
+          "complex-task-" + poolNumber + "-worker-" + threadNumber.getAndIncrement());
+    }
   }
-}
\ No newline at end of file
+}
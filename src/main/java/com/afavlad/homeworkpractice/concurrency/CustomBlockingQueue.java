@@ -1,11 +1,84 @@
 package com.afavlad.homeworkpractice.concurrency;
 
-public interface CustomBlockingQueue<T> {
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Ограниченная блокирующая очередь.
+ * <p>
+ * {@code null} в качестве элемента не допускается: {@code null} из {@link #dequeue()} означает,
+ * что очередь закрыта и все элементы уже выбраны. После {@link #close()} новые элементы не
+ * принимаются, а оставшиеся можно дочитать, поэтому рабочие потоки завершаются так:
+ * <pre>{@code
+ * Runnable task;
+ * while ((task = queue.dequeue()) != null) {
+ *   task.run();
+ * }
+ * }</pre>
+ */
+public interface CustomBlockingQueue<T> extends AutoCloseable {
+
+  /**
+   * Добавляет элемент, ожидая свободного места.
+   *
+   * @throws IllegalStateException если очередь закрыта (в том числе во время ожидания)
+   */
   void enqueue(T element) throws InterruptedException;
 
+  /**
+   * Забирает элемент, ожидая его появления.
+   *
+   * @return элемент или {@code null}, если очередь закрыта и пуста
+   */
   T dequeue() throws InterruptedException;
 
   int size();
 
+  /**
+   * Добавляет элемент, если есть место, не блокируясь.
+   *
+   * @return false, если очередь заполнена
+   * @throws IllegalStateException если очередь закрыта
+   */
+  boolean tryEnqueue(T element);
+
+  /**
+   * Добавляет элемент, ожидая свободного места не дольше timeout.
+   *
+   * @return false, если время ожидания истекло
+   * @throws IllegalStateException если очередь закрыта
+   */
+  boolean offer(T element, long timeout, TimeUnit unit) throws InterruptedException;
+
+  /**
+   * Забирает элемент, ожидая его не дольше timeout.
+   *
+   * @return элемент или {@code null}, если время истекло либо очередь закрыта и пуста
+   */
+  T poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+  /**
+   * Переносит в target до maxElements уже имеющихся элементов, не блокируясь.
+   *
+   * @return количество перенесённых элементов
+   */
+  int drainTo(Collection<? super T> target, int maxElements);
+
+  /**
+   * Добавляет все элементы по порядку, ожидая свободного места по мере необходимости.
+   * Реализации стараются добавлять как можно больше элементов за одно получение блокировки.
+   *
+   * @throws IllegalStateException если очередь закрыта до того, как добавлены все элементы
+   */
+  void enqueueAll(Collection<? extends T> elements) throws InterruptedException;
+
+  /**
+   * Закрывает очередь: новые элементы больше не принимаются, ожидающие производители получают
+   * {@link IllegalStateException}, а потребители дочитывают оставшееся и получают {@code null}.
+   */
+  @Override
+  void close();
+
+  boolean isClosed();
+
 }
@@ -1,25 +1,31 @@
 package com.afavlad.homeworkpractice.concurrency;
 
 import com.afavlad.homeworkpractice.concurrency.impl.CustomBlockingQueueImpl;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Example {
 
   public static void main(String[] args) {
     CustomBlockingQueue<Runnable> blockingQueue = new CustomBlockingQueueImpl<>(5);
+    List<Thread> workers = new ArrayList<>();
 
     for (int i = 1; i < 3; i++) {
       int workerId = i;
-      new Thread(() -> {
+      Thread worker = new Thread(() -> {
         try {
-          while (true) {
-            Runnable task = blockingQueue.dequeue();
+          Runnable task;
+          while ((task = blockingQueue.dequeue()) != null) {
             System.out.println("Worker " + workerId + " got task");
             task.run();
           }
+          System.out.println("Worker " + workerId + " stopped");
         } catch (InterruptedException e) {
           Thread.currentThread().interrupt();
         }
-      }).start();
+      });
+      workers.add(worker);
+      worker.start();
     }
 
     for (int i = 1; i < 11; i++) {
@@ -32,6 +38,16 @@ public class Example {
         Thread.currentThread().interrupt();
       }
     }
+
+    // Новые задачи больше не принимаются; воркеры дочитают очередь и завершатся.
+    blockingQueue.close();
+    try {
+      for (Thread worker : workers) {
+        worker.join();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
   }
 
 }
@@ -0,0 +1,19 @@
+package com.afavlad.homeworkpractice.concurrency;
+
+/**
+ * Способ, которым {@link ComplexTaskExecutor} выполняет задачи.
+ */
+public enum ExecutionMode {
+
+  /**
+   * Общий пул платформенных потоков: poolSize постоянных потоков плюс временные при нехватке.
+   */
+  PLATFORM,
+
+  /**
+   * Отдельный виртуальный поток на каждую задачу. Задачи, заблокированные в {@code sleep} или
+   * на барьере, не занимают платформенный поток, поэтому размер пула не важен.
+   * Требует JVM 21 или новее; байткод при этом остаётся под Java 17.
+   */
+  VIRTUAL
+}
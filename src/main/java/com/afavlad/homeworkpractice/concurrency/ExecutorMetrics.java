@@ -0,0 +1,73 @@
+package com.afavlad.homeworkpractice.concurrency;
+
+/**
+ * Приёмник событий {@link ComplexTaskExecutor} и {@link ComplexTask}.
+ * <p>
+ * Методы вызываются из рабочих потоков на каждой задаче, поэтому реализация должна быть
+ * потокобезопасной, не блокировать и не выделять память. Все методы по умолчанию ничего не
+ * делают. Длительности передаются в наносекундах.
+ */
+public interface ExecutorMetrics {
+
+  /**
+   * Реализация, которая ничего не записывает.
+   */
+  ExecutorMetrics NOOP = new ExecutorMetrics() {
+  };
+
+  /**
+   * Задача начала выполняться.
+   *
+   * @param queueWaitNanos сколько задача ждала от отправки в пул до начала выполнения
+   */
+  default void taskStarted(long queueWaitNanos) {
+  }
+
+  /**
+   * Задача закончила выполняться (успешно или с ошибкой).
+   *
+   * @param runNanos время выполнения задачи
+   */
+  default void taskFinished(long runNanos) {
+  }
+
+  /**
+   * Задача прошла барьер серии.
+   *
+   * @param waitNanos сколько задача ждала остальных на барьере
+   */
+  default void barrierPassed(long waitNanos) {
+  }
+
+  /**
+   * Барьер серии сломан: задача не дождалась остальных.
+   */
+  default void barrierBroken() {
+  }
+
+  /**
+   * Серия закончилась.
+   *
+   * @param numberOfTasks количество задач серии
+   * @param makespanNanos время от отправки серии до завершения последней задачи
+   */
+  default void batchFinished(int numberOfTasks, long makespanNanos) {
+  }
+
+  /**
+   * Барьер серии {@link ComplexTaskExecutor#executeTasks(int)} объединил результаты задач.
+   *
+   * @param numberOfTasks  количество задач серии
+   * @param combinedResult сумма результатов задач
+   */
+  default void batchCombined(int numberOfTasks, long combinedResult) {
+  }
+
+  /**
+   * Серия не завершилась за отведённое время ожидания.
+   *
+   * @param numberOfTasks количество задач серии
+   */
+  default void batchTimedOut(int numberOfTasks) {
+  }
+}
@@ -0,0 +1,80 @@
+package com.afavlad.homeworkpractice.concurrency;
+
+import com.afavlad.homeworkpractice.metrics.LatencyHistogram;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Публикует {@link HistogramExecutorMetrics} в Micrometer.
+ * <p>
+ * Гистограммы не копируются в Micrometer на каждое событие: реестр читает их только при
+ * опросе, поэтому на запись метрик в рабочих потоках это не влияет. Для каждой гистограммы
+ * публикуются количество, среднее, p50, p99 и максимум в секундах.
+ */
+public class ExecutorMetricsBinder implements MeterBinder {
+
+  private static final String PREFIX = "complex.executor.";
+
+  private final ComplexTaskExecutor executor;
+  private final HistogramExecutorMetrics metrics;
+
+  /**
+   * @param executor исполнитель, метрики которого собирает {@code metrics}
+   * @param metrics  метрики исполнителя
+   */
+  public ExecutorMetricsBinder(ComplexTaskExecutor executor, HistogramExecutorMetrics metrics) {
+    this.executor = executor;
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    bindHistogram(registry, "queue.wait", "Time from submission to task start", metrics.getQueueWait());
+    bindHistogram(registry, "task.run", "Task run time", metrics.getTaskRun());
+    bindHistogram(registry, "barrier.wait", "Time spent waiting on the batch barrier", metrics.getBarrierWait());
+    bindHistogram(registry, "batch.makespan", "Time from batch submission to completion", metrics.getBatchMakespan());
+
+    Gauge.builder(PREFIX + "tasks.active", metrics, HistogramExecutorMetrics::getActiveTasks)
+        .description("Tasks running right now")
+        .register(registry);
+    Gauge.builder(PREFIX + "pool.utilization", metrics,
+            m -> (double) m.getActiveTasks() / executor.getPoolSize())
+        .description("Running tasks divided by the pool size")
+        .register(registry);
+    FunctionCounter.builder(PREFIX + "busy", metrics,
+            m -> (double) m.getBusyNanos() / TimeUnit.SECONDS.toNanos(1))
+        .description("Total task run time")
+        .baseUnit("seconds")
+        .register(registry);
+    FunctionCounter.builder(PREFIX + "tasks.completed", metrics, HistogramExecutorMetrics::getCompletedTasks)
+        .register(registry);
+    FunctionCounter.builder(PREFIX + "barrier.broken", metrics, HistogramExecutorMetrics::getBrokenBarriers)
+        .register(registry);
+    FunctionCounter.builder(PREFIX + "batch.timeout", metrics, HistogramExecutorMetrics::getTimedOutBatches)
+        .description("Batches that did not finish within the wait timeout")
+        .register(registry);
+  }
+
+  private static void bindHistogram(MeterRegistry registry, String name, String description,
+      LatencyHistogram histogram) {
+    FunctionCounter.builder(PREFIX + name + ".count", histogram, LatencyHistogram::getCount)
+        .description(description)
+        .register(registry);
+    bindSeconds(registry, name + ".mean", description, histogram, LatencyHistogram::getMeanNanos);
+    bindSeconds(registry, name + ".p50", description, histogram, h -> h.getValueAtPercentile(50));
+    bindSeconds(registry, name + ".p99", description, histogram, h -> h.getValueAtPercentile(99));
+    bindSeconds(registry, name + ".max", description, histogram, LatencyHistogram::getMaxNanos);
+  }
+
+  private static void bindSeconds(MeterRegistry registry, String name, String description,
+      LatencyHistogram histogram, ToDoubleFunction<LatencyHistogram> nanos) {
+    Gauge.builder(PREFIX + name, histogram, h -> nanos.applyAsDouble(h) / TimeUnit.SECONDS.toNanos(1))
+        .description(description)
+        .baseUnit("seconds")
+        .register(registry);
+  }
+}
@@ -0,0 +1,123 @@
+package com.afavlad.homeworkpractice.concurrency;
+
+import com.afavlad.homeworkpractice.metrics.LatencyHistogram;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Реализация {@link ExecutorMetrics} по умолчанию: гистограммы {@link LatencyHistogram} и
+ * счётчики {@link LongAdder}. Запись события — несколько атомарных инкрементов без выделения
+ * памяти и без блокировок.
+ */
+public final class HistogramExecutorMetrics implements ExecutorMetrics {
+
+  private final LatencyHistogram queueWait = new LatencyHistogram();
+  private final LatencyHistogram taskRun = new LatencyHistogram();
+  private final LatencyHistogram barrierWait = new LatencyHistogram();
+  private final LatencyHistogram batchMakespan = new LatencyHistogram();
+  private final LongAdder activeTasks = new LongAdder();
+  private final LongAdder busyNanos = new LongAdder();
+  private final LongAdder brokenBarriers = new LongAdder();
+  private final LongAdder completedTasks = new LongAdder();
+  private final LongAdder timedOutBatches = new LongAdder();
+  private volatile long lastCombinedResult;
+
+  @Override
+  public void taskStarted(long queueWaitNanos) {
+    activeTasks.increment();
+    queueWait.record(queueWaitNanos);
+  }
+
+  @Override
+  public void taskFinished(long runNanos) {
+    activeTasks.decrement();
+    completedTasks.increment();
+    busyNanos.add(runNanos);
+    taskRun.record(runNanos);
+  }
+
+  @Override
+  public void barrierPassed(long waitNanos) {
+    barrierWait.record(waitNanos);
+  }
+
+  @Override
+  public void barrierBroken() {
+    brokenBarriers.increment();
+  }
+
+  @Override
+  public void batchFinished(int numberOfTasks, long makespanNanos) {
+    batchMakespan.record(makespanNanos);
+  }
+
+  @Override
+  public void batchCombined(int numberOfTasks, long combinedResult) {
+    lastCombinedResult = combinedResult;
+  }
+
+  @Override
+  public void batchTimedOut(int numberOfTasks) {
+    timedOutBatches.increment();
+  }
+
+  public LatencyHistogram getQueueWait() {
+    return queueWait;
+  }
+
+  public LatencyHistogram getTaskRun() {
+    return taskRun;
+  }
+
+  public LatencyHistogram getBarrierWait() {
+    return barrierWait;
+  }
+
+  public LatencyHistogram getBatchMakespan() {
+    return batchMakespan;
+  }
+
+  /**
+   * @return сколько задач выполняется прямо сейчас
+   */
+  public long getActiveTasks() {
+    return activeTasks.sum();
+  }
+
+  /**
+   * @return суммарное время выполнения задач; его прирост, делённый на прошедшее время и
+   *     размер пула, даёт загрузку пула
+   */
+  public long getBusyNanos() {
+    return busyNanos.sum();
+  }
+
+  public long getCompletedTasks() {
+    return completedTasks.sum();
+  }
+
+  public long getBrokenBarriers() {
+    return brokenBarriers.sum();
+  }
+
+  public long getTimedOutBatches() {
+    return timedOutBatches.sum();
+  }
+
+  /**
+   * @return объединённый результат последней серии, прошедшей барьер
+   */
+  public long getLastCombinedResult() {
+    return lastCombinedResult;
+  }
+
+  @Override
+  public String toString() {
+    return "queueWait: " + queueWait
+        + "\ntaskRun: " + taskRun
+        + "\nbarrierWait: " + barrierWait
+        + "\nbatchMakespan: " + batchMakespan
+        + "\ncompletedTasks=" + getCompletedTasks() + ", brokenBarriers=" + getBrokenBarriers()
+        + ", timedOutBatches=" + getTimedOutBatches()
+        + ", lastCombinedResult=" + getLastCombinedResult();
+  }
+}
@@ -0,0 +1,247 @@
+package com.afavlad.homeworkpractice.concurrency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Многофазное вычисление на долгоживущих задачах-участниках.
+ * <p>
+ * В отличие от {@link ComplexTaskExecutor#executeTasks(int)}, где каждый вызов строит одноразовый
+ * {@link java.util.concurrent.CyclicBarrier}, здесь участники живут всё вычисление и проходят
+ * фазы на одном переиспользуемом {@link Phaser}:
+ * <ol>
+ *     <li>каждый участник вычисляет частичный результат текущей фазы,</li>
+ *     <li>последний пришедший участник выполняет {@link Combiner} над результатами фазы,</li>
+ *     <li>если combiner вернул {@code false} (например, вычисление сошлось), достигнут лимит
+ *         фаз или не осталось участников, вычисление завершается, иначе начинается следующая
+ *         фаза.</li>
+ * </ol>
+ * Участников можно добавлять ({@link #register(Worker)}) и снимать ({@link Registration#deregister()})
+ * во время работы. Фаза 0 начинается только после {@link #start()}, поэтому все участники,
+ * зарегистрированные до старта, гарантированно в ней участвуют. Как и у {@link Phaser},
+ * участников может быть не больше 65535.
+ *
+ * @param <R> тип частичного результата участника
+ */
+public class PhasedComputation<R> {
+
+  /**
+   * Участник вычисления.
+   *
+   * @param <R> тип частичного результата
+   */
+  @FunctionalInterface
+  public interface Worker<R> {
+
+    /**
+     * Вычисляет частичный результат одной фазы.
+     *
+     * @param phase номер фазы, начиная с 0
+     * @return частичный результат (может быть {@code null})
+     * @throws Exception если вычисление не удалось; вычисление целиком завершится с ошибкой
+     */
+    R compute(int phase) throws Exception;
+  }
+
+  /**
+   * Шаг объединения, выполняемый после каждой фазы.
+   *
+   * @param <R> тип частичного результата
+   */
+  @FunctionalInterface
+  public interface Combiner<R> {
+
+    /**
+     * Объединяет результаты фазы. Вызывается, когда все участники фазы закончили, и до начала
+     * следующей фазы, поэтому может безопасно менять общее состояние участников. Регистрировать
+     * новых участников отсюда нельзя.
+     *
+     * @param phase    номер завершившейся фазы
+     * @param partials частичные результаты участников в порядке их прихода
+     * @return {@code true}, чтобы продолжить, {@code false}, чтобы завершить вычисление
+     */
+    boolean combine(int phase, List<R> partials);
+  }
+
+  /**
+   * Регистрация участника, позволяющая снять его с вычисления.
+   */
+  public static final class Registration {
+    private volatile boolean deregistered;
+
+    private Registration() {
+    }
+
+    /**
+     * Снимает участника: он закончит текущую фазу и больше не будет вызываться.
+     */
+    public void deregister() {
+      deregistered = true;
+    }
+  }
+
+  private final Executor executor;
+  private final int maxPhases;
+  private final Combiner<R> combiner;
+  private final List<R> partials = new ArrayList<>();
+  private final CompletableFuture<Integer> completion = new CompletableFuture<>();
+  private final Phaser phaser;
+  private volatile boolean started;
+  private volatile int completedPhases;
+  private volatile Throwable failure;
+
+  /**
+   * @param executor  исполнитель участников; каждый участник занимает поток на всё вычисление,
+   *                  поэтому исполнитель не должен ставить задачи в ограниченную очередь
+   * @param maxPhases максимальное количество фаз
+   * @param combiner  шаг объединения после каждой фазы
+   */
+  public PhasedComputation(Executor executor, int maxPhases, Combiner<R> combiner) {
+    if (executor == null || combiner == null) {
+      throw new IllegalArgumentException("Executor and combiner must not be null");
+    }
+    if (maxPhases <= 0) {
+      throw new IllegalArgumentException("Max phases must be greater than zero");
+    }
+    this.executor = executor;
+    this.maxPhases = maxPhases;
+    this.combiner = combiner;
+    // Сам объект — участник фазы 0 до вызова start(): без него фаза могла бы завершиться
+    // раньше, чем зарегистрированы все участники.
+    this.phaser = new Phaser(1) {
+      @Override
+      protected boolean onAdvance(int phase, int registeredParties) {
+        return advance(phase, registeredParties);
+      }
+    };
+  }
+
+  /**
+   * Добавляет участника. До {@link #start()} участник начнёт с фазы 0, во время работы —
+   * с текущей фазы.
+   *
+   * @param worker участник
+   * @return регистрация для снятия участника
+   * @throws IllegalStateException если вычисление уже завершено или исполнитель не принял задачу
+   */
+  public Registration register(Worker<R> worker) {
+    if (worker == null) {
+      throw new IllegalArgumentException("Worker must not be null");
+    }
+    int phase = phaser.register();
+    if (phase < 0) {
+      throw new IllegalStateException("Computation is finished");
+    }
+    Registration registration = new Registration();
+    try {
+      executor.execute(() -> runWorker(worker, registration, phase));
+    } catch (RejectedExecutionException e) {
+      phaser.arriveAndDeregister();
+      throw new IllegalStateException("Executor rejected worker", e);
+    }
+    return registration;
+  }
+
+  /**
+   * Запускает фазу 0.
+   *
+   * @return future, завершающийся количеством выполненных фаз или ошибкой участника/combiner-а
+   * @throws IllegalStateException если вычисление уже запущено
+   */
+  public synchronized CompletableFuture<Integer> start() {
+    if (started) {
+      throw new IllegalStateException("Computation is already started");
+    }
+    started = true;
+    phaser.arriveAndDeregister();
+    finishIfTerminated();
+    return completion;
+  }
+
+  /**
+   * Досрочно завершает вычисление: участники не начнут новых фаз.
+   */
+  public void stop() {
+    phaser.forceTermination();
+    finishIfTerminated();
+  }
+
+  /**
+   * @return future, завершающийся количеством выполненных фаз
+   */
+  public CompletableFuture<Integer> getCompletion() {
+    return completion;
+  }
+
+  /**
+   * @return текущая фаза или отрицательное число, если вычисление завершено
+   */
+  public int getPhase() {
+    return phaser.getPhase();
+  }
+
+  /**
+   * @return количество зарегистрированных участников
+   */
+  public int getRegisteredWorkers() {
+    return started ? phaser.getRegisteredParties() : phaser.getRegisteredParties() - 1;
+  }
+
+  private void runWorker(Worker<R> worker, Registration registration, int firstPhase) {
+    int phase = firstPhase;
+    try {
+      while (phase >= 0) {
+        R partial = worker.compute(phase);
+        synchronized (partials) {
+          partials.add(partial);
+        }
+        if (registration.deregistered) {
+          phaser.arriveAndDeregister();
+          break;
+        }
+        phase = phaser.arriveAndAwaitAdvance();
+      }
+    } catch (Throwable e) {
+      failure = e;
+      phaser.forceTermination();
+    }
+    finishIfTerminated();
+  }
+
+  private boolean advance(int phase, int registeredParties) {
+    List<R> results;
+    synchronized (partials) {
+      results = new ArrayList<>(partials);
+      partials.clear();
+    }
+    if (registeredParties == 0 && results.isEmpty()) {
+      // start() без участников: объединять нечего.
+      return true;
+    }
+    boolean proceed;
+    try {
+      proceed = combiner.combine(phase, results);
+    } catch (Throwable e) {
+      failure = e;
+      return true;
+    }
+    completedPhases = phase + 1;
+    return !proceed || completedPhases >= maxPhases || registeredParties == 0;
+  }
+
+  private void finishIfTerminated() {
+    if (!phaser.isTerminated()) {
+      return;
+    }
+    Throwable error = failure;
+    if (error != null) {
+      completion.completeExceptionally(error);
+    } else {
+      completion.complete(completedPhases);
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package com.afavlad.homeworkpractice.concurrency;
+
+import java.util.List;
+
+/**
+ * Пример {@link PhasedComputation}: итерационное решение уравнения теплопроводности на отрезке.
+ * <p>
+ * Концы отрезка держат температуры 0 и 100, внутренние точки пересчитываются как среднее
+ * соседей (метод Якоби). Каждый участник обновляет свой кусок массива, combiner меняет
+ * местами старый и новый массивы и останавливает вычисление, когда изменение за фазу стало
+ * меньше EPSILON. На фазе 1000 к вычислению подключается участник-наблюдатель, а на фазе 2000
+ * он снимается.
+ */
+public class PhasedComputationExample {
+
+  private static final int POINTS = 256;
+  private static final int WORKERS = 4;
+  private static final int MAX_PHASES = 1_000_000;
+  private static final double EPSILON = 1e-6;
+
+  private static double[] current = new double[POINTS];
+  private static double[] next = new double[POINTS];
+  private static volatile PhasedComputation.Registration observer;
+
+  public static void main(String[] args) {
+    current[POINTS - 1] = 100;
+    next[POINTS - 1] = 100;
+
+    try (ComplexTaskExecutor executor = new ComplexTaskExecutor(WORKERS)) {
+      PhasedComputation<Double> computation = executor.newPhasedComputation(MAX_PHASES, (phase, deltas) -> {
+        double[] swap = current;
+        current = next;
+        next = swap;
+        if (phase == 2000 && observer != null) {
+          observer.deregister();
+        }
+        return max(deltas) > EPSILON;
+      });
+
+      int chunk = (POINTS - 2) / WORKERS;
+      for (int w = 0; w < WORKERS; w++) {
+        int from = 1 + w * chunk;
+        int to = w == WORKERS - 1 ? POINTS - 1 : from + chunk;
+        computation.register(phase -> relax(from, to));
+      }
+
+      computation.start();
+      // Наблюдатель подключается к уже работающему вычислению.
+      while (computation.getPhase() >= 0 && computation.getPhase() < 1000) {
+        Thread.onSpinWait();
+      }
+      if (computation.getPhase() >= 0) {
+        observer = computation.register(phase -> {
+          if (phase % 500 == 0) {
+            System.out.println("phase " + phase + ": middle point = " + current[POINTS / 2]);
+          }
+          return 0.0;
+        });
+      }
+
+      int phases = computation.getCompletion().join();
+      System.out.println("Converged after " + phases + " phases, middle point = " + current[POINTS / 2]
+          + " (expected ~" + 100.0 * (POINTS / 2) / (POINTS - 1) + ")");
+    }
+  }
+
+  private static double relax(int from, int to) {
+    double maxDelta = 0;
+    for (int i = from; i < to; i++) {
+      double value = (current[i - 1] + current[i + 1]) / 2;
+      maxDelta = Math.max(maxDelta, Math.abs(value - current[i]));
+      next[i] = value;
+    }
+    return maxDelta;
+  }
+
+  private static double max(List<Double> values) {
+    double max = 0;
+    for (double value : values) {
+      max = Math.max(max, value);
+    }
+    return max;
+  }
+}
@@ -0,0 +1,73 @@
+package com.afavlad.homeworkpractice.concurrency;
+
+import com.afavlad.homeworkpractice.concurrency.impl.PriorityDeadlineBlockingQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Очередь с приоритетами под постоянным отставанием: фоновые задачи поступают быстрее, чем их
+ * успевают выполнять, а срочные всё равно проходят с небольшой задержкой.
+ */
+public class PriorityQueueExample {
+
+  private static final int URGENT = 0;
+  private static final int BULK = 1;
+
+  public static void main(String[] args) throws InterruptedException {
+    PriorityDeadlineBlockingQueue<PrioritizedTask> queue = new PriorityDeadlineBlockingQueue<>(
+        1_000, 2, PrioritizedTask::getPriority, 200, TimeUnit.MILLISECONDS);
+
+    List<Thread> workers = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      Thread worker = new Thread(() -> {
+        try {
+          PrioritizedTask task;
+          while ((task = queue.dequeue()) != null) {
+            task.run();
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      workers.add(worker);
+      worker.start();
+    }
+
+    for (int i = 0; i < 2_000; i++) {
+      queue.enqueue(new PrioritizedTask(BULK, 200_000));
+      if (i % 20 == 0) {
+        queue.enqueue(new PrioritizedTask(URGENT, 200_000));
+      }
+    }
+    queue.close();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+
+    System.out.println("Urgent wait: " + queue.getLatency(URGENT));
+    System.out.println("Bulk wait:   " + queue.getLatency(BULK));
+  }
+
+  private static final class PrioritizedTask implements Runnable {
+    private final int priority;
+    private final long workNanos;
+
+    private PrioritizedTask(int priority, long workNanos) {
+      this.priority = priority;
+      this.workNanos = workNanos;
+    }
+
+    int getPriority() {
+      return priority;
+    }
+
+    @Override
+    public void run() {
+      long end = System.nanoTime() + workNanos;
+      while (System.nanoTime() < end) {
+        Thread.onSpinWait();
+      }
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package com.afavlad.homeworkpractice.concurrency;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Преобразование элементов в байты и обратно для очередей, хранящих данные вне heap.
+ */
+public interface Serializer<T> {
+
+  byte[] serialize(T element);
+
+  T deserialize(byte[] bytes);
+
+  /**
+   * Элементы уже являются массивами байт и хранятся как есть.
+   */
+  static Serializer<byte[]> bytes() {
+    return new Serializer<>() {
+      @Override
+      public byte[] serialize(byte[] element) {
+        return element;
+      }
+
+      @Override
+      public byte[] deserialize(byte[] bytes) {
+        return bytes;
+      }
+    };
+  }
+
+  /**
+   * Строки в кодировке UTF-8.
+   */
+  static Serializer<String> utf8() {
+    return new Serializer<>() {
+      @Override
+      public byte[] serialize(String element) {
+        return element.getBytes(StandardCharsets.UTF_8);
+      }
+
+      @Override
+      public String deserialize(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+      }
+    };
+  }
+}
@@ -22,8 +22,11 @@ public class TestComplexTaskExecutor {
     try {
       thread1.join();
       thread2.join();
+      System.out.println(taskExecutor.getMetrics());
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
+    } finally {
+      taskExecutor.close();
     }
   }
 }
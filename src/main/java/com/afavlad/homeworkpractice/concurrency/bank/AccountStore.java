@@ -0,0 +1,84 @@
+package com.afavlad.homeworkpractice.concurrency.bank;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Хранилище счетов с доступом по id за O(1) и без глобальной блокировки.
+ * <p>
+ * Id выдаются подряд начиная с 1, поэтому счёт с id N лежит в ячейке N-1 двухуровневого массива:
+ * каталог из {@value #DIRECTORY_SIZE} сегментов по {@value #SEGMENT_SIZE} ячеек. Сегменты
+ * создаются по мере роста id и устанавливаются через CAS, ячейки публикуются через
+ * {@link AtomicReferenceArray}, поэтому параллельные {@link #put} не мешают друг другу.
+ */
+final class AccountStore {
+
+  private static final int SEGMENT_BITS = 16;
+  private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+  private static final int DIRECTORY_SIZE = 1 << 16;
+
+  private final AtomicReferenceArray<AtomicReferenceArray<BankAccount>> directory =
+      new AtomicReferenceArray<>(DIRECTORY_SIZE);
+
+  /**
+   * Регистрирует счёт в ячейке его id.
+   *
+   * @throws IllegalStateException если id вне диапазона хранилища
+   */
+  void put(BankAccount account) {
+    long index = indexOf(account.getId());
+    if (index < 0) {
+      throw new IllegalStateException("Account id is out of range: " + account.getId());
+    }
+    segment((int) (index >>> SEGMENT_BITS)).set((int) (index & (SEGMENT_SIZE - 1)), account);
+  }
+
+  /**
+   * @return счёт с указанным id или {@code null}, если такого нет
+   */
+  BankAccount get(long id) {
+    long index = indexOf(id);
+    if (index < 0) {
+      return null;
+    }
+    AtomicReferenceArray<BankAccount> segment = directory.get((int) (index >>> SEGMENT_BITS));
+    return segment == null ? null : segment.get((int) (index & (SEGMENT_SIZE - 1)));
+  }
+
+  /**
+   * Обходит все счета с id меньше {@code limitId} в порядке возрастания id.
+   */
+  void forEach(long limitId, Consumer<BankAccount> action) {
+    long limit = Math.min(limitId - 1, (long) DIRECTORY_SIZE * SEGMENT_SIZE);
+    for (int s = 0; (long) s * SEGMENT_SIZE < limit; s++) {
+      AtomicReferenceArray<BankAccount> segment = directory.get(s);
+      if (segment == null) {
+        continue;
+      }
+      int slots = (int) Math.min(SEGMENT_SIZE, limit - (long) s * SEGMENT_SIZE);
+      for (int i = 0; i < slots; i++) {
+        BankAccount account = segment.get(i);
+        if (account != null) {
+          action.accept(account);
+        }
+      }
+    }
+  }
+
+  private AtomicReferenceArray<BankAccount> segment(int number) {
+    AtomicReferenceArray<BankAccount> segment = directory.get(number);
+    if (segment == null) {
+      AtomicReferenceArray<BankAccount> created = new AtomicReferenceArray<>(SEGMENT_SIZE);
+      segment = directory.compareAndExchange(number, null, created);
+      if (segment == null) {
+        segment = created;
+      }
+    }
+    return segment;
+  }
+
+  private static long indexOf(long id) {
+    long index = id - 1;
+    return index >= 0 && index < (long) DIRECTORY_SIZE * SEGMENT_SIZE ? index : -1;
+  }
+}
@@ -0,0 +1,111 @@
+package com.afavlad.homeworkpractice.concurrency.bank;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Балансы счетов {@link ColumnarBank} в столбце {@code long[]}.
+ * <p>
+ * Id выдаются подряд с 1, поэтому отдельный столбец id не нужен: баланс счёта с id N лежит в
+ * ячейке N-1. Столбец разбит на сегменты по {@value #SEGMENT_SIZE} значений, которые создаются
+ * по мере роста id и устанавливаются через CAS, как в {@link AccountStore}. Ячейки меняются
+ * атомарно через {@link VarHandle}, без объектов и мониторов на каждый счёт.
+ */
+final class BalanceColumn {
+
+  private static final int SEGMENT_BITS = 20;
+  private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+  private static final int DIRECTORY_SIZE = 1 << 16;
+  private static final VarHandle BALANCES = MethodHandles.arrayElementVarHandle(long[].class);
+
+  private final AtomicReferenceArray<long[]> directory = new AtomicReferenceArray<>(DIRECTORY_SIZE);
+
+  /**
+   * Сколько балансов вмещает столбец.
+   */
+  static long capacity() {
+    return (long) DIRECTORY_SIZE * SEGMENT_SIZE;
+  }
+
+  long get(long index) {
+    return (long) BALANCES.getVolatile(segmentOf(index), offsetOf(index));
+  }
+
+  /**
+   * Атомарно прибавляет {@code delta} к балансу.
+   */
+  void add(long index, long delta) {
+    BALANCES.getAndAdd(segmentOf(index), offsetOf(index), delta);
+  }
+
+  /**
+   * Атомарно списывает {@code amount}, если баланс не станет отрицательным.
+   *
+   * @return {@code true}, если списание выполнено
+   */
+  boolean tryWithdraw(long index, long amount) {
+    long[] segment = segmentOf(index);
+    int offset = offsetOf(index);
+    long balance = (long) BALANCES.getVolatile(segment, offset);
+    while (balance >= amount) {
+      long witness = (long) BALANCES.compareAndExchange(segment, offset, balance, balance - amount);
+      if (witness == balance) {
+        return true;
+      }
+      balance = witness;
+    }
+    return false;
+  }
+
+  /**
+   * Сумма балансов с индексами меньше {@code limit}. Читает ячейки обычными чтениями, поэтому
+   * вызывающий должен исключить параллельные изменения и обеспечить их видимость.
+   * <p>
+   * Внутренний цикл идёт по сплошному {@code long[]} с четырьмя независимыми суммами: он не
+   * ждёт результата предыдущего сложения и векторизуется JIT-компилятором.
+   */
+  long sum(long limit) {
+    long total = 0;
+    for (int s = 0; (long) s * SEGMENT_SIZE < limit; s++) {
+      long[] segment = directory.get(s);
+      if (segment == null) {
+        continue;
+      }
+      int length = (int) Math.min(SEGMENT_SIZE, limit - (long) s * SEGMENT_SIZE);
+      long sum0 = 0;
+      long sum1 = 0;
+      long sum2 = 0;
+      long sum3 = 0;
+      int i = 0;
+      for (; i + 3 < length; i += 4) {
+        sum0 += segment[i];
+        sum1 += segment[i + 1];
+        sum2 += segment[i + 2];
+        sum3 += segment[i + 3];
+      }
+      for (; i < length; i++) {
+        sum0 += segment[i];
+      }
+      total += sum0 + sum1 + sum2 + sum3;
+    }
+    return total;
+  }
+
+  private long[] segmentOf(long index) {
+    int number = (int) (index >>> SEGMENT_BITS);
+    long[] segment = directory.get(number);
+    if (segment == null) {
+      long[] created = new long[SEGMENT_SIZE];
+      segment = directory.compareAndExchange(number, null, created);
+      if (segment == null) {
+        segment = created;
+      }
+    }
+    return segment;
+  }
+
+  private static int offsetOf(long index) {
+    return (int) (index & (SEGMENT_SIZE - 1));
+  }
+}
@@ -0,0 +1,188 @@
+package com.afavlad.homeworkpractice.concurrency.bank;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Двоичный снимок балансов {@link ConcurrentBank} в файле {@code snapshot-<сегмент>.bin}.
+ * <p>
+ * Формат: {@code [магия][эпоха][первый сегмент журнала]}, затем пары {@code [id][баланс]},
+ * нулевой id как признак конца и CRC32C всего предыдущего. Снимок пишется во временный файл и
+ * переименовывается атомарно после {@code force}, поэтому файл снимка либо полон, либо его нет.
+ * Эпоха и первый сегмент говорят, с какого места проигрывать журнал.
+ */
+final class BalanceSnapshotFile {
+
+  private static final int MAGIC = 0x42414E4B;
+  private static final String PREFIX = "snapshot-";
+  private static final String SUFFIX = ".bin";
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  /**
+   * Заголовок прочитанного снимка.
+   *
+   * @param epoch        эпоха снимка: в него вошли все изменения с меньшей эпохой
+   * @param firstSegment первый сегмент журнала, который нужно проиграть после снимка
+   */
+  record Header(long epoch, long firstSegment) {
+  }
+
+  /**
+   * Получатель счетов при чтении снимка.
+   */
+  interface Sink {
+
+    void account(long id, long balance) throws IOException;
+  }
+
+  private BalanceSnapshotFile() {
+  }
+
+  /**
+   * Открывает запись нового снимка. Снимок становится видимым только после
+   * {@link Writer#commit()}.
+   */
+  static Writer create(Path directory, long epoch, long firstSegment) throws IOException {
+    return new Writer(directory, epoch, firstSegment);
+  }
+
+  /**
+   * Читает последний снимок каталога и передаёт его счета в {@code sink}.
+   *
+   * @return заголовок снимка или {@code null}, если снимков нет
+   * @throws IOException если снимок повреждён
+   */
+  static Header readLatest(Path directory, Sink sink) throws IOException {
+    Path latest = null;
+    long latestSegment = -1;
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        String name = file.getFileName().toString();
+        if (name.startsWith(PREFIX) && name.endsWith(SUFFIX)) {
+          long segment = Long.parseLong(
+              name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+          if (segment > latestSegment) {
+            latestSegment = segment;
+            latest = file;
+          }
+        }
+      }
+    }
+    if (latest == null) {
+      return null;
+    }
+
+    CRC32C crc = new CRC32C();
+    try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+        new BufferedInputStream(Files.newInputStream(latest), 1 << 16), crc))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a balance snapshot: " + latest);
+      }
+      Header header = new Header(in.readLong(), in.readLong());
+      long id;
+      while ((id = in.readLong()) != 0) {
+        sink.account(id, in.readLong());
+      }
+      // CheckedInputStream стоит над буфером и видит только прочитанные байты.
+      long actual = crc.getValue();
+      if (in.readLong() != actual) {
+        throw new IOException("Balance snapshot checksum mismatch: " + latest);
+      }
+      return header;
+    }
+  }
+
+  private static Path path(Path directory, long firstSegment) {
+    return directory.resolve(String.format("%s%020d%s", PREFIX, firstSegment, SUFFIX));
+  }
+
+  /**
+   * Потоковая запись снимка.
+   */
+  static final class Writer implements AutoCloseable {
+
+    private final Path directory;
+    private final long firstSegment;
+    private final Path temp;
+    private final FileChannel channel;
+    private final CRC32C crc = new CRC32C();
+    private final DataOutputStream out;
+    private boolean committed;
+
+    private Writer(Path directory, long epoch, long firstSegment) throws IOException {
+      this.directory = directory;
+      this.firstSegment = firstSegment;
+      this.temp = directory.resolve(PREFIX + firstSegment + TEMP_SUFFIX);
+      this.channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+      this.out = new DataOutputStream(new CheckedOutputStream(
+          new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), crc));
+      out.writeInt(MAGIC);
+      out.writeLong(epoch);
+      out.writeLong(firstSegment);
+    }
+
+    /**
+     * Добавляет счёт. Вызывается из обхода хранилища, поэтому ошибки ввода-вывода
+     * непроверяемые.
+     *
+     * @throws UncheckedIOException если запись не удалась
+     */
+    void add(long id, long balance) {
+      try {
+        out.writeLong(id);
+        out.writeLong(balance);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    /**
+     * Дописывает конец снимка, сбрасывает его на диск и атомарно делает его последним
+     * снимком каталога; более старые снимки удаляются.
+     */
+    void commit() throws IOException {
+      out.writeLong(0);
+      out.writeLong(crc.getValue());
+      out.flush();
+      channel.force(true);
+      out.close();
+      Files.move(temp, path(directory, firstSegment), StandardCopyOption.ATOMIC_MOVE);
+      BankJournal.syncDirectory(directory);
+      committed = true;
+      try (Stream<Path> files = Files.list(directory)) {
+        for (Path file : (Iterable<Path>) files::iterator) {
+          String name = file.getFileName().toString();
+          if (name.startsWith(PREFIX) && !file.equals(path(directory, firstSegment))) {
+            Files.deleteIfExists(file);
+          }
+        }
+      }
+    }
+
+    /**
+     * Удаляет незавершённый снимок.
+     */
+    @Override
+    public void close() throws IOException {
+      if (!committed) {
+        out.close();
+        Files.deleteIfExists(temp);
+      }
+    }
+  }
+}
@@ -2,15 +2,50 @@ package com.afavlad.homeworkpractice.concurrency.bank;
 
 public class BankAccount {
 
+  /**
+   * Эпоха ещё не опубликованного счёта: он не входит ни в один снимок.
+   */
+  private static final long UNPUBLISHED = Long.MAX_VALUE;
+
   private final long id;
+  private final SnapshotEpoch epochs;
+  /**
+   * Журнал долговечного банка; {@code null} у счёта в памяти.
+   */
+  private final BankJournal journal;
   private long balance;
+  /**
+   * Эпоха последнего изменения баланса.
+   */
+  private long version;
+  /**
+   * Баланс на начало эпохи {@link #version}.
+   */
+  private long snapshotBalance;
+  /**
+   * Эпоха публикации счёта в банке.
+   */
+  private long createdEpoch = UNPUBLISHED;
 
   public BankAccount(long id, long initialBalance) {
+    this(id, initialBalance, SnapshotEpoch.NONE, null);
+    this.version = SnapshotEpoch.NONE.current();
+  }
+
+  /**
+   * Создаёт счёт банка. Счёт не входит в снимки, пока не вызван {@link #publish()}.
+   *
+   * @param journal журнал, в который пишутся пополнения и снятия, или {@code null}
+   */
+  BankAccount(long id, long initialBalance, SnapshotEpoch epochs, BankJournal journal) {
     if (initialBalance < 0) {
       throw new IllegalArgumentException("Initial balance must be >= 0");
     }
     this.id = id;
+    this.epochs = epochs;
+    this.journal = journal;
     this.balance = initialBalance;
+    this.version = UNPUBLISHED;
   }
 
   /**
@@ -21,29 +56,70 @@ public class BankAccount {
   }
 
   /**
-   * Потокобезопасное пополнение счёта.
+   * Потокобезопасное пополнение счёта. У счёта долговечного банка пополнение записывается в
+   * журнал, и метод возвращается после сброса записи на диск.
    *
    * @param amount сумма пополнения, должна быть > 0
+   * @throws java.io.UncheckedIOException если журнал не удалось записать
+   */
+  public void deposit(long amount) {
+    long ticket;
+    synchronized (this) {
+      long epoch = epochs.current();
+      deposit(amount, epoch);
+      if (journal == null) {
+        return;
+      }
+      ticket = journal.appendAdjust(epoch, id, amount);
+    }
+    journal.awaitDurable(ticket);
+  }
+
+  /**
+   * Пополнение в заданной эпохе. Вызывающий должен держать монитор счёта и прочитать эпоху
+   * под ним; перевод читает её один раз для обоих счетов.
    */
-  public synchronized void deposit(long amount) {
+  synchronized void deposit(long amount, long epoch) {
     if (amount <= 0) {
       throw new IllegalArgumentException("Deposit amount must be > 0");
     }
+    beforeUpdate(epoch);
     balance += amount;
   }
 
   /**
-   * Потокобезопасное снятие средств.
+   * Потокобезопасное снятие средств. Журналируется так же, как {@link #deposit(long)}.
    *
    * @param amount сумма снятия, должна быть > 0
    * @return true, если средств хватило и операция прошла успешно;
    *         false, если средств недостаточно (баланс не изменён).
+   * @throws java.io.UncheckedIOException если журнал не удалось записать
    */
-  public synchronized boolean withdraw(long amount) {
+  public boolean withdraw(long amount) {
+    long ticket;
+    synchronized (this) {
+      long epoch = epochs.current();
+      if (!withdraw(amount, epoch)) {
+        return false;
+      }
+      if (journal == null) {
+        return true;
+      }
+      ticket = journal.appendAdjust(epoch, id, -amount);
+    }
+    journal.awaitDurable(ticket);
+    return true;
+  }
+
+  /**
+   * Снятие в заданной эпохе, см. {@link #deposit(long, long)}.
+   */
+  synchronized boolean withdraw(long amount, long epoch) {
     if (amount <= 0) {
       throw new IllegalArgumentException("Withdraw amount must be > 0");
     }
     if (balance >= amount) {
+      beforeUpdate(epoch);
       balance -= amount;
       return true;
     }
@@ -57,6 +133,63 @@ public class BankAccount {
     return balance;
   }
 
+  /**
+   * Баланс без повторного входа в монитор: вызывающий уже должен его держать.
+   */
+  long getBalanceLocked() {
+    return balance;
+  }
+
+  /**
+   * Изменяет баланс на delta в заданной эпохе. Как и {@link #getBalanceLocked()}, не входит в
+   * монитор: пакет переводов держит мониторы сотен счетов, и повторный вход в каждый заметно
+   * дороже самого изменения.
+   *
+   * @throws IllegalStateException если баланс стал бы отрицательным
+   */
+  void adjustLocked(long delta, long epoch) {
+    if (balance + delta < 0) {
+      throw new IllegalStateException("Balance would become negative: " + this + ", delta=" + delta);
+    }
+    beforeUpdate(epoch);
+    balance += delta;
+  }
+
+  /**
+   * Делает счёт видимым для снимков, начатых после этого вызова. Вызывается банком после
+   * регистрации счёта в хранилище.
+   *
+   * @return эпоха публикации
+   */
+  synchronized long publish() {
+    version = epochs.current();
+    createdEpoch = version;
+    return version;
+  }
+
+  /**
+   * Баланс на начало эпохи снимка {@code epoch}. Снимок должен быть единственным в этой эпохе
+   * и начаться (увеличить эпоху) до чтения первого счёта.
+   */
+  synchronized long getBalanceAt(long epoch) {
+    return version >= epoch ? snapshotBalance : balance;
+  }
+
+  /**
+   * Существовал ли счёт на начало эпохи снимка {@code epoch}; условия те же, что у
+   * {@link #getBalanceAt(long)}.
+   */
+  synchronized boolean existedAt(long epoch) {
+    return createdEpoch < epoch;
+  }
+
+  private void beforeUpdate(long epoch) {
+    if (version != epoch) {
+      snapshotBalance = balance;
+      version = epoch;
+    }
+  }
+
   @Override
   public String toString() {
     return "BankAccount{id=" + id + ", balance=" + balance + '}';
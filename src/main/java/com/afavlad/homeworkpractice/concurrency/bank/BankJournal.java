@@ -0,0 +1,465 @@
+package com.afavlad.homeworkpractice.concurrency.bank;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал упреждающей записи для {@link ConcurrentBank}.
+ * <p>
+ * Журнал состоит из файлов-сегментов {@code journal-<номер>.log}, в которые только дописываются
+ * записи {@code [длина тела][CRC32C тела][тип][эпоха][данные]}. Запись добавляется в буфер в
+ * памяти под мониторами изменённых счетов, поэтому порядок записей одного счёта в журнале
+ * совпадает с порядком изменений, а любой сохранённый префикс журнала — согласованная история.
+ * <p>
+ * Сброс на диск групповой: поток, ждущий своей записи в {@link #awaitDurable(long)}, становится
+ * ведущим, забирает весь накопленный буфер, пишет его и вызывает один
+ * {@link FileChannel#force(boolean)}. Пока он ждёт диск, остальные потоки копят записи в
+ * другом буфере, и следующий ведущий сбросит их все одним {@code force}. Чем больше потоков ждёт
+ * диск, тем больше переводов приходится на один сброс.
+ * <p>
+ * {@link #roll()} закрывает текущий сегмент и начинает следующий; на этом строятся снимки
+ * банка: все записи в сегментах до снимка попадают в него, и эти сегменты можно удалить.
+ */
+final class BankJournal implements AutoCloseable {
+
+  static final byte CREATE = 1;
+  static final byte TRANSFER = 2;
+  static final byte DELTAS = 3;
+
+  private static final int HEADER_SIZE = Integer.BYTES * 2;
+  private static final int MAX_BODY_SIZE = 64 * 1024;
+  private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+  private static final String SEGMENT_PREFIX = "journal-";
+  private static final String SEGMENT_SUFFIX = ".log";
+
+  /**
+   * Получатель записей при проигрывании журнала.
+   */
+  interface Replay {
+
+    void create(long epoch, long id, long balance) throws IOException;
+
+    void adjust(long epoch, long id, long delta) throws IOException;
+  }
+
+  private final Path directory;
+  private final ReentrantLock lock = new ReentrantLock();
+  /**
+   * Условия завершения сбросов, чередующиеся по чётности номера сброса: ждущие текущего сброса
+   * и ждущие следующего спят на разных условиях, поэтому завершение сброса будит только тех,
+   * чьи записи уже на диске, и одного будущего ведущего.
+   */
+  private final Condition[] flushed = {lock.newCondition(), lock.newCondition()};
+  private final CRC32C checksum = new CRC32C();
+
+  private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+  private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+  private FileChannel channel;
+  private long segment;
+  /**
+   * Сколько байт дописано за всё время; служит номером записи для {@link #awaitDurable(long)}.
+   */
+  private long appended;
+  private long durable;
+  private boolean flushing;
+  private long flushNumber;
+  private long flushTarget;
+  private IOException failure;
+  private boolean closed;
+
+  /**
+   * Открывает журнал в каталоге. Запись всегда начинается в новом сегменте после последнего
+   * существующего, поэтому старые сегменты остаются нетронутыми для восстановления.
+   */
+  BankJournal(Path directory) throws IOException {
+    this.directory = directory;
+    Files.createDirectories(directory);
+    List<Long> segments = listSegments(directory);
+    segment = segments.isEmpty() ? 0 : segments.get(segments.size() - 1) + 1;
+    channel = openSegment(segment);
+  }
+
+  /**
+   * Номер сегмента, в который сейчас идёт запись.
+   */
+  long segment() {
+    lock.lock();
+    try {
+      return segment;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  long appendCreate(long epoch, long id, long balance) {
+    lock.lock();
+    try {
+      int start = begin(CREATE, epoch, Long.BYTES * 2);
+      pending.putLong(id).putLong(balance);
+      return end(start);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  long appendTransfer(long epoch, long fromId, long toId, long amount) {
+    lock.lock();
+    try {
+      int start = begin(TRANSFER, epoch, Long.BYTES * 3);
+      pending.putLong(fromId).putLong(toId).putLong(amount);
+      return end(start);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Записывает изменение баланса одного счёта (пополнение или снятие) как запись
+   * {@link #DELTAS} из одного элемента.
+   */
+  long appendAdjust(long epoch, long id, long delta) {
+    lock.lock();
+    try {
+      int start = begin(DELTAS, epoch, Integer.BYTES + Long.BYTES * 2);
+      pending.putInt(1).putLong(id).putLong(delta);
+      return end(start);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Записывает итоговые изменения балансов группы пакетных переводов.
+   */
+  long appendDeltas(long epoch, long[] ids, long[] deltas, int count) {
+    lock.lock();
+    try {
+      int start = begin(DELTAS, epoch, Integer.BYTES + count * Long.BYTES * 2);
+      pending.putInt(count);
+      for (int i = 0; i < count; i++) {
+        pending.putLong(ids[i]).putLong(deltas[i]);
+      }
+      return end(start);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Ждёт, пока запись с номером {@code ticket} (и все записи до неё) окажется на диске, при
+   * необходимости выполняя групповой сброс самостоятельно. Не прерывается: к этому моменту
+   * операция уже применена в памяти.
+   *
+   * @throws UncheckedIOException если запись на диск не удалась; после этого журнал не
+   *                              принимает записей
+   */
+  void awaitDurable(long ticket) {
+    lock.lock();
+    try {
+      while (durable < ticket) {
+        checkFailure();
+        if (!flushing) {
+          flush();
+        } else if (ticket <= flushTarget) {
+          flushed(flushNumber).awaitUninterruptibly();
+        } else {
+          flushed(flushNumber + 1).awaitUninterruptibly();
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Сбрасывает накопленные записи в текущий сегмент и начинает следующий.
+   *
+   * @return номер нового сегмента; все записи, добавленные до вызова, лежат в сегментах с
+   *         меньшими номерами и уже на диске
+   */
+  long roll() throws IOException {
+    lock.lock();
+    try {
+      long target = appended;
+      // Ждём и сброса, начатого после нашей записи: он тоже пишет в текущий канал.
+      while (durable < target || flushing) {
+        checkFailure();
+        if (flushing) {
+          flushed(flushNumber).awaitUninterruptibly();
+        } else {
+          flush();
+        }
+      }
+      checkFailure();
+      // Новые записи не сбрасываются, пока держим lock: старый канал можно закрыть.
+      channel.close();
+      segment++;
+      channel = openSegment(segment);
+      return segment;
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Удаляет сегменты с номерами меньше {@code firstKept}.
+   */
+  void deleteSegmentsBefore(long firstKept) throws IOException {
+    for (long old : listSegments(directory)) {
+      if (old < firstKept) {
+        Files.deleteIfExists(segmentPath(directory, old));
+      }
+    }
+  }
+
+  /**
+   * Сбрасывает оставшиеся записи и закрывает текущий сегмент.
+   */
+  @Override
+  public void close() throws IOException {
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      long target = appended;
+      while ((durable < target || flushing) && failure == null) {
+        if (flushing) {
+          flushed(flushNumber).awaitUninterruptibly();
+        } else {
+          flush();
+        }
+      }
+      closed = true;
+      channel.close();
+      if (failure != null) {
+        throw failure;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Проигрывает записи сегментов с номерами от {@code firstSegment} до {@code endSegment}
+   * (не включая). Недописанная при сбое запись в конце последнего непустого сегмента
+   * отрезается; повреждение в середине журнала считается ошибкой.
+   *
+   * @throws IOException если журнал повреждён
+   */
+  static void replay(Path directory, long firstSegment, long endSegment, Replay replay)
+      throws IOException {
+    List<Long> segments = new ArrayList<>();
+    for (long existing : listSegments(directory)) {
+      if (existing >= firstSegment && existing < endSegment) {
+        segments.add(existing);
+      }
+    }
+    for (int i = 0; i < segments.size(); i++) {
+      Path path = segmentPath(directory, segments.get(i));
+      long valid = replaySegment(path, replay);
+      if (valid < Files.size(path)) {
+        // Сбой мог случиться и после открытия пустого следующего сегмента.
+        for (int later = i + 1; later < segments.size(); later++) {
+          if (Files.size(segmentPath(directory, segments.get(later))) > 0) {
+            throw new IOException("Corrupted journal segment " + path + " at offset " + valid);
+          }
+        }
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.WRITE)) {
+          file.truncate(valid);
+          file.force(true);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return длина корректной части сегмента
+   */
+  private static long replaySegment(Path path, Replay replay) throws IOException {
+    CRC32C crc = new CRC32C();
+    long valid = 0;
+    try (InputStream file = Files.newInputStream(path);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+      byte[] body = new byte[MAX_BODY_SIZE];
+      while (true) {
+        int length;
+        int expected;
+        try {
+          length = in.readInt();
+          expected = in.readInt();
+          if (length <= 0 || length > MAX_BODY_SIZE) {
+            return valid;
+          }
+          in.readFully(body, 0, length);
+        } catch (EOFException e) {
+          return valid;
+        }
+        crc.reset();
+        crc.update(body, 0, length);
+        if ((int) crc.getValue() != expected) {
+          return valid;
+        }
+        apply(ByteBuffer.wrap(body, 0, length), replay);
+        valid += HEADER_SIZE + length;
+      }
+    }
+  }
+
+  private static void apply(ByteBuffer record, Replay replay) throws IOException {
+    byte type = record.get();
+    long epoch = record.getLong();
+    switch (type) {
+      case CREATE -> replay.create(epoch, record.getLong(), record.getLong());
+      case TRANSFER -> {
+        long fromId = record.getLong();
+        long toId = record.getLong();
+        long amount = record.getLong();
+        replay.adjust(epoch, fromId, -amount);
+        replay.adjust(epoch, toId, amount);
+      }
+      case DELTAS -> {
+        int count = record.getInt();
+        for (int i = 0; i < count; i++) {
+          replay.adjust(epoch, record.getLong(), record.getLong());
+        }
+      }
+      default -> throw new IOException("Unknown journal record type: " + type);
+    }
+  }
+
+  /**
+   * Начинает запись: резервирует заголовок и пишет тип и эпоху.
+   *
+   * @return позиция начала записи в буфере
+   */
+  private int begin(byte type, long epoch, int payloadSize) {
+    if (closed) {
+      throw new IllegalStateException("Journal is closed");
+    }
+    int bodySize = 1 + Long.BYTES + payloadSize;
+    if (pending.remaining() < HEADER_SIZE + bodySize) {
+      ByteBuffer grown = ByteBuffer.allocate(
+          Math.max(pending.capacity() * 2, pending.position() + HEADER_SIZE + bodySize));
+      pending.flip();
+      grown.put(pending);
+      pending = grown;
+    }
+    int start = pending.position();
+    pending.position(start + HEADER_SIZE);
+    pending.put(type).putLong(epoch);
+    return start;
+  }
+
+  private long end(int start) {
+    int bodyLength = pending.position() - start - HEADER_SIZE;
+    checksum.reset();
+    checksum.update(pending.array(), start + HEADER_SIZE, bodyLength);
+    pending.putInt(start, bodyLength);
+    pending.putInt(start + Integer.BYTES, (int) checksum.getValue());
+    appended += HEADER_SIZE + bodyLength;
+    return appended;
+  }
+
+  /**
+   * Групповой сброс. Вызывается под lock; на время записи и {@code force} отпускает его, чтобы
+   * другие потоки продолжали добавлять записи в запасной буфер.
+   */
+  private void flush() {
+    flushing = true;
+    flushNumber++;
+    ByteBuffer batch = pending;
+    pending = spare;
+    spare = null;
+    long target = appended;
+    flushTarget = target;
+    FileChannel out = channel;
+    IOException error = null;
+    lock.unlock();
+    try {
+      batch.flip();
+      while (batch.hasRemaining()) {
+        out.write(batch);
+      }
+      out.force(false);
+    } catch (IOException e) {
+      error = e;
+    } finally {
+      lock.lock();
+    }
+    batch.clear();
+    spare = batch;
+    flushing = false;
+    if (error != null) {
+      failure = error;
+      flushed(flushNumber + 1).signalAll();
+    } else {
+      durable = target;
+      // Ждущие следующего сброса: один из них станет ведущим и сбросит записи всех остальных.
+      flushed(flushNumber + 1).signal();
+    }
+    flushed(flushNumber).signalAll();
+  }
+
+  private Condition flushed(long number) {
+    return flushed[(int) (number & 1)];
+  }
+
+  private void checkFailure() {
+    if (failure != null) {
+      throw new UncheckedIOException("Journal write failed", failure);
+    }
+  }
+
+  private FileChannel openSegment(long number) throws IOException {
+    FileChannel opened = FileChannel.open(segmentPath(directory, number),
+        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    syncDirectory(directory);
+    return opened;
+  }
+
+  static List<Long> listSegments(Path directory) throws IOException {
+    List<Long> segments = new ArrayList<>();
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        String name = file.getFileName().toString();
+        if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+          segments.add(Long.parseLong(
+              name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+        }
+      }
+    }
+    segments.sort(null);
+    return segments;
+  }
+
+  private static Path segmentPath(Path directory, long number) {
+    return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+  }
+
+  /**
+   * Сбрасывает на диск сам каталог, чтобы созданные и переименованные файлы пережили сбой ОС.
+   */
+  static void syncDirectory(Path directory) throws IOException {
+    try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+      dir.force(true);
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package com.afavlad.homeworkpractice.concurrency.bank;
+
+/**
+ * Счёт {@link ColumnarBank}: только ссылка на банк и id, баланс хранится в столбце банка.
+ * Объекты создаются по требованию и не хранятся; два объекта с одним id — один и тот же счёт.
+ */
+public final class ColumnarAccount {
+
+  private final ColumnarBank bank;
+  private final long id;
+
+  ColumnarAccount(ColumnarBank bank, long id) {
+    this.bank = bank;
+    this.id = id;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public long getBalance() {
+    return bank.getBalance(id);
+  }
+
+  /**
+   * Потокобезопасное пополнение счёта.
+   *
+   * @param amount сумма пополнения, должна быть > 0
+   */
+  public void deposit(long amount) {
+    bank.deposit(id, amount);
+  }
+
+  /**
+   * Потокобезопасное снятие средств.
+   *
+   * @param amount сумма снятия, должна быть > 0
+   * @return true, если средств хватило; false, если нет (баланс не изменён)
+   */
+  public boolean withdraw(long amount) {
+    return bank.withdraw(id, amount);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ColumnarAccount other)) {
+      return false;
+    }
+    return bank == other.bank && id == other.id;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(id);
+  }
+
+  @Override
+  public String toString() {
+    return "ColumnarAccount{id=" + id + ", balance=" + getBalance() + '}';
+  }
+}
@@ -0,0 +1,143 @@
+package com.afavlad.homeworkpractice.concurrency.bank;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Вариант {@link ConcurrentBank} для десятков миллионов счетов: балансы хранятся в столбце
+ * {@code long[]} ({@link BalanceColumn}), а не в отдельных объектах.
+ * <p>
+ * Счёт занимает 8 байт вместо объекта с заголовком, монитором и несколькими полями; сборщику
+ * мусора нечего обходить, а {@link #getTotalBalance()} суммирует сплошные массивы вместо
+ * перехода по ссылкам. Балансы меняются через CAS без блокировок. Перевод не атомарен для
+ * сторонних читателей {@link #getBalance(long)}: между списанием и зачислением сумма на миг
+ * нигде не видна, но {@link #getTotalBalance()} с помощью {@link ScanGate} видит каждый перевод
+ * целиком. Сами объекты счетов ({@link ColumnarAccount}) — лёгкие обёртки над id, которые
+ * создаются по требованию.
+ */
+public class ColumnarBank {
+
+  private final AtomicLong nextId = new AtomicLong(1);
+  private final BalanceColumn balances = new BalanceColumn();
+  private final ScanGate gate = new ScanGate();
+
+  /**
+   * Создаёт новый счёт с заданным начальным балансом.
+   *
+   * @param initialBalance начальный баланс, должен быть >= 0
+   * @return id нового счёта
+   */
+  public long createAccount(long initialBalance) {
+    if (initialBalance < 0) {
+      throw new IllegalArgumentException("Initial balance must be >= 0");
+    }
+    gate.enter();
+    try {
+      long id = nextId.getAndIncrement();
+      if (id > BalanceColumn.capacity()) {
+        throw new IllegalStateException("Too many accounts: " + id);
+      }
+      // Прибавление, а не запись: перевод на только что выданный id мог успеть раньше.
+      balances.add(id - 1, initialBalance);
+      return id;
+    } finally {
+      gate.exit();
+    }
+  }
+
+  /**
+   * @return лёгкий объект счёта или {@code null}, если счёта с таким id нет
+   */
+  public ColumnarAccount findAccount(long id) {
+    return exists(id) ? new ColumnarAccount(this, id) : null;
+  }
+
+  /**
+   * Количество созданных счетов.
+   */
+  public long getAccountCount() {
+    return Math.min(nextId.get() - 1, BalanceColumn.capacity());
+  }
+
+  /**
+   * @throws IllegalArgumentException если счёта с таким id нет
+   */
+  public long getBalance(long id) {
+    requireAccount(id);
+    return balances.get(id - 1);
+  }
+
+  /**
+   * Перевод средств между счетами. Списание выполняется только при достаточном остатке, поэтому
+   * балансы никогда не становятся отрицательными.
+   *
+   * @param fromId id счёта-источника
+   * @param toId   id счёта-получателя
+   * @param amount сумма перевода, должна быть > 0
+   * @return {@code true}, если перевод выполнен (перевод на тот же счёт ничего не меняет);
+   *         {@code false}, если не хватило средств
+   * @throws IllegalArgumentException если счёта с одним из id нет
+   */
+  public boolean transfer(long fromId, long toId, long amount) {
+    if (amount <= 0) {
+      throw new IllegalArgumentException("Transfer amount must be > 0");
+    }
+    requireAccount(fromId);
+    requireAccount(toId);
+    if (fromId == toId) {
+      return true;
+    }
+    gate.enter();
+    try {
+      if (!balances.tryWithdraw(fromId - 1, amount)) {
+        return false;
+      }
+      balances.add(toId - 1, amount);
+      return true;
+    } finally {
+      gate.exit();
+    }
+  }
+
+  /**
+   * Общий баланс всех счетов на момент вызова. Изменения балансов ждут, пока идёт суммирование,
+   * поэтому результат точен; само суммирование идёт по сплошным массивам и занимает порядка
+   * миллисекунды на несколько миллионов счетов.
+   */
+  public long getTotalBalance() {
+    return gate.exclusive(() -> balances.sum(getAccountCount()));
+  }
+
+  void deposit(long id, long amount) {
+    if (amount <= 0) {
+      throw new IllegalArgumentException("Deposit amount must be > 0");
+    }
+    gate.enter();
+    try {
+      balances.add(id - 1, amount);
+    } finally {
+      gate.exit();
+    }
+  }
+
+  boolean withdraw(long id, long amount) {
+    if (amount <= 0) {
+      throw new IllegalArgumentException("Withdraw amount must be > 0");
+    }
+    gate.enter();
+    try {
+      return balances.tryWithdraw(id - 1, amount);
+    } finally {
+      gate.exit();
+    }
+  }
+
+  private boolean exists(long id) {
+    return id >= 1 && id <= getAccountCount();
+  }
+
+  private void requireAccount(long id) {
+    if (!exists(id)) {
+      throw new IllegalArgumentException("Account not found: " + id);
+    }
+  }
+}
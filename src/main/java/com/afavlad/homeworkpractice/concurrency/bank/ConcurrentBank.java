@@ -1,16 +1,97 @@
 package com.afavlad.homeworkpractice.concurrency.bank;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
-public class ConcurrentBank {
+/**
+ * Банк со счетами в памяти. Банк, созданный через {@link #open(Path, Duration)}, дополнительно
+ * ведёт журнал на диске и восстанавливает из него балансы после перезапуска.
+ */
+public class ConcurrentBank implements AutoCloseable {
 
   private final AtomicLong nextId = new AtomicLong(1);
 
-  private final List<BankAccount> accounts =
-      Collections.synchronizedList(new ArrayList<>());
+  private final AccountStore accounts = new AccountStore();
+
+  private final SnapshotEpoch epoch = new SnapshotEpoch();
+
+  /**
+   * Сериализует снимки между собой; переводы его не берут.
+   */
+  private final Object snapshotLock = new Object();
+
+  /**
+   * Каталог журнала и снимков; {@code null} у банка только в памяти.
+   */
+  private final Path directory;
+
+  private final BankJournal journal;
+
+  private ScheduledExecutorService checkpointer;
+
+  private volatile IOException checkpointFailure;
+
+  /**
+   * Создаёт банк только в памяти.
+   */
+  public ConcurrentBank() {
+    this(null, null);
+  }
+
+  private ConcurrentBank(Path directory, BankJournal journal) {
+    this.directory = directory;
+    this.journal = journal;
+  }
+
+  /**
+   * Открывает долговечный банк в каталоге {@code directory}, восстанавливая счета из последнего
+   * снимка и хвоста журнала.
+   * <p>
+   * Создание счёта и каждый выполненный перевод (в том числе пакетный) дописываются в журнал и
+   * возвращаются только после сброса записи на диск. Сброс групповой: параллельные переводы
+   * ждут одного {@code FileChannel.force}, поэтому при многих потоках пропускная способность
+   * падает лишь в небольшое число раз. {@link BankAccount#deposit(long)} и
+   * {@link BankAccount#withdraw(long)} счетов такого банка журналируются так же.
+   * <p>
+   * После восстановления сразу пишется новый снимок, а затем — каждые
+   * {@code checkpointInterval}; снимок не останавливает переводы, а старые сегменты журнала
+   * после него удаляются.
+   *
+   * @param directory          каталог данных банка; создаётся, если его нет
+   * @param checkpointInterval период снимков или {@code null}, чтобы делать их только через
+   *                           {@link #checkpoint()}
+   * @throws IOException если каталог недоступен или журнал повреждён
+   */
+  public static ConcurrentBank open(Path directory, Duration checkpointInterval)
+      throws IOException {
+    if (directory == null) {
+      throw new IllegalArgumentException("Directory must not be null");
+    }
+    if (checkpointInterval != null
+        && (checkpointInterval.isNegative() || checkpointInterval.isZero())) {
+      throw new IllegalArgumentException("Checkpoint interval must be > 0");
+    }
+    BankJournal journal = new BankJournal(directory);
+    ConcurrentBank bank = new ConcurrentBank(directory, journal);
+    try {
+      bank.recover();
+      bank.checkpoint();
+    } catch (IOException | RuntimeException e) {
+      journal.close();
+      throw e;
+    }
+    if (checkpointInterval != null) {
+      bank.startCheckpoints(checkpointInterval);
+    }
+    return bank;
+  }
 
   /**
    * Создаёт новый счёт с заданным начальным балансом и регистрирует его в банке.
@@ -20,11 +101,79 @@ public class ConcurrentBank {
    */
   public BankAccount createAccount(long initialBalance) {
     long id = nextId.getAndIncrement();
-    BankAccount account = new BankAccount(id, initialBalance);
-    accounts.add(account);
+    BankAccount account = new BankAccount(id, initialBalance, epoch, journal);
+    long ticket;
+    // Монитор берётся до публикации в хранилище: операция, нашедшая счёт по id, ждёт его и
+    // попадает в журнал только после записи о создании.
+    synchronized (account) {
+      accounts.put(account);
+      // Эпоха читается после публикации в хранилище: снимок, который не нашёл счёт в
+      // хранилище, гарантированно начался раньше и не должен его учитывать.
+      long createdEpoch = account.publish();
+      if (journal == null) {
+        return account;
+      }
+      ticket = journal.appendCreate(createdEpoch, id, initialBalance);
+    }
+    journal.awaitDurable(ticket);
     return account;
   }
 
+  /**
+   * Ищет счёт по id за O(1).
+   *
+   * @param id идентификатор счёта
+   * @return счёт или {@code null}, если счёта с таким id нет
+   */
+  public BankAccount findAccount(long id) {
+    return accounts.get(id);
+  }
+
+  /**
+   * Перевод средств между счетами, заданными по id.
+   *
+   * @param fromId id счёта-источника
+   * @param toId   id счёта-получателя
+   * @param amount сумма перевода
+   * @return {@code true}, если перевод выполнен; {@code false}, если не хватило средств
+   * @throws IllegalArgumentException если счёта с одним из id нет
+   * @see #transfer(BankAccount, BankAccount, long)
+   */
+  public boolean transfer(long fromId, long toId, long amount) {
+    return transfer(requireAccount(fromId), requireAccount(toId), amount);
+  }
+
+  /**
+   * Выполняет пакет переводов так, как если бы они выполнялись по очереди вызовами
+   * {@link #transfer(long, long, long)}, но без отдельного захвата мониторов на каждый перевод.
+   * <p>
+   * Переводы группируются по затронутым счетам: мониторы счетов группы берутся один раз в
+   * порядке возрастания id, переводы проверяются на копии балансов, и каждый счёт получает
+   * одно итоговое изменение. Балансы никогда не становятся отрицательными. Группа из подряд
+   * идущих переводов применяется атомарно, весь пакет — нет: другие операции могут
+   * выполниться между группами.
+   *
+   * @param transfers переводы в порядке выполнения
+   * @return результаты переводов в том же порядке
+   * @throws IllegalArgumentException если список или один из переводов равен null
+   */
+  public List<TransferResult> transferBatch(List<Transfer> transfers) {
+    if (transfers == null) {
+      throw new IllegalArgumentException("Transfers must not be null");
+    }
+    for (Transfer transfer : transfers) {
+      if (transfer == null) {
+        throw new IllegalArgumentException("Transfers must not contain null");
+      }
+    }
+    TransferBatch batch = new TransferBatch(accounts, epoch, journal, transfers);
+    List<TransferResult> results = batch.execute();
+    if (journal != null) {
+      journal.awaitDurable(batch.journalTicket());
+    }
+    return results;
+  }
+
   /**
    * Перевод средств между двумя счетами. Операция атомарна: либо деньги успешно списаны с одного
    * счёта и зачислены на другой, либо перевод не выполняется (например, при нехватке средств).
@@ -35,8 +184,11 @@ public class ConcurrentBank {
    * @param from   счёт-источник
    * @param to     счёт-получатель
    * @param amount сумма перевода
+   * @return {@code true}, если перевод выполнен (перевод на тот же счёт ничего не меняет);
+   *         {@code false}, если на счёте-источнике не хватило средств
+   * @throws UncheckedIOException если у долговечного банка не удалось записать журнал
    */
-  public void transfer(BankAccount from, BankAccount to, long amount) {
+  public boolean transfer(BankAccount from, BankAccount to, long amount) {
     if (from == null || to == null) {
       throw new IllegalArgumentException("Accounts must not be null");
     }
@@ -44,7 +196,7 @@ public class ConcurrentBank {
       throw new IllegalArgumentException("Transfer amount must be > 0");
     }
     if (from == to) {
-      return;
+      return true;
     }
 
     BankAccount firstLock;
@@ -58,35 +210,173 @@ public class ConcurrentBank {
       secondLock = from;
     }
 
+    long ticket;
     synchronized (firstLock) {
       synchronized (secondLock) {
-        if (!from.withdraw(amount)) {
-          System.out.println("Transfer failed: insufficient funds. From=" + from);
-          return;
+        // Одна эпоха на оба счёта: снимок увидит перевод целиком или не увидит вовсе.
+        long transferEpoch = epoch.current();
+        if (!from.withdraw(amount, transferEpoch)) {
+          return false;
         }
 
-        to.deposit(amount);
-        System.out.println("Transfer succeeded: " + amount + " from " + from.getId() + " to " + to.getId());
+        to.deposit(amount, transferEpoch);
+        if (journal == null) {
+          return true;
+        }
+        // Запись под мониторами: в журнале изменения счёта идут в том же порядке, что в памяти.
+        ticket = journal.appendTransfer(transferEpoch, from.getId(), to.getId(), amount);
       }
     }
+    // Диск ждём уже без мониторов, чтобы один сброс покрыл переводы многих потоков.
+    journal.awaitDurable(ticket);
+    return true;
   }
 
   /**
-   * Возвращает общий баланс всех счетов в банке.
+   * Возвращает общий баланс всех счетов в банке на момент вызова.
    * <p>
-   * Важно: в данном примере метод не даёт строго "мгновенный" снимок состояния при параллельных
-   * переводах, но: - каждый отдельный баланс читается потокобезопасно, если переводы закончены -
-   * сумма будет корректной.
+   * Сумма согласована даже при параллельных переводах: метод начинает новую эпоху
+   * {@link SnapshotEpoch}, и каждый перевод целиком попадает либо до, либо после снимка.
+   * Переводы не останавливаются: снимок лишь ненадолго берёт монитор каждого счёта, а счёт,
+   * изменённый после начала снимка, отдаёт сохранённый баланс на начало эпохи.
    *
    * @return сумма балансов всех счетов
    */
   public long getTotalBalance() {
-    long sum = 0L;
-    synchronized (accounts) {
-      for (BankAccount account : accounts) {
-        sum += account.getBalance();
+    synchronized (snapshotLock) {
+      long snapshotEpoch = epoch.advance();
+      long[] sum = new long[1];
+      accounts.forEach(nextId.get(), account -> sum[0] += account.getBalanceAt(snapshotEpoch));
+      return sum[0];
+    }
+  }
+
+  /**
+   * Пишет снимок балансов долговечного банка и удаляет покрытые им сегменты журнала.
+   * Переводы во время снимка продолжаются: снимок согласован так же, как
+   * {@link #getTotalBalance()}.
+   *
+   * @throws IllegalStateException если банк только в памяти
+   * @throws IOException           если снимок не удалось записать
+   */
+  public void checkpoint() throws IOException {
+    if (journal == null) {
+      throw new IllegalStateException("Bank is not durable");
+    }
+    synchronized (snapshotLock) {
+      // Сначала новый сегмент, потом новая эпоха: все записи старых сегментов получили эпоху
+      // раньше снимка и войдут в него.
+      long firstSegment = journal.roll();
+      long snapshotEpoch = epoch.advance();
+      try (BalanceSnapshotFile.Writer writer =
+          BalanceSnapshotFile.create(directory, snapshotEpoch, firstSegment)) {
+        accounts.forEach(nextId.get(), account -> {
+          if (account.existedAt(snapshotEpoch)) {
+            writer.add(account.getId(), account.getBalanceAt(snapshotEpoch));
+          }
+        });
+        writer.commit();
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
       }
+      journal.deleteSegmentsBefore(firstSegment);
+    }
+  }
+
+  /**
+   * Останавливает периодические снимки и сбрасывает журнал. Банк только в памяти ничего не
+   * делает. После закрытия долговечный банк нельзя использовать.
+   *
+   * @throws IOException если журнал или один из периодических снимков не удалось записать
+   */
+  @Override
+  public void close() throws IOException {
+    if (checkpointer != null) {
+      checkpointer.shutdown();
+      boolean interrupted = false;
+      while (!checkpointer.isTerminated()) {
+        try {
+          checkpointer.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (journal != null) {
+      journal.close();
     }
-    return sum;
+    if (checkpointFailure != null) {
+      throw checkpointFailure;
+    }
+  }
+
+  /**
+   * Загружает последний снимок и проигрывает журнал после него: записи с эпохой меньше эпохи
+   * снимка в нём уже учтены.
+   */
+  private void recover() throws IOException {
+    long journalEnd = journal.segment();
+    BalanceSnapshotFile.Header header =
+        BalanceSnapshotFile.readLatest(directory, this::restoreAccount);
+    long snapshotEpoch = header == null ? Long.MIN_VALUE : header.epoch();
+    long firstSegment = header == null ? 0 : header.firstSegment();
+    BankJournal.replay(directory, firstSegment, journalEnd, new BankJournal.Replay() {
+      @Override
+      public void create(long recordEpoch, long id, long balance) throws IOException {
+        if (recordEpoch >= snapshotEpoch) {
+          restoreAccount(id, balance);
+        }
+      }
+
+      @Override
+      public void adjust(long recordEpoch, long id, long delta) throws IOException {
+        if (recordEpoch < snapshotEpoch) {
+          return;
+        }
+        BankAccount account = accounts.get(id);
+        if (account == null || account.getBalanceLocked() + delta < 0) {
+          throw new IOException("Journal is inconsistent at account " + id);
+        }
+        account.adjustLocked(delta, epoch.current());
+      }
+    });
+  }
+
+  private void restoreAccount(long id, long balance) throws IOException {
+    if (id <= 0 || balance < 0 || accounts.get(id) != null) {
+      throw new IOException("Invalid restored account " + id + " with balance " + balance);
+    }
+    BankAccount account = new BankAccount(id, balance, epoch, journal);
+    accounts.put(account);
+    account.publish();
+    nextId.accumulateAndGet(id + 1, Math::max);
+  }
+
+  private void startCheckpoints(Duration interval) {
+    checkpointer = Executors.newSingleThreadScheduledExecutor(task -> {
+      Thread thread = new Thread(task, "bank-checkpoint");
+      thread.setDaemon(true);
+      return thread;
+    });
+    checkpointer.scheduleWithFixedDelay(() -> {
+      try {
+        checkpoint();
+      } catch (IOException e) {
+        // Исключение останавливает расписание; ошибку вернёт close().
+        checkpointFailure = e;
+        throw new UncheckedIOException(e);
+      }
+    }, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+  }
+
+  private BankAccount requireAccount(long id) {
+    BankAccount account = accounts.get(id);
+    if (account == null) {
+      throw new IllegalArgumentException("Account not found: " + id);
+    }
+    return account;
   }
 }
\ No newline at end of file
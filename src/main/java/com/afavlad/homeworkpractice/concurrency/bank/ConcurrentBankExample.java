@@ -1,5 +1,7 @@
 package com.afavlad.homeworkpractice.concurrency.bank;
 
+import java.util.List;
+
 public class ConcurrentBankExample {
 
   public static void main(String[] args) {
@@ -8,8 +10,10 @@ public class ConcurrentBankExample {
     BankAccount account1 = bank.createAccount(1000);
     BankAccount account2 = bank.createAccount(500);
 
-    Thread transferThread1 = new Thread(() -> bank.transfer(account1, account2, 200));
-    Thread transferThread2 = new Thread(() -> bank.transfer(account2, account1, 100));
+    Thread transferThread1 = new Thread(() -> report(200, account1, account2,
+        bank.transfer(account1, account2, 200)));
+    Thread transferThread2 = new Thread(() -> report(100, account2, account1,
+        bank.transfer(account2, account1, 100)));
 
     transferThread1.start();
     transferThread2.start();
@@ -21,6 +25,20 @@ public class ConcurrentBankExample {
       Thread.currentThread().interrupt();
     }
 
+    List<Transfer> batch = List.of(
+        new Transfer(account1.getId(), account2.getId(), 300),
+        new Transfer(account2.getId(), account1.getId(), 5000),
+        new Transfer(account2.getId(), 42, 10));
+    System.out.println("Batch results: " + bank.transferBatch(batch));
+
     System.out.println("Total balance: " + bank.getTotalBalance());
   }
+
+  private static void report(long amount, BankAccount from, BankAccount to, boolean succeeded) {
+    if (succeeded) {
+      System.out.println("Transfer succeeded: " + amount + " from " + from.getId() + " to " + to.getId());
+    } else {
+      System.out.println("Transfer failed: insufficient funds. From=" + from);
+    }
+  }
 }
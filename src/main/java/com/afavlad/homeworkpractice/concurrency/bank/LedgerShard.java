@@ -0,0 +1,407 @@
+package com.afavlad.homeworkpractice.concurrency.bank;
+
+import com.afavlad.homeworkpractice.concurrency.impl.RingBufferBlockingQueue;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Шард {@link ShardedLedger}: один поток, единственный владелец балансов своих счетов.
+ * <p>
+ * Балансы лежат в обычном {@code long[]} и читаются и пишутся без блокировок: к ним обращается
+ * только поток шарда, обрабатывая сообщения из своей входящей очереди. Сообщения другим шардам
+ * отправляются без ожидания: если очередь получателя заполнена, сообщение остаётся в исходящем
+ * буфере этого получателя и отправляется позже. Так два шарда с заполненными очередями не
+ * ждут друг друга вечно, а сообщения от одного шарда другому приходят в порядке отправки
+ * (это нужно снимку).
+ */
+final class LedgerShard implements Runnable {
+
+  /**
+   * Баланс несуществующего счёта; настоящие балансы неотрицательны.
+   */
+  private static final long NO_ACCOUNT = -1;
+
+  private static final long OUTBOX_RETRY_MICROS = 50;
+
+  private final int index;
+  private final ShardedLedger ledger;
+  private final RingBufferBlockingQueue<Message> inbox;
+  private final ArrayDeque<Message>[] outboxes;
+  private int nonEmptyOutboxes;
+  private long[] balances = newBalances(1024);
+
+  /**
+   * Снимок, в котором шард уже записал своё состояние и ещё ждёт маркеров от других шардов.
+   */
+  private Snapshot snapshot;
+  private Snapshot finishedSnapshot;
+  private boolean[] markerReceived;
+  private int markersPending;
+  private long recordedTotal;
+
+  @SuppressWarnings("unchecked")
+  LedgerShard(int index, ShardedLedger ledger, int queueCapacity) {
+    this.index = index;
+    this.ledger = ledger;
+    this.inbox = new RingBufferBlockingQueue<>(queueCapacity, RingBufferBlockingQueue.Mode.MPSC);
+    this.outboxes = (ArrayDeque<Message>[]) new ArrayDeque<?>[ledger.getShardCount()];
+    for (int i = 0; i < outboxes.length; i++) {
+      outboxes[i] = new ArrayDeque<>();
+    }
+  }
+
+  RingBufferBlockingQueue<Message> inbox() {
+    return inbox;
+  }
+
+  @Override
+  public void run() {
+    try {
+      while (true) {
+        flushOutboxes();
+        Message message = nonEmptyOutboxes > 0
+            ? inbox.poll(OUTBOX_RETRY_MICROS, TimeUnit.MICROSECONDS)
+            : inbox.dequeue();
+        if (message != null) {
+          process(message);
+        } else if (inbox.isClosed() && inbox.size() == 0) {
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Обрабатывает одно сообщение. Исключение завершает с ошибкой только операцию этого
+   * сообщения: поток шарда продолжает работать, иначе все следующие операции шарда никогда бы
+   * не завершились.
+   */
+  private void process(Message message) {
+    try {
+      message.process(this);
+    } catch (RuntimeException e) {
+      message.fail(this, e);
+    }
+  }
+
+  private void send(int shard, Message message) {
+    ArrayDeque<Message> outbox = outboxes[shard];
+    if (outbox.isEmpty() && ledger.shard(shard).inbox().tryEnqueue(message)) {
+      return;
+    }
+    if (outbox.isEmpty()) {
+      nonEmptyOutboxes++;
+    }
+    outbox.addLast(message);
+  }
+
+  private void flushOutboxes() {
+    if (nonEmptyOutboxes == 0) {
+      return;
+    }
+    for (int shard = 0; shard < outboxes.length; shard++) {
+      ArrayDeque<Message> outbox = outboxes[shard];
+      if (outbox.isEmpty()) {
+        continue;
+      }
+      RingBufferBlockingQueue<Message> target = ledger.shard(shard).inbox();
+      while (!outbox.isEmpty() && target.tryEnqueue(outbox.peekFirst())) {
+        outbox.removeFirst();
+      }
+      if (outbox.isEmpty()) {
+        nonEmptyOutboxes--;
+      }
+    }
+  }
+
+  private boolean exists(long id) {
+    long slot = ShardedLedger.slotOf(id, outboxes.length);
+    return slot >= 0 && slot < balances.length && balances[(int) slot] != NO_ACCOUNT;
+  }
+
+  /**
+   * Баланс существующего счёта: вызывается только после {@link #exists(long)}.
+   */
+  private long balance(long id) {
+    return balances[(int) ShardedLedger.slotOf(id, outboxes.length)];
+  }
+
+  private void add(long id, long delta) {
+    balances[(int) ShardedLedger.slotOf(id, outboxes.length)] += delta;
+  }
+
+  private void create(long id, long initialBalance) {
+    int slot = Math.toIntExact(ShardedLedger.slotOf(id, outboxes.length));
+    if (slot >= balances.length) {
+      long[] grown = newBalances(Math.max(balances.length * 2, slot + 1));
+      System.arraycopy(balances, 0, grown, 0, balances.length);
+      balances = grown;
+    }
+    balances[slot] = initialBalance;
+  }
+
+  private static long[] newBalances(int size) {
+    long[] array = new long[size];
+    Arrays.fill(array, NO_ACCOUNT);
+    return array;
+  }
+
+  /**
+   * Деньги, пришедшие от другого шарда. Если шард записал своё состояние для снимка, а маркер
+   * отправителя ещё не пришёл, сумма принадлежит каналу между ними и входит в снимок.
+   */
+  private void receiveFromShard(int sender, long amount) {
+    if (snapshot != null && !markerReceived[sender]) {
+      recordedTotal += amount;
+    }
+  }
+
+  private void onMarker(Snapshot markerSnapshot, int sender) {
+    if (markerSnapshot == finishedSnapshot) {
+      return;
+    }
+    if (snapshot == null) {
+      snapshot = markerSnapshot;
+      markerReceived = new boolean[outboxes.length];
+      markersPending = outboxes.length - 1;
+      recordedTotal = 0;
+      for (long balance : balances) {
+        if (balance != NO_ACCOUNT) {
+          recordedTotal += balance;
+        }
+      }
+      for (int shard = 0; shard < outboxes.length; shard++) {
+        if (shard != index) {
+          send(shard, new Marker(markerSnapshot, index));
+        }
+      }
+    }
+    if (sender >= 0 && !markerReceived[sender]) {
+      markerReceived[sender] = true;
+      markersPending--;
+    }
+    if (markersPending == 0) {
+      snapshot.contribute(recordedTotal);
+      finishedSnapshot = snapshot;
+      snapshot = null;
+      markerReceived = null;
+    }
+  }
+
+  /**
+   * Сообщение шарду. Обрабатывается только потоком шарда-получателя.
+   */
+  abstract static class Message {
+    abstract void process(LedgerShard shard);
+
+    /**
+     * Завершает операцию сообщения с ошибкой, если {@link #process} выбросил исключение.
+     */
+    abstract void fail(LedgerShard shard, RuntimeException error);
+  }
+
+  static final class Create extends Message {
+    private final long id;
+    private final long initialBalance;
+    private final CompletableFuture<Long> result;
+
+    Create(long id, long initialBalance, CompletableFuture<Long> result) {
+      this.id = id;
+      this.initialBalance = initialBalance;
+      this.result = result;
+    }
+
+    @Override
+    void process(LedgerShard shard) {
+      shard.create(id, initialBalance);
+      shard.ledger.complete(result, id);
+    }
+
+    @Override
+    void fail(LedgerShard shard, RuntimeException error) {
+      shard.ledger.fail(result, error);
+    }
+  }
+
+  static final class Query extends Message {
+    private final long id;
+    private final CompletableFuture<Long> result;
+
+    Query(long id, CompletableFuture<Long> result) {
+      this.id = id;
+      this.result = result;
+    }
+
+    @Override
+    void process(LedgerShard shard) {
+      shard.ledger.complete(result, shard.exists(id) ? shard.balance(id) : null);
+    }
+
+    @Override
+    void fail(LedgerShard shard, RuntimeException error) {
+      shard.ledger.fail(result, error);
+    }
+  }
+
+  /**
+   * Первая фаза перевода, выполняется шардом счёта-источника: проверка остатка и списание.
+   * Если получатель в том же шарде, перевод завершается здесь же, иначе получателю
+   * отправляется {@link Credit}.
+   */
+  static final class Debit extends Message {
+    private final long fromId;
+    private final long toId;
+    private final long amount;
+    private final CompletableFuture<TransferResult> result;
+
+    Debit(long fromId, long toId, long amount, CompletableFuture<TransferResult> result) {
+      this.fromId = fromId;
+      this.toId = toId;
+      this.amount = amount;
+      this.result = result;
+    }
+
+    @Override
+    void process(LedgerShard shard) {
+      int toShard = shard.ledger.shardOf(toId);
+      if (!shard.exists(fromId) || (toShard == shard.index && !shard.exists(toId))) {
+        shard.ledger.complete(result, TransferResult.ACCOUNT_NOT_FOUND);
+        return;
+      }
+      if (fromId == toId) {
+        shard.ledger.complete(result, TransferResult.SUCCESS);
+        return;
+      }
+      if (shard.balance(fromId) < amount) {
+        shard.ledger.complete(result, TransferResult.INSUFFICIENT_FUNDS);
+        return;
+      }
+      shard.add(fromId, -amount);
+      if (toShard == shard.index) {
+        shard.add(toId, amount);
+        shard.ledger.complete(result, TransferResult.SUCCESS);
+      } else {
+        shard.send(toShard, new Credit(fromId, toId, amount, shard.index, result));
+      }
+    }
+
+    @Override
+    void fail(LedgerShard shard, RuntimeException error) {
+      shard.ledger.fail(result, error);
+    }
+  }
+
+  /**
+   * Вторая фаза перевода, выполняется шардом получателя. Если получателя нет, деньги
+   * возвращаются источнику сообщением {@link Refund}.
+   */
+  static final class Credit extends Message {
+    private final long fromId;
+    private final long toId;
+    private final long amount;
+    private final int sender;
+    private final CompletableFuture<TransferResult> result;
+
+    Credit(long fromId, long toId, long amount, int sender, CompletableFuture<TransferResult> result) {
+      this.fromId = fromId;
+      this.toId = toId;
+      this.amount = amount;
+      this.sender = sender;
+      this.result = result;
+    }
+
+    @Override
+    void process(LedgerShard shard) {
+      shard.receiveFromShard(sender, amount);
+      if (shard.exists(toId)) {
+        shard.add(toId, amount);
+        shard.ledger.complete(result, TransferResult.SUCCESS);
+      } else {
+        shard.send(sender, new Refund(fromId, amount, shard.index, result));
+      }
+    }
+
+    @Override
+    void fail(LedgerShard shard, RuntimeException error) {
+      shard.ledger.fail(result, error);
+    }
+  }
+
+  static final class Refund extends Message {
+    private final long fromId;
+    private final long amount;
+    private final int sender;
+    private final CompletableFuture<TransferResult> result;
+
+    Refund(long fromId, long amount, int sender, CompletableFuture<TransferResult> result) {
+      this.fromId = fromId;
+      this.amount = amount;
+      this.sender = sender;
+      this.result = result;
+    }
+
+    @Override
+    void process(LedgerShard shard) {
+      shard.receiveFromShard(sender, amount);
+      shard.add(fromId, amount);
+      shard.ledger.complete(result, TransferResult.ACCOUNT_NOT_FOUND);
+    }
+
+    @Override
+    void fail(LedgerShard shard, RuntimeException error) {
+      shard.ledger.fail(result, error);
+    }
+  }
+
+  /**
+   * Маркер снимка по алгоритму Чанди — Лэмпорта. Отправитель -1 означает инициатора снимка.
+   */
+  static final class Marker extends Message {
+    private final Snapshot snapshot;
+    private final int sender;
+
+    Marker(Snapshot snapshot, int sender) {
+      this.snapshot = snapshot;
+      this.sender = sender;
+    }
+
+    @Override
+    void process(LedgerShard shard) {
+      shard.onMarker(snapshot, sender);
+    }
+
+    @Override
+    void fail(LedgerShard shard, RuntimeException error) {
+      snapshot.result().completeExceptionally(error);
+    }
+  }
+
+  /**
+   * Сборщик общего баланса: каждый шард добавляет своё записанное состояние и деньги,
+   * которые были в пути к нему.
+   */
+  static final class Snapshot {
+    private final CompletableFuture<Long> result = new CompletableFuture<>();
+    private long total;
+    private int remaining;
+
+    Snapshot(int shards) {
+      this.remaining = shards;
+    }
+
+    synchronized void contribute(long amount) {
+      total += amount;
+      if (--remaining == 0) {
+        result.complete(total);
+      }
+    }
+
+    CompletableFuture<Long> result() {
+      return result;
+    }
+  }
+}
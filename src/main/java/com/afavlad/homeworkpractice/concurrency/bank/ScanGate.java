@@ -0,0 +1,94 @@
+package com.afavlad.homeworkpractice.concurrency.bank;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Ворота между изменениями балансов {@link ColumnarBank} и полным обходом столбца.
+ * <p>
+ * Изменение входит в ворота ({@link #enter()}) и выходит из них ({@link #exit()}), увеличивая и
+ * уменьшая счётчик своей полосы; полосы разнесены по разным строкам кэша, а поток всегда
+ * попадает в одну и ту же полосу, поэтому счётчик полосы не бывает отрицательным.
+ * {@link #exclusive(LongSupplier)} закрывает ворота, дожидается, пока все начатые изменения
+ * выйдут, и выполняет обход, пока новые изменения ждут открытия. Так обход видит каждый перевод
+ * целиком или не видит вовсе, а сам перевод платит лишь за два атомарных сложения без общей
+ * для всех ячейки.
+ */
+final class ScanGate {
+
+  /**
+   * Шаг между полосами в {@code long}: 16 * 8 = 128 байт, две строки кэша.
+   */
+  private static final int STRIDE = 16;
+
+  private final int stripes;
+  private final AtomicLongArray active;
+  private volatile boolean closed;
+
+  ScanGate() {
+    int wanted = Runtime.getRuntime().availableProcessors() * 4;
+    this.stripes = Integer.highestOneBit(Math.max(wanted - 1, 1)) << 1;
+    this.active = new AtomicLongArray(stripes * STRIDE);
+  }
+
+  void enter() {
+    int cell = cellOfCurrentThread();
+    while (true) {
+      active.getAndIncrement(cell);
+      if (!closed) {
+        return;
+      }
+      active.getAndDecrement(cell);
+      awaitOpen();
+    }
+  }
+
+  void exit() {
+    active.getAndDecrement(cellOfCurrentThread());
+  }
+
+  /**
+   * Выполняет {@code scan} при закрытых воротах: ни одно изменение не идёт параллельно, и все
+   * завершённые изменения видны.
+   */
+  synchronized long exclusive(LongSupplier scan) {
+    closed = true;
+    try {
+      while (activeCount() != 0) {
+        Thread.yield();
+      }
+      return scan.getAsLong();
+    } finally {
+      closed = false;
+      notifyAll();
+    }
+  }
+
+  private synchronized void awaitOpen() {
+    boolean interrupted = false;
+    while (closed) {
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private long activeCount() {
+    long count = 0;
+    for (int i = 0; i < stripes; i++) {
+      count += active.get(i * STRIDE);
+    }
+    return count;
+  }
+
+  @SuppressWarnings("deprecation")
+  private int cellOfCurrentThread() {
+    long id = Thread.currentThread().getId();
+    return ((int) (id * 0x9E3779B97F4A7C15L >>> 40) & (stripes - 1)) * STRIDE;
+  }
+}
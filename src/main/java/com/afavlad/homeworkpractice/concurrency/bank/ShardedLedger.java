@@ -0,0 +1,286 @@
+package com.afavlad.homeworkpractice.concurrency.bank;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Альтернатива {@link ConcurrentBank} с однопоточными шардами вместо мониторов счетов.
+ * <p>
+ * Счета распределены по N шардам по id; каждый шард — отдельный поток, единственный владелец
+ * балансов своих счетов, поэтому балансы меняются без блокировок. Клиенты общаются с шардами
+ * сообщениями через ограниченные очереди:
+ * <ul>
+ *     <li>перевод внутри шарда выполняется шардом целиком;</li>
+ *     <li>перевод между шардами идёт в две фазы: шард источника проверяет остаток и списывает
+ *         сумму, затем шард получателя зачисляет её (или возвращает, если получателя нет).</li>
+ * </ul>
+ * Горячий счёт больше не сериализует все переводы через свой монитор: его обслуживает один
+ * поток без захвата блокировок, а переводы по остальным счетам идут в других шардах
+ * параллельно. Если очередь шарда заполнена, клиент ждёт — это ограничивает число переводов
+ * в пути.
+ * <p>
+ * Результаты переводов завершаются в потоке шарда, поэтому зависимые действия
+ * ({@code thenApply} и т. п.) не должны блокироваться и не должны синхронно ждать
+ * других операций ledger-а.
+ */
+public class ShardedLedger implements AutoCloseable {
+
+  private static final long CLOSE_TIMEOUT_MILLIS = 30_000;
+  private static final long LIVENESS_CHECK_MILLIS = 100;
+
+  private final AtomicLong nextId = new AtomicLong(1);
+  private final LedgerShard[] shards;
+  private final Thread[] threads;
+  private final LongAdder pending = new LongAdder();
+  private final CountDownLatch drained = new CountDownLatch(1);
+  private final Object snapshotLock = new Object();
+  private volatile boolean closed;
+
+  /**
+   * @param shardCount    количество шардов (потоков)
+   * @param queueCapacity ёмкость входящей очереди каждого шарда
+   */
+  public ShardedLedger(int shardCount, int queueCapacity) {
+    if (shardCount <= 0) {
+      throw new IllegalArgumentException("Shard count must be greater than zero");
+    }
+    if (queueCapacity <= 0) {
+      throw new IllegalArgumentException("Queue capacity must be greater than zero");
+    }
+    this.shards = new LedgerShard[shardCount];
+    this.threads = new Thread[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      shards[i] = new LedgerShard(i, this, queueCapacity);
+    }
+    for (int i = 0; i < shardCount; i++) {
+      threads[i] = new Thread(shards[i], "ledger-shard-" + i);
+      threads[i].setDaemon(true);
+      threads[i].start();
+    }
+  }
+
+  public int getShardCount() {
+    return shards.length;
+  }
+
+  /**
+   * Создаёт счёт и ждёт, пока шард его зарегистрирует.
+   *
+   * @param initialBalance начальный баланс, должен быть >= 0
+   * @return id нового счёта
+   */
+  public long createAccount(long initialBalance) {
+    if (initialBalance < 0) {
+      throw new IllegalArgumentException("Initial balance must be >= 0");
+    }
+    long id = nextId.getAndIncrement();
+    CompletableFuture<Long> result = new CompletableFuture<>();
+    submitTracked(shardOf(id), new LedgerShard.Create(id, initialBalance, result));
+    return result.join();
+  }
+
+  /**
+   * Асинхронный перевод. Блокируется, только если очередь шарда источника заполнена.
+   *
+   * @param fromId id счёта-источника
+   * @param toId   id счёта-получателя
+   * @param amount сумма перевода
+   * @return future с результатом перевода
+   */
+  public CompletableFuture<TransferResult> transfer(long fromId, long toId, long amount) {
+    if (amount <= 0) {
+      throw new IllegalArgumentException("Transfer amount must be > 0");
+    }
+    if (fromId <= 0 || toId <= 0) {
+      return CompletableFuture.completedFuture(TransferResult.ACCOUNT_NOT_FOUND);
+    }
+    CompletableFuture<TransferResult> result = new CompletableFuture<>();
+    submitTracked(shardOf(fromId), new LedgerShard.Debit(fromId, toId, amount, result));
+    return result;
+  }
+
+  /**
+   * @return баланс счёта после всех завершённых до вызова операций по нему
+   * @throws IllegalArgumentException если счёта нет
+   */
+  public long getBalance(long id) {
+    if (id <= 0) {
+      throw new IllegalArgumentException("Account not found: " + id);
+    }
+    CompletableFuture<Long> result = new CompletableFuture<>();
+    submitTracked(shardOf(id), new LedgerShard.Query(id, result));
+    Long balance = result.join();
+    if (balance == null) {
+      throw new IllegalArgumentException("Account not found: " + id);
+    }
+    return balance;
+  }
+
+  /**
+   * Согласованный общий баланс по алгоритму снимка Чанди — Лэмпорта: каждый шард записывает
+   * свою сумму, получив первый маркер, и досчитывает деньги, пришедшие от других шардов до их
+   * маркеров. Переводы при этом не останавливаются.
+   *
+   * @return сумма балансов всех счетов, включая деньги в пути между шардами
+   */
+  public long getTotalBalance() {
+    synchronized (snapshotLock) {
+      LedgerShard.Snapshot snapshot = new LedgerShard.Snapshot(shards.length);
+      // Снимок целиком — одна незавершённая операция: close() не закроет очереди, пока шарды
+      // пересылают друг другу маркеры.
+      pending.increment();
+      try {
+        for (int shard = 0; shard < shards.length; shard++) {
+          submit(shard, new LedgerShard.Marker(snapshot, -1));
+        }
+        return snapshot.result().join();
+      } finally {
+        operationFinished();
+      }
+    }
+  }
+
+  /**
+   * Дожидается завершения всех начатых операций и останавливает потоки шардов.
+   * <p>
+   * Ожидание ограничено {@value #CLOSE_TIMEOUT_MILLIS} мс и прекращается раньше, если поток
+   * какого-либо шарда остановился: его операции уже никогда не завершатся. Очереди шардов
+   * закрываются в любом случае. При прерывании ожидание прекращается, флаг прерывания
+   * восстанавливается.
+   *
+   * @throws IllegalStateException если операции не завершились за отведённое время или поток
+   *                               шарда остановился раньше времени
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MILLIS);
+    try {
+      awaitDrained(deadline);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      closeInboxes();
+      return;
+    } catch (IllegalStateException e) {
+      closeInboxes();
+      throw e;
+    }
+    closeInboxes();
+    for (Thread thread : threads) {
+      try {
+        thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      if (thread.isAlive()) {
+        throw new IllegalStateException(thread.getName() + " did not stop in time");
+      }
+    }
+  }
+
+  /**
+   * Ждёт, пока число незавершённых операций станет нулём. Последняя завершившаяся после
+   * {@link #close()} операция открывает {@link #drained}; между проверками ожидание
+   * просыпается, чтобы заметить остановившийся поток шарда.
+   */
+  private void awaitDrained(long deadline) throws InterruptedException {
+    if (pending.sum() == 0) {
+      return;
+    }
+    while (!drained.await(LIVENESS_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+      for (Thread thread : threads) {
+        if (!thread.isAlive()) {
+          throw new IllegalStateException(thread.getName() + " stopped with "
+              + pending.sum() + " operations pending");
+        }
+      }
+      if (System.nanoTime() - deadline > 0) {
+        throw new IllegalStateException("Ledger did not finish " + pending.sum()
+            + " pending operations in " + CLOSE_TIMEOUT_MILLIS + " ms");
+      }
+    }
+  }
+
+  private void closeInboxes() {
+    for (LedgerShard shard : shards) {
+      shard.inbox().close();
+    }
+  }
+
+  LedgerShard shard(int index) {
+    return shards[index];
+  }
+
+  int shardOf(long id) {
+    return (int) ((id - 1) % shards.length);
+  }
+
+  /**
+   * Позиция счёта в массиве балансов его шарда. Для id, которых не может быть в ledger-е,
+   * результат может не поместиться в {@code int}, поэтому он {@code long}: шард сравнивает
+   * его с размером массива до приведения.
+   */
+  static long slotOf(long id, int shardCount) {
+    return (id - 1) / shardCount;
+  }
+
+  /**
+   * Завершает операцию, отправленную через {@link #submitTracked}. Вызывается потоком шарда.
+   */
+  <T> void complete(CompletableFuture<T> future, T value) {
+    operationFinished();
+    future.complete(value);
+  }
+
+  /**
+   * Завершает с ошибкой операцию, при обработке которой шард получил исключение.
+   */
+  <T> void fail(CompletableFuture<T> future, Throwable error) {
+    operationFinished();
+    future.completeExceptionally(error);
+  }
+
+  /**
+   * Уменьшает число незавершённых операций. Операция читает {@code closed} после уменьшения,
+   * а {@link #close()} читает счётчик после записи {@code closed}, поэтому последнюю операцию
+   * заметит хотя бы одна из сторон.
+   */
+  private void operationFinished() {
+    pending.decrement();
+    if (closed && pending.sum() == 0) {
+      drained.countDown();
+    }
+  }
+
+  /**
+   * Отправляет сообщение, которое шард завершит вызовом {@link #complete}.
+   */
+  private void submitTracked(int shard, LedgerShard.Message message) {
+    pending.increment();
+    try {
+      submit(shard, message);
+    } catch (RuntimeException e) {
+      operationFinished();
+      throw e;
+    }
+  }
+
+  private void submit(int shard, LedgerShard.Message message) {
+    if (closed) {
+      throw new IllegalStateException("Ledger is closed");
+    }
+    try {
+      shards[shard].inbox().enqueue(message);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while submitting to shard " + shard, e);
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package com.afavlad.homeworkpractice.concurrency.bank;
+
+/**
+ * Номер эпохи для согласованных снимков балансов {@link ConcurrentBank}.
+ * <p>
+ * Каждый снимок начинает новую эпоху. Счёт, изменяемый в эпохе впервые, сначала запоминает
+ * баланс на её начало, поэтому снимок может прочитать балансы всех счетов на момент своего
+ * начала, не останавливая переводы.
+ */
+final class SnapshotEpoch {
+
+  /**
+   * Эпоха счетов, созданных вне банка: снимки по ним не делаются.
+   */
+  static final SnapshotEpoch NONE = new SnapshotEpoch();
+
+  private volatile long value;
+
+  long current() {
+    return value;
+  }
+
+  /**
+   * Начинает новую эпоху.
+   *
+   * @return номер новой эпохи
+   */
+  synchronized long advance() {
+    return ++value;
+  }
+}
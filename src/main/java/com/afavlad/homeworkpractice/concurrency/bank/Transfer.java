@@ -0,0 +1,17 @@
+package com.afavlad.homeworkpractice.concurrency.bank;
+
+/**
+ * Один перевод в пакете {@link ConcurrentBank#transferBatch(java.util.List)}.
+ *
+ * @param fromId id счёта-источника
+ * @param toId   id счёта-получателя
+ * @param amount сумма перевода, должна быть > 0
+ */
+public record Transfer(long fromId, long toId, long amount) {
+
+  public Transfer {
+    if (amount <= 0) {
+      throw new IllegalArgumentException("Transfer amount must be > 0");
+    }
+  }
+}
@@ -0,0 +1,198 @@
+package com.afavlad.homeworkpractice.concurrency.bank;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Выполнение пакета переводов {@link ConcurrentBank#transferBatch(List)}.
+ * <p>
+ * Переводы идут группами: в группу подряд набираются переводы, пока в них участвует не больше
+ * {@link #MAX_LOCKED_ACCOUNTS} разных счетов. Для группы мониторы всех её счетов берутся один
+ * раз в порядке возрастания id (как в {@link ConcurrentBank#transfer(BankAccount, BankAccount,
+ * long)}, поэтому дедлоков нет). Под ними переводы группы по очереди проигрываются на
+ * локальной копии балансов, что даёт тот же результат и ту же проверку остатка, что и
+ * последовательные вызовы {@code transfer}, а затем каждый счёт получает одно итоговое
+ * изменение. Ограничение размера группы ограничивает глубину вложенных {@code synchronized}.
+ * <p>
+ * Счета группы ищутся в небольшой хеш-таблице с открытой адресацией по id, а порядок
+ * блокировок получается сортировкой упакованных {@code long}: без boxing и компараторов
+ * накладные расходы пакета не превышают стоимости обычного перевода.
+ */
+final class TransferBatch {
+
+  static final int MAX_LOCKED_ACCOUNTS = 256;
+
+  private static final int TABLE_SIZE = MAX_LOCKED_ACCOUNTS * 4;
+  private static final int SLOT_BITS = 16;
+
+  private final AccountStore accounts;
+  private final SnapshotEpoch epoch;
+  private final BankJournal journal;
+  private final List<Transfer> transfers;
+  private final TransferResult[] results;
+  private final int[] fromSlots;
+  private final int[] toSlots;
+  /**
+   * Хеш-таблица id счёта -> слот в группе; пустая ячейка хранит 0 (id начинаются с 1).
+   */
+  private final long[] tableIds = new long[TABLE_SIZE];
+  private final int[] tableSlots = new int[TABLE_SIZE];
+  private final BankAccount[] group = new BankAccount[MAX_LOCKED_ACCOUNTS];
+  private final long[] changedIds;
+  private final long[] changedDeltas;
+  private int groupSize;
+  private long journalTicket;
+
+  /**
+   * @param journal журнал долговечного банка или {@code null}
+   */
+  TransferBatch(AccountStore accounts, SnapshotEpoch epoch, BankJournal journal,
+      List<Transfer> transfers) {
+    this.accounts = accounts;
+    this.epoch = epoch;
+    this.journal = journal;
+    this.changedIds = journal == null ? null : new long[MAX_LOCKED_ACCOUNTS];
+    this.changedDeltas = journal == null ? null : new long[MAX_LOCKED_ACCOUNTS];
+    this.transfers = transfers;
+    this.results = new TransferResult[transfers.size()];
+    this.fromSlots = new int[transfers.size()];
+    this.toSlots = new int[transfers.size()];
+  }
+
+  List<TransferResult> execute() {
+    int groupStart = 0;
+    for (int i = 0; i < transfers.size(); i++) {
+      Transfer transfer = transfers.get(i);
+      BankAccount from = accounts.get(transfer.fromId());
+      BankAccount to = accounts.get(transfer.toId());
+      if (from == null || to == null) {
+        results[i] = TransferResult.ACCOUNT_NOT_FOUND;
+        continue;
+      }
+      if (from == to) {
+        results[i] = TransferResult.SUCCESS;
+        continue;
+      }
+      int newAccounts = (find(from.getId()) < 0 ? 1 : 0) + (find(to.getId()) < 0 ? 1 : 0);
+      if (groupSize + newAccounts > MAX_LOCKED_ACCOUNTS) {
+        applyGroup(groupStart, i);
+        groupStart = i;
+      }
+      fromSlots[i] = slotOf(from);
+      toSlots[i] = slotOf(to);
+    }
+    applyGroup(groupStart, transfers.size());
+    return Arrays.asList(results);
+  }
+
+  /**
+   * Номер последней записи пакета в журнале для {@link BankJournal#awaitDurable(long)}; 0, если
+   * пакет ничего не записал.
+   */
+  long journalTicket() {
+    return journalTicket;
+  }
+
+  private int find(long id) {
+    int cell = cellOf(id);
+    while (tableIds[cell] != 0) {
+      if (tableIds[cell] == id) {
+        return tableSlots[cell];
+      }
+      cell = (cell + 1) & (TABLE_SIZE - 1);
+    }
+    return -1;
+  }
+
+  private int slotOf(BankAccount account) {
+    long id = account.getId();
+    int cell = cellOf(id);
+    while (tableIds[cell] != 0) {
+      if (tableIds[cell] == id) {
+        return tableSlots[cell];
+      }
+      cell = (cell + 1) & (TABLE_SIZE - 1);
+    }
+    int slot = groupSize++;
+    tableIds[cell] = id;
+    tableSlots[cell] = slot;
+    group[slot] = account;
+    return slot;
+  }
+
+  private static int cellOf(long id) {
+    return (int) (id * 0x9E3779B97F4A7C15L >>> 54) & (TABLE_SIZE - 1);
+  }
+
+  private void applyGroup(int start, int end) {
+    if (groupSize == 0) {
+      return;
+    }
+    // id счёта в старших битах, слот в младших: сортировка чисел даёт порядок по id.
+    long[] order = new long[groupSize];
+    for (int slot = 0; slot < groupSize; slot++) {
+      order[slot] = group[slot].getId() << SLOT_BITS | slot;
+    }
+    Arrays.sort(order);
+    BankAccount[] lockOrder = new BankAccount[groupSize];
+    for (int i = 0; i < groupSize; i++) {
+      lockOrder[i] = group[(int) (order[i] & ((1 << SLOT_BITS) - 1))];
+    }
+    lockAndApply(lockOrder, 0, start, end);
+    Arrays.fill(tableIds, 0);
+    Arrays.fill(group, 0, groupSize, null);
+    groupSize = 0;
+  }
+
+  private void lockAndApply(BankAccount[] lockOrder, int next, int start, int end) {
+    if (next == lockOrder.length) {
+      apply(start, end);
+      return;
+    }
+    synchronized (lockOrder[next]) {
+      lockAndApply(lockOrder, next + 1, start, end);
+    }
+  }
+
+  /**
+   * Проигрывает переводы группы на копии балансов и записывает итоговые изменения.
+   * Вызывается под мониторами всех счетов группы.
+   */
+  private void apply(int start, int end) {
+    long[] initial = new long[groupSize];
+    for (int slot = 0; slot < groupSize; slot++) {
+      initial[slot] = group[slot].getBalanceLocked();
+    }
+    long[] balances = initial.clone();
+    for (int i = start; i < end; i++) {
+      if (results[i] != null) {
+        continue;
+      }
+      long amount = transfers.get(i).amount();
+      if (balances[fromSlots[i]] >= amount) {
+        balances[fromSlots[i]] -= amount;
+        balances[toSlots[i]] += amount;
+        results[i] = TransferResult.SUCCESS;
+      } else {
+        results[i] = TransferResult.INSUFFICIENT_FUNDS;
+      }
+    }
+    // Одна эпоха на всю группу: снимок увидит группу целиком или не увидит вовсе.
+    long groupEpoch = epoch.current();
+    int changed = 0;
+    for (int slot = 0; slot < balances.length; slot++) {
+      long delta = balances[slot] - initial[slot];
+      if (delta != 0) {
+        group[slot].adjustLocked(delta, groupEpoch);
+        if (journal != null) {
+          changedIds[changed] = group[slot].getId();
+          changedDeltas[changed++] = delta;
+        }
+      }
+    }
+    // Группа пишется одной записью с итоговыми изменениями, пока мониторы ещё взяты.
+    if (changed > 0) {
+      journalTicket = journal.appendDeltas(groupEpoch, changedIds, changedDeltas, changed);
+    }
+  }
+}
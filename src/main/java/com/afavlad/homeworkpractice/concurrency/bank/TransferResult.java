@@ -0,0 +1,22 @@
+package com.afavlad.homeworkpractice.concurrency.bank;
+
+/**
+ * Результат одного перевода пакета.
+ */
+public enum TransferResult {
+
+  /**
+   * Перевод выполнен (перевод на тот же счёт считается выполненным и ничего не меняет).
+   */
+  SUCCESS,
+
+  /**
+   * На счёте-источнике не хватило средств, балансы не изменены.
+   */
+  INSUFFICIENT_FUNDS,
+
+  /**
+   * Одного из счетов не существует, балансы не изменены.
+   */
+  ACCOUNT_NOT_FOUND
+}
@@ -2,12 +2,15 @@ package com.afavlad.homeworkpractice.concurrency.impl;
 
 import com.afavlad.homeworkpractice.concurrency.CustomBlockingQueue;
 import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.Queue;
+import java.util.concurrent.TimeUnit;
 
 public class CustomBlockingQueueImpl<T> implements CustomBlockingQueue<T> {
 
   private final Queue<T> queue = new ArrayDeque<>();
   private final int capacity;
+  private boolean closed;
 
   public CustomBlockingQueueImpl(int capacity) {
     if(capacity <= 0) {
@@ -18,16 +21,18 @@ public class CustomBlockingQueueImpl<T> implements CustomBlockingQueue<T> {
 
   @Override
   public synchronized void enqueue(T element) throws InterruptedException {
-    while (queue.size() == capacity) {
+    checkElement(element);
+    while (queue.size() == capacity && !closed) {
       wait();
     }
+    checkOpen();
     queue.add(element);
     notifyAll();
   }
 
   @Override
   public synchronized T dequeue() throws InterruptedException {
-    while (queue.isEmpty()) {
+    while (queue.isEmpty() && !closed) {
       wait();
     }
     T item = queue.poll();
@@ -39,4 +44,124 @@ public class CustomBlockingQueueImpl<T> implements CustomBlockingQueue<T> {
   public synchronized int size() {
     return queue.size();
   }
+
+  @Override
+  public synchronized boolean tryEnqueue(T element) {
+    checkElement(element);
+    checkOpen();
+    if (queue.size() == capacity) {
+      return false;
+    }
+    queue.add(element);
+    notifyAll();
+    return true;
+  }
+
+  @Override
+  public synchronized boolean offer(T element, long timeout, TimeUnit unit) throws InterruptedException {
+    checkElement(element);
+    long nanos = unit.toNanos(timeout);
+    long deadline = System.nanoTime() + nanos;
+    while (queue.size() == capacity && !closed) {
+      if (nanos <= 0) {
+        return false;
+      }
+      TimeUnit.NANOSECONDS.timedWait(this, nanos);
+      nanos = deadline - System.nanoTime();
+    }
+    checkOpen();
+    queue.add(element);
+    notifyAll();
+    return true;
+  }
+
+  @Override
+  public synchronized T poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    long deadline = System.nanoTime() + nanos;
+    while (queue.isEmpty() && !closed) {
+      if (nanos <= 0) {
+        return null;
+      }
+      TimeUnit.NANOSECONDS.timedWait(this, nanos);
+      nanos = deadline - System.nanoTime();
+    }
+    T item = queue.poll();
+    notifyAll();
+    return item;
+  }
+
+  /**
+   * Переносит элементы за одно получение монитора и будит ожидающих один раз.
+   */
+  @Override
+  public synchronized int drainTo(Collection<? super T> target, int maxElements) {
+    if (target == this) {
+      throw new IllegalArgumentException("Cannot drain a queue into itself");
+    }
+    int count = Math.min(maxElements, queue.size());
+    int drained = 0;
+    try {
+      while (drained < count) {
+        // Сначала добавляем в target: если он бросит исключение, элемент останется в очереди.
+        target.add(queue.peek());
+        queue.poll();
+        drained++;
+      }
+    } finally {
+      if (drained > 0) {
+        notifyAll();
+      }
+    }
+    return drained;
+  }
+
+  /**
+   * Добавляет элементы, пока есть место, и будит потребителей один раз на каждую такую порцию.
+   */
+  @Override
+  public synchronized void enqueueAll(Collection<? extends T> elements) throws InterruptedException {
+    for (T element : elements) {
+      checkElement(element);
+    }
+    boolean added = false;
+    for (T element : elements) {
+      while (queue.size() == capacity && !closed) {
+        if (added) {
+          notifyAll();
+          added = false;
+        }
+        wait();
+      }
+      checkOpen();
+      queue.add(element);
+      added = true;
+    }
+    if (added) {
+      notifyAll();
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    notifyAll();
+  }
+
+  @Override
+  public synchronized boolean isClosed() {
+    return closed;
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("Queue is closed");
+    }
+  }
+
+  private static void checkElement(Object element) {
+    if (element == null) {
+      throw new NullPointerException("Element must not be null");
+    }
+  }
 }
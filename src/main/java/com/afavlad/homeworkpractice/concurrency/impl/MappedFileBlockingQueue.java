@@ -0,0 +1,554 @@
+package com.afavlad.homeworkpractice.concurrency.impl;
+
+import com.afavlad.homeworkpractice.concurrency.CustomBlockingQueue;
+import com.afavlad.homeworkpractice.concurrency.Serializer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Ограниченная очередь, хранящая элементы в отображённых в память файлах-сегментах.
+ * <p>
+ * Элементы сериализуются через {@link Serializer} и дописываются в конец текущего сегмента
+ * записями {@code [длина + 1][CRC32C][данные]} (ноль зарезервирован под маркер конца). Запись
+ * публикуется последней записью поля длины, а после неё всегда стоит нулевой маркер конца.
+ * Когда сегмент заполняется, в него пишется маркер перехода и запись продолжается в следующем.
+ * Прочитанные сегменты не удаляются сразу, а оставляются про запас и переиспользуются, чтобы не
+ * создавать и не обнулять новые файлы.
+ * <p>
+ * ОС сбрасывает страницы отображения на диск в произвольном порядке, поэтому после сбоя ОС поле
+ * длины может оказаться на диске без данных, а маркер конца — потеряться. Контрольная сумма
+ * считается по номеру сегмента и данным: при восстановлении недописанная запись не проходит
+ * проверку, а старые записи из переиспользованного файла — тоже, потому что были записаны под
+ * другим номером сегмента.
+ * <p>
+ * Позиция чтения хранится в отдельном отображённом файле и обновляется при каждом извлечении.
+ * Содержимое страниц сохраняется ОС даже при аварийном завершении процесса; принудительный
+ * сброс на диск ({@link MappedByteBuffer#force()}) выполняется не чаще раза в syncInterval и
+ * при {@link #sync()}/{@link #close()}. После сбоя ОС элементы, извлечённые после последнего
+ * сброса, могут быть выданы повторно.
+ * <p>
+ * При создании очередь восстанавливает состояние из каталога: находит позицию чтения и
+ * просматривает записи до маркера конца.
+ *
+ * @param <T> тип элементов; {@code null} не допускается
+ */
+public class MappedFileBlockingQueue<T> implements CustomBlockingQueue<T> {
+
+  public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  private static final int MARKER_SIZE = Integer.BYTES;
+  private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+  private static final int END_OF_DATA = 0;
+  private static final int NEXT_SEGMENT = -1;
+  private static final int MAX_SPARE_SEGMENTS = 2;
+  private static final String SEGMENT_SUFFIX = ".seg";
+  private static final String SPARE_PREFIX = "spare-";
+  private static final String META_FILE = "queue.meta";
+
+  private final Path directory;
+  private final int capacity;
+  private final Serializer<T> serializer;
+  private final int segmentSize;
+  private final long syncIntervalNanos;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+
+  private final MappedByteBuffer meta;
+  private final CRC32C checksum = new CRC32C();
+  private final Deque<Path> spareSegments = new ArrayDeque<>();
+  private long writeSegment;
+  private int writeOffset;
+  private MappedByteBuffer writeBuffer;
+  private long readSegment;
+  private int readOffset;
+  private MappedByteBuffer readBuffer;
+  private int count;
+  private long lastSync = System.nanoTime();
+  private boolean closed;
+
+  public MappedFileBlockingQueue(Path directory, int capacity, Serializer<T> serializer)
+      throws IOException {
+    this(directory, capacity, serializer, DEFAULT_SEGMENT_SIZE, 1, TimeUnit.SECONDS);
+  }
+
+  /**
+   * @param directory    каталог с файлами очереди; создаётся, если его нет
+   * @param capacity     максимальное количество элементов в очереди
+   * @param serializer   способ преобразования элементов в байты
+   * @param segmentSize  размер одного файла-сегмента в байтах
+   * @param syncInterval как часто принудительно сбрасывать данные на диск
+   * @param unit         единица измерения syncInterval
+   */
+  public MappedFileBlockingQueue(Path directory, int capacity, Serializer<T> serializer,
+      int segmentSize, long syncInterval, TimeUnit unit) throws IOException {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be greater than zero");
+    }
+    if (segmentSize < 64 || segmentSize % Long.BYTES != 0) {
+      throw new IllegalArgumentException("Segment size must be >= 64 and a multiple of 8");
+    }
+    if (serializer == null) {
+      throw new IllegalArgumentException("Serializer must not be null");
+    }
+    this.directory = directory;
+    this.capacity = capacity;
+    this.serializer = serializer;
+    this.segmentSize = segmentSize;
+    this.syncIntervalNanos = unit.toNanos(syncInterval);
+
+    Files.createDirectories(directory);
+    this.meta = map(directory.resolve(META_FILE), Long.BYTES);
+    recover();
+  }
+
+  @Override
+  public void enqueue(T element) throws InterruptedException {
+    byte[] record = serialize(element);
+    lock.lockInterruptibly();
+    try {
+      while (count >= capacity) {
+        checkOpen();
+        notFull.await();
+      }
+      checkOpen();
+      append(record);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public T dequeue() throws InterruptedException {
+    byte[] record;
+    lock.lockInterruptibly();
+    try {
+      while (count == 0) {
+        if (closed) {
+          return null;
+        }
+        notEmpty.await();
+      }
+      record = take();
+    } finally {
+      lock.unlock();
+    }
+    return serializer.deserialize(record);
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean tryEnqueue(T element) {
+    byte[] record = serialize(element);
+    lock.lock();
+    try {
+      checkOpen();
+      if (count >= capacity) {
+        return false;
+      }
+      append(record);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean offer(T element, long timeout, TimeUnit unit) throws InterruptedException {
+    byte[] record = serialize(element);
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (count >= capacity) {
+        checkOpen();
+        if (nanos <= 0) {
+          return false;
+        }
+        nanos = notFull.awaitNanos(nanos);
+      }
+      checkOpen();
+      append(record);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    byte[] record;
+    lock.lockInterruptibly();
+    try {
+      while (count == 0) {
+        if (closed || nanos <= 0) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos(nanos);
+      }
+      record = take();
+    } finally {
+      lock.unlock();
+    }
+    return serializer.deserialize(record);
+  }
+
+  /**
+   * Читает записи за одно получение блокировки, а десериализует уже после её освобождения.
+   */
+  @Override
+  public int drainTo(Collection<? super T> target, int maxElements) {
+    if (target == this) {
+      throw new IllegalArgumentException("Cannot drain a queue into itself");
+    }
+    List<byte[]> records = new ArrayList<>();
+    lock.lock();
+    try {
+      while (records.size() < maxElements && count > 0) {
+        records.add(take());
+      }
+    } finally {
+      lock.unlock();
+    }
+    for (byte[] record : records) {
+      target.add(serializer.deserialize(record));
+    }
+    return records.size();
+  }
+
+  @Override
+  public void enqueueAll(Collection<? extends T> elements) throws InterruptedException {
+    List<byte[]> records = new ArrayList<>(elements.size());
+    for (T element : elements) {
+      records.add(serialize(element));
+    }
+    lock.lockInterruptibly();
+    try {
+      for (byte[] record : records) {
+        while (count >= capacity) {
+          checkOpen();
+          notFull.await();
+        }
+        checkOpen();
+        append(record);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Закрывает очередь для записи и сбрасывает данные на диск. Оставшиеся элементы можно дочитать
+   * сейчас или после повторного открытия каталога.
+   */
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      if (!closed) {
+        closed = true;
+        forceAll();
+      }
+      notEmpty.signalAll();
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean isClosed() {
+    lock.lock();
+    try {
+      return closed;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Принудительно сбрасывает записанные данные и позицию чтения на диск.
+   */
+  public void sync() {
+    lock.lock();
+    try {
+      forceAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  private byte[] serialize(T element) {
+    if (element == null) {
+      throw new NullPointerException("Element must not be null");
+    }
+    byte[] record = serializer.serialize(element);
+    if (recordSize(record.length) + MARKER_SIZE > segmentSize) {
+      throw new IllegalArgumentException(
+          "Serialized element of " + record.length + " bytes does not fit into a segment");
+    }
+    return record;
+  }
+
+  /**
+   * Дописывает запись. Вызывается под блокировкой, когда есть место.
+   * <p>
+   * Порядок важен: сначала данные, контрольная сумма и маркер конца за записью, и только потом
+   * длина — она и публикует запись.
+   */
+  private void append(byte[] record) {
+    int size = recordSize(record.length);
+    if (writeOffset + size + MARKER_SIZE > segmentSize) {
+      rollover();
+    }
+    writeBuffer.put(writeOffset + RECORD_HEADER_SIZE, record);
+    writeBuffer.putInt(writeOffset + Integer.BYTES, checksum(writeSegment, record));
+    writeBuffer.putInt(writeOffset + size, END_OF_DATA);
+    writeBuffer.putInt(writeOffset, record.length + 1);
+    writeOffset += size;
+    count++;
+    notEmpty.signal();
+    maybeSync();
+  }
+
+  /**
+   * Забирает первую запись. Вызывается под блокировкой, когда очередь не пуста.
+   */
+  private byte[] take() {
+    int header = readBuffer.getInt(readOffset);
+    if (header == NEXT_SEGMENT) {
+      advanceReadSegment();
+      header = readBuffer.getInt(readOffset);
+    }
+    int length = header - 1;
+    byte[] record = new byte[length];
+    readBuffer.get(readOffset + RECORD_HEADER_SIZE, record);
+    readOffset += recordSize(length);
+    meta.putLong(0, position(readSegment, readOffset));
+    count--;
+    notFull.signal();
+    maybeSync();
+    return record;
+  }
+
+  /**
+   * Переход записи в следующий сегмент. Новый сегмент полностью готовится и его маркер конца
+   * сбрасывается на диск до того, как в старый пишется маркер перехода: иначе после сбоя ОС
+   * переход мог бы привести в файл, где в начале ещё лежат старые записи.
+   */
+  private void rollover() {
+    try {
+      writeBuffer.force();
+      MappedByteBuffer next = prepareSegment(writeSegment + 1);
+      writeBuffer.putInt(writeOffset, NEXT_SEGMENT);
+      writeBuffer.force();
+      writeSegment++;
+      writeOffset = 0;
+      writeBuffer = next;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot create segment " + (writeSegment + 1), e);
+    }
+  }
+
+  private void advanceReadSegment() {
+    Path finished = segmentPath(readSegment);
+    readSegment++;
+    readOffset = 0;
+    try {
+      readBuffer = readSegment == writeSegment ? writeBuffer : map(segmentPath(readSegment), segmentSize);
+      meta.putLong(0, position(readSegment, readOffset));
+      meta.force();
+      recycle(finished);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot switch to segment " + readSegment, e);
+    }
+  }
+
+  /**
+   * Создаёт файл сегмента или переименовывает запасной и пишет маркер конца в начало: в
+   * переиспользуемом файле лежат старые записи. Маркер сразу сбрасывается на диск.
+   */
+  private MappedByteBuffer prepareSegment(long segment) throws IOException {
+    Path path = segmentPath(segment);
+    Path spare = spareSegments.poll();
+    if (spare != null) {
+      Files.move(spare, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+    MappedByteBuffer buffer = map(path, segmentSize);
+    buffer.putInt(0, END_OF_DATA);
+    buffer.force();
+    return buffer;
+  }
+
+  private void recycle(Path finished) throws IOException {
+    if (spareSegments.size() < MAX_SPARE_SEGMENTS) {
+      Path spare = directory.resolve(SPARE_PREFIX + finished.getFileName());
+      Files.move(finished, spare, StandardCopyOption.REPLACE_EXISTING);
+      spareSegments.add(spare);
+    } else {
+      Files.deleteIfExists(finished);
+    }
+  }
+
+  /**
+   * Восстанавливает позиции чтения и записи по файлам каталога.
+   */
+  private void recover() throws IOException {
+    List<Long> segments = new ArrayList<>();
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        String name = file.getFileName().toString();
+        if (name.startsWith(SPARE_PREFIX)) {
+          spareSegments.add(file);
+        } else if (name.endsWith(SEGMENT_SUFFIX)) {
+          segments.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+        }
+      }
+    }
+    segments.sort(null);
+
+    long position = meta.getLong(0);
+    readSegment = position >>> 32;
+    readOffset = (int) position;
+    if (segments.isEmpty() || !segments.contains(readSegment)) {
+      readSegment = segments.isEmpty() ? 0 : segments.get(0);
+      readOffset = 0;
+    }
+    for (long segment : segments) {
+      if (segment < readSegment) {
+        recycle(segmentPath(segment));
+      }
+    }
+    if (segments.isEmpty()) {
+      prepareSegment(readSegment);
+      meta.putLong(0, position(readSegment, 0));
+    }
+
+    writeSegment = readSegment;
+    writeOffset = readOffset;
+    writeBuffer = map(segmentPath(writeSegment), segmentSize);
+    readBuffer = writeBuffer;
+    while (true) {
+      int header = writeBuffer.getInt(writeOffset);
+      if (header == NEXT_SEGMENT && segments.contains(writeSegment + 1)) {
+        writeSegment++;
+        writeOffset = 0;
+        writeBuffer = map(segmentPath(writeSegment), segmentSize);
+      } else if (header > 0 && header <= segmentSize
+          && writeOffset + recordSize(header - 1) + MARKER_SIZE <= segmentSize
+          && isIntact(header - 1)) {
+        writeOffset += recordSize(header - 1);
+        count++;
+      } else {
+        // Маркер конца, недописанный переход, повреждённая длина, недописанная или старая
+        // запись: дальше данных нет.
+        writeBuffer.putInt(writeOffset, END_OF_DATA);
+        break;
+      }
+    }
+    for (long segment : segments) {
+      if (segment > writeSegment) {
+        Files.deleteIfExists(segmentPath(segment));
+      }
+    }
+  }
+
+  /**
+   * Совпадает ли контрольная сумма записи по смещению {@code writeOffset} в текущем сегменте
+   * с её данными.
+   */
+  private boolean isIntact(int length) {
+    byte[] record = new byte[length];
+    writeBuffer.get(writeOffset + RECORD_HEADER_SIZE, record);
+    return writeBuffer.getInt(writeOffset + Integer.BYTES) == checksum(writeSegment, record);
+  }
+
+  /**
+   * CRC32C номера сегмента и данных записи. Вызывается под блокировкой.
+   */
+  private int checksum(long segment, byte[] record) {
+    checksum.reset();
+    for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+      checksum.update((int) (segment >>> shift));
+    }
+    checksum.update(record);
+    return (int) checksum.getValue();
+  }
+
+  private void maybeSync() {
+    if (System.nanoTime() - lastSync >= syncIntervalNanos) {
+      forceAll();
+    }
+  }
+
+  private void forceAll() {
+    writeBuffer.force();
+    if (readBuffer != writeBuffer) {
+      readBuffer.force();
+    }
+    meta.force();
+    lastSync = System.nanoTime();
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("Queue is closed");
+    }
+  }
+
+  private Path segmentPath(long segment) {
+    return directory.resolve(String.format("%020d%s", segment, SEGMENT_SUFFIX));
+  }
+
+  private static long position(long segment, int offset) {
+    return segment << 32 | offset;
+  }
+
+  /**
+   * Записи выравниваются по 8 байт, чтобы поле длины не пересекало границу слова.
+   */
+  private static int recordSize(int length) {
+    return (RECORD_HEADER_SIZE + length + Long.BYTES - 1) & -Long.BYTES;
+  }
+
+  /**
+   * Файл расширяется до нужного размера (новые байты — нули) и отображается целиком. Канал
+   * можно закрыть сразу: отображение остаётся действительным.
+   */
+  private static MappedByteBuffer map(Path path, int size) throws IOException {
+    try (FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package com.afavlad.homeworkpractice.concurrency.impl;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Счётчик {@code long}, отделённый от соседних полей заполнителями.
+ * <p>
+ * Голова и хвост очереди меняются разными потоками; если они окажутся в одной кэш-линии, каждая
+ * запись будет сбрасывать кэш у другой стороны (false sharing). Заполнители вынесены в
+ * суперклассы, потому что JVM не переставляет поля между уровнями иерархии.
+ */
+final class PaddedCounter extends PaddedCounterValue {
+
+  long p9, p10, p11, p12, p13, p14, p15;
+
+  PaddedCounter(long initialValue) {
+    VALUE.setRelease(this, initialValue);
+  }
+
+  long get() {
+    return (long) VALUE.getVolatile(this);
+  }
+
+  void set(long newValue) {
+    VALUE.setVolatile(this, newValue);
+  }
+
+  boolean compareAndSet(long expected, long newValue) {
+    return VALUE.compareAndSet(this, expected, newValue);
+  }
+}
+
+abstract class PaddedCounterValue extends PaddedCounterLeftPadding {
+
+  static final VarHandle VALUE;
+
+  static {
+    try {
+      VALUE = MethodHandles.lookup().findVarHandle(PaddedCounterValue.class, "value", long.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  volatile long value;
+}
+
+abstract class PaddedCounterLeftPadding {
+
+  long p1, p2, p3, p4, p5, p6, p7;
+}
@@ -0,0 +1,344 @@
+package com.afavlad.homeworkpractice.concurrency.impl;
+
+import com.afavlad.homeworkpractice.concurrency.CustomBlockingQueue;
+import com.afavlad.homeworkpractice.metrics.LatencyHistogram;
+import java.util.Collection;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Ограниченная очередь, которая выдаёт элементы в порядке ближайшего срока (earliest deadline
+ * first), а не в порядке добавления.
+ * <p>
+ * Срок элемента вычисляется в момент, когда элемент попадает в очередь (а не когда производитель
+ * начал ждать свободного места):
+ * <ul>
+ *     <li>из приоритета: {@code момент добавления + priority × agingStep}, где 0 — самый высокий
+ *         приоритет;</li>
+ *     <li>из явного срока, если задана функция deadlineOf и она вернула более ранний момент.</li>
+ * </ul>
+ * Поэтому срочные элементы обгоняют фоновые, но фоновый элемент, прождавший дольше
+ * {@code priority × agingStep}, обгонит любой новый элемент — голодания нет. При равных сроках
+ * сохраняется порядок добавления.
+ * <p>
+ * Элементы хранятся в двоичной куче под одной блокировкой: добавление и извлечение за O(log n).
+ * Для каждого уровня приоритета собирается гистограмма времени ожидания в очереди
+ * ({@link #getLatency(int)}).
+ *
+ * @param <T> тип элементов; {@code null} не допускается
+ */
+public class PriorityDeadlineBlockingQueue<T> implements CustomBlockingQueue<T> {
+
+  private final int capacity;
+  private final ToIntFunction<? super T> priorityOf;
+  private final ToLongFunction<? super T> deadlineOf;
+  private final long agingStepNanos;
+  private final LatencyHistogram[] latencies;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+  private final PriorityQueue<Entry<T>> heap = new PriorityQueue<>();
+  private long sequence;
+  private boolean closed;
+
+  /**
+   * @param capacity       ёмкость очереди
+   * @param priorityLevels количество уровней приоритета; приоритет элемента от 0 (высший) до
+   *                       priorityLevels - 1
+   * @param priorityOf     функция, определяющая приоритет элемента
+   * @param agingStep      на сколько откладывается срок с каждым уровнем приоритета
+   * @param unit           единица измерения agingStep
+   */
+  public PriorityDeadlineBlockingQueue(int capacity, int priorityLevels,
+      ToIntFunction<? super T> priorityOf, long agingStep, TimeUnit unit) {
+    this(capacity, priorityLevels, priorityOf, element -> Long.MAX_VALUE, agingStep, unit);
+  }
+
+  /**
+   * @param deadlineOf функция, возвращающая крайний срок элемента в шкале
+   *                   {@link System#nanoTime()} или {@link Long#MAX_VALUE}, если срока нет
+   */
+  public PriorityDeadlineBlockingQueue(int capacity, int priorityLevels,
+      ToIntFunction<? super T> priorityOf, ToLongFunction<? super T> deadlineOf,
+      long agingStep, TimeUnit unit) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be greater than zero");
+    }
+    if (priorityLevels <= 0) {
+      throw new IllegalArgumentException("Priority levels must be greater than zero");
+    }
+    if (agingStep < 0) {
+      throw new IllegalArgumentException("Aging step must be >= 0");
+    }
+    if (priorityOf == null || deadlineOf == null || unit == null) {
+      throw new IllegalArgumentException("Functions and time unit must not be null");
+    }
+    this.capacity = capacity;
+    this.priorityOf = priorityOf;
+    this.deadlineOf = deadlineOf;
+    this.agingStepNanos = unit.toNanos(agingStep);
+    this.latencies = new LatencyHistogram[priorityLevels];
+    for (int i = 0; i < priorityLevels; i++) {
+      latencies[i] = new LatencyHistogram();
+    }
+  }
+
+  @Override
+  public void enqueue(T element) throws InterruptedException {
+    Entry<T> entry = newEntry(element);
+    lock.lockInterruptibly();
+    try {
+      while (heap.size() == capacity) {
+        checkOpen();
+        notFull.await();
+      }
+      checkOpen();
+      insert(entry);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public T dequeue() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (heap.isEmpty()) {
+        if (closed) {
+          return null;
+        }
+        notEmpty.await();
+      }
+      return extract();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return heap.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean tryEnqueue(T element) {
+    Entry<T> entry = newEntry(element);
+    lock.lock();
+    try {
+      checkOpen();
+      if (heap.size() == capacity) {
+        return false;
+      }
+      insert(entry);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean offer(T element, long timeout, TimeUnit unit) throws InterruptedException {
+    Entry<T> entry = newEntry(element);
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (heap.size() == capacity) {
+        checkOpen();
+        if (nanos <= 0) {
+          return false;
+        }
+        nanos = notFull.awaitNanos(nanos);
+      }
+      checkOpen();
+      insert(entry);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (heap.isEmpty()) {
+        if (closed || nanos <= 0) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos(nanos);
+      }
+      return extract();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int drainTo(Collection<? super T> target, int maxElements) {
+    if (target == this) {
+      throw new IllegalArgumentException("Cannot drain a queue into itself");
+    }
+    lock.lock();
+    try {
+      int drained = 0;
+      while (drained < maxElements && !heap.isEmpty()) {
+        target.add(heap.peek().element);
+        extract();
+        drained++;
+      }
+      return drained;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void enqueueAll(Collection<? extends T> elements) throws InterruptedException {
+    Entry<?>[] entries = new Entry<?>[elements.size()];
+    int count = 0;
+    for (T element : elements) {
+      entries[count++] = newEntry(element);
+    }
+    lock.lockInterruptibly();
+    try {
+      for (int i = 0; i < count; i++) {
+        while (heap.size() == capacity) {
+          checkOpen();
+          notFull.await();
+        }
+        checkOpen();
+        @SuppressWarnings("unchecked")
+        Entry<T> entry = (Entry<T>) entries[i];
+        insert(entry);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      closed = true;
+      notEmpty.signalAll();
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean isClosed() {
+    lock.lock();
+    try {
+      return closed;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getPriorityLevels() {
+    return latencies.length;
+  }
+
+  /**
+   * Гистограмма времени от добавления до извлечения для элементов с данным приоритетом.
+   */
+  public LatencyHistogram getLatency(int priority) {
+    checkPriority(priority);
+    return latencies[priority];
+  }
+
+  /**
+   * Приоритет и явный срок вычисляются до захвата блокировки, поэтому пользовательские функции
+   * не выполняются под ней.
+   */
+  private Entry<T> newEntry(T element) {
+    if (element == null) {
+      throw new NullPointerException("Element must not be null");
+    }
+    int priority = priorityOf.applyAsInt(element);
+    checkPriority(priority);
+    return new Entry<>(element, priority, deadlineOf.applyAsLong(element));
+  }
+
+  /**
+   * Вызывается под блокировкой, когда в куче есть место. Момент добавления берётся здесь, после
+   * ожидания места: время, проведённое производителем в ожидании, не считается ни временем в
+   * очереди, ни старением приоритета.
+   */
+  private void insert(Entry<T> entry) {
+    long now = System.nanoTime();
+    long deadline = now + entry.priority * agingStepNanos;
+    if (entry.explicitDeadline != Long.MAX_VALUE && entry.explicitDeadline - deadline < 0) {
+      deadline = entry.explicitDeadline;
+    }
+    entry.enqueuedAt = now;
+    entry.deadline = deadline;
+    entry.sequence = sequence++;
+    heap.add(entry);
+    notEmpty.signal();
+  }
+
+  /**
+   * Вызывается под блокировкой, когда куча не пуста.
+   */
+  private T extract() {
+    Entry<T> entry = heap.poll();
+    latencies[entry.priority].record(System.nanoTime() - entry.enqueuedAt);
+    notFull.signal();
+    return entry.element;
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("Queue is closed");
+    }
+  }
+
+  private void checkPriority(int priority) {
+    if (priority < 0 || priority >= latencies.length) {
+      throw new IllegalArgumentException(
+          "Priority must be between 0 and " + (latencies.length - 1) + ": " + priority);
+    }
+  }
+
+  private static final class Entry<T> implements Comparable<Entry<T>> {
+    private final T element;
+    private final int priority;
+    private final long explicitDeadline;
+    private long enqueuedAt;
+    private long deadline;
+    private long sequence;
+
+    private Entry(T element, int priority, long explicitDeadline) {
+      this.element = element;
+      this.priority = priority;
+      this.explicitDeadline = explicitDeadline;
+    }
+
+    /**
+     * Сроки сравниваются через разность, как принято для {@link System#nanoTime()}.
+     */
+    @Override
+    public int compareTo(Entry<T> other) {
+      long difference = deadline - other.deadline;
+      if (difference != 0) {
+        return difference < 0 ? -1 : 1;
+      }
+      return Long.compare(sequence, other.sequence);
+    }
+  }
+}
@@ -0,0 +1,537 @@
+package com.afavlad.homeworkpractice.concurrency.impl;
+
+import com.afavlad.homeworkpractice.concurrency.CustomBlockingQueue;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Ограниченная очередь без блокировок на кольцевом массиве (схема Д. Вьюкова).
+ * <p>
+ * У каждой ячейки есть номер последовательности: по нему производитель понимает, что ячейка
+ * свободна, а потребитель — что в ней уже опубликован элемент. Голова и хвост — монотонные
+ * счётчики в отдельных кэш-линиях ({@link PaddedCounter}). В зависимости от {@link Mode} счётчик
+ * стороны, у которой несколько потоков, продвигается через CAS, а у единственного потока —
+ * обычной записью.
+ * <p>
+ * Если операция не может выполниться сразу, поток сначала крутится в цикле, затем уступает
+ * процессор и только потом паркуется. Разбудить парковавшийся поток может лишь тот, кто изменил
+ * очередь в нужную сторону, поэтому пробуждается один поток, а не все.
+ * <p>
+ * Закрытие не ждёт производителей: каждый из них отмечается в счётчике на время попытки
+ * добавить элемент, и потребитель закрытой очереди считает её пустой, только когда этот счётчик
+ * равен нулю. Так не теряется элемент, который производитель успел добавить, проверив
+ * {@code closed} до закрытия.
+ *
+ * @param <T> тип элементов; {@code null} не допускается
+ */
+public class RingBufferBlockingQueue<T> implements CustomBlockingQueue<T> {
+
+  /**
+   * Сколько потоков пишут в очередь и читают из неё. Режимы SPSC и MPSC дешевле, но корректны
+   * только если ограничение действительно соблюдается.
+   */
+  public enum Mode {
+    /** Один производитель, один потребитель. */
+    SPSC(false, false),
+    /** Много производителей, один потребитель. */
+    MPSC(true, false),
+    /** Много производителей, много потребителей. */
+    MPMC(true, true);
+
+    private final boolean multiProducer;
+    private final boolean multiConsumer;
+
+    Mode(boolean multiProducer, boolean multiConsumer) {
+      this.multiProducer = multiProducer;
+      this.multiConsumer = multiConsumer;
+    }
+  }
+
+  private static final int SPIN_TRIES = 128;
+  private static final int YIELD_TRIES = 16;
+
+  private final Mode mode;
+  private final int mask;
+  private final Object[] elements;
+  private final AtomicLongArray sequences;
+  private final PaddedCounter tail = new PaddedCounter(0);
+  private final PaddedCounter head = new PaddedCounter(0);
+  private final Queue<Thread> waitingProducers = new ConcurrentLinkedQueue<>();
+  private final Queue<Thread> waitingConsumers = new ConcurrentLinkedQueue<>();
+  private final LongAdder activeProducers = new LongAdder();
+  private volatile boolean closed;
+
+  public RingBufferBlockingQueue(int capacity) {
+    this(capacity, Mode.MPMC);
+  }
+
+  /**
+   * @param capacity минимальная ёмкость; округляется вверх до степени двойки (не меньше 2)
+   * @param mode     сколько производителей и потребителей будет у очереди
+   */
+  public RingBufferBlockingQueue(int capacity, Mode mode) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be greater than zero");
+    }
+    if (capacity > 1 << 30) {
+      throw new IllegalArgumentException("Capacity must be <= 2^30");
+    }
+    if (mode == null) {
+      throw new IllegalArgumentException("Mode must not be null");
+    }
+    // При одной ячейке номера "свободна" и "занята" для соседних кругов совпадают.
+    int size = Math.max(2, Integer.highestOneBit(capacity));
+    if (size < capacity) {
+      size <<= 1;
+    }
+    this.mode = mode;
+    this.mask = size - 1;
+    this.elements = new Object[size];
+    this.sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  @Override
+  public void enqueue(T element) throws InterruptedException {
+    checkElement(element);
+    int attempts = 0;
+    while (!offer(element)) {
+      attempts = idle(attempts, waitingProducers, this::canEnqueue, false, 0);
+    }
+    afterEnqueue();
+  }
+
+  @Override
+  public T dequeue() throws InterruptedException {
+    int attempts = 0;
+    T element;
+    while ((element = poll()) == null) {
+      if (closed) {
+        element = pollClosed();
+        if (element == null) {
+          return null;
+        }
+        break;
+      }
+      attempts = idle(attempts, waitingConsumers, this::canDequeue, false, 0);
+    }
+    afterDequeue();
+    return element;
+  }
+
+  @Override
+  public int size() {
+    long size = tail.get() - head.get();
+    return (int) Math.max(0, Math.min(size, capacity()));
+  }
+
+  @Override
+  public boolean tryEnqueue(T element) {
+    checkElement(element);
+    if (!offer(element)) {
+      return false;
+    }
+    afterEnqueue();
+    return true;
+  }
+
+  @Override
+  public boolean offer(T element, long timeout, TimeUnit unit) throws InterruptedException {
+    checkElement(element);
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    int attempts = 0;
+    while (!offer(element)) {
+      if (deadline - System.nanoTime() <= 0) {
+        return false;
+      }
+      attempts = idle(attempts, waitingProducers, this::canEnqueue, true, deadline);
+    }
+    afterEnqueue();
+    return true;
+  }
+
+  @Override
+  public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    int attempts = 0;
+    T element;
+    while ((element = poll()) == null) {
+      if (closed) {
+        element = pollClosed();
+        if (element == null) {
+          return null;
+        }
+        break;
+      }
+      if (deadline - System.nanoTime() <= 0) {
+        return null;
+      }
+      attempts = idle(attempts, waitingConsumers, this::canDequeue, true, deadline);
+    }
+    afterDequeue();
+    return element;
+  }
+
+  /**
+   * Забирает элементы подряд без ожидания и будит производителей один раз в конце.
+   * <p>
+   * Если {@code target.add} бросает исключение, элемент остаётся в очереди: с одним
+   * потребителем — в голове, в режиме {@link Mode#MPMC} — в конце, потому что голову к этому
+   * моменту могли сдвинуть другие потребители.
+   */
+  @Override
+  public int drainTo(Collection<? super T> target, int maxElements) {
+    if (target == this) {
+      throw new IllegalArgumentException("Cannot drain a queue into itself");
+    }
+    return mode.multiConsumer
+        ? drainShared(target, maxElements)
+        : drainExclusive(target, maxElements);
+  }
+
+  /**
+   * Добавляет элементы по одному (здесь нет блокировки, которую можно было бы удерживать), но
+   * будит потребителей только перед ожиданием и в конце.
+   */
+  @Override
+  public void enqueueAll(Collection<? extends T> elements) throws InterruptedException {
+    for (T element : elements) {
+      checkElement(element);
+    }
+    boolean added = false;
+    for (T element : elements) {
+      int attempts = 0;
+      while (!offer(element)) {
+        if (added) {
+          signal(waitingConsumers);
+          added = false;
+        }
+        attempts = idle(attempts, waitingProducers, this::canEnqueue, false, 0);
+      }
+      added = true;
+    }
+    if (added) {
+      afterEnqueue();
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    wakeAll(waitingProducers);
+    wakeAll(waitingConsumers);
+  }
+
+  @Override
+  public boolean isClosed() {
+    return closed;
+  }
+
+  public int capacity() {
+    return elements.length;
+  }
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  /**
+   * Одна попытка занять ячейку без ожидания. На время попытки производитель отмечен в
+   * {@link #activeProducers}: отметка ставится до проверки {@code closed}, поэтому
+   * потребитель, увидевший после закрытия нулевой счётчик, уже видит и все принятые элементы.
+   *
+   * @throws IllegalStateException если очередь закрыта
+   */
+  private boolean offer(T element) {
+    activeProducers.increment();
+    try {
+      if (closed) {
+        throw new IllegalStateException("Queue is closed");
+      }
+      return claimAndPublish(element);
+    } finally {
+      activeProducers.decrement();
+    }
+  }
+
+  private boolean claimAndPublish(T element) {
+    long position;
+    int index;
+    if (mode.multiProducer) {
+      while (true) {
+        position = tail.get();
+        index = (int) position & mask;
+        long difference = sequences.get(index) - position;
+        if (difference == 0) {
+          if (tail.compareAndSet(position, position + 1)) {
+            break;
+          }
+        } else if (difference < 0) {
+          return false;
+        }
+      }
+    } else {
+      position = tail.get();
+      index = (int) position & mask;
+      if (sequences.get(index) != position) {
+        return false;
+      }
+      tail.set(position + 1);
+    }
+    elements[index] = element;
+    sequences.set(index, position + 1);
+    return true;
+  }
+
+  @SuppressWarnings("unchecked")
+  private T poll() {
+    long position;
+    int index;
+    if (mode.multiConsumer) {
+      while (true) {
+        position = head.get();
+        index = (int) position & mask;
+        long difference = sequences.get(index) - (position + 1);
+        if (difference == 0) {
+          if (head.compareAndSet(position, position + 1)) {
+            break;
+          }
+        } else if (difference < 0) {
+          return null;
+        }
+      }
+    } else {
+      position = head.get();
+      index = (int) position & mask;
+      if (sequences.get(index) != position + 1) {
+        return null;
+      }
+      head.set(position + 1);
+    }
+    T element = (T) elements[index];
+    elements[index] = null;
+    sequences.set(index, position + mask + 1);
+    return element;
+  }
+
+  /**
+   * Дочитывание после закрытия. Производитель, проверивший {@code closed} до закрытия, мог ещё
+   * не занять ячейку или не опубликовать элемент; такой элемент дожидаемся. Счётчик читается
+   * раньше размера: производитель, отметившийся позже, увидит закрытие и ничего не добавит.
+   */
+  private T pollClosed() {
+    T element;
+    while ((element = poll()) == null) {
+      if (activeProducers.sum() == 0 && size() == 0) {
+        return null;
+      }
+      Thread.onSpinWait();
+    }
+    return element;
+  }
+
+  /**
+   * Перенос с единственным потребителем: элемент сначала добавляется в target и только потом
+   * убирается из очереди.
+   */
+  @SuppressWarnings("unchecked")
+  private int drainExclusive(Collection<? super T> target, int maxElements) {
+    int drained = 0;
+    try {
+      while (drained < maxElements) {
+        long position = head.get();
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+          break;
+        }
+        target.add((T) elements[index]);
+        head.set(position + 1);
+        elements[index] = null;
+        sequences.set(index, position + mask + 1);
+        drained++;
+      }
+    } finally {
+      if (drained > 0) {
+        afterDequeue();
+      }
+    }
+    return drained;
+  }
+
+  /**
+   * Перенос при нескольких потребителях. Занятая ячейка освобождается только после
+   * {@code target.add}; если он бросил исключение, элемент возвращается в конец очереди через
+   * {@link #putBack}. Пока идёт перенос, потребитель отмечен как производитель: закрытая очередь
+   * не считается пустой, пока у него на руках может оказаться элемент.
+   */
+  @SuppressWarnings("unchecked")
+  private int drainShared(Collection<? super T> target, int maxElements) {
+    int drained = 0;
+    activeProducers.increment();
+    try {
+      while (drained < maxElements) {
+        long position;
+        int index;
+        while (true) {
+          position = head.get();
+          index = (int) position & mask;
+          long difference = sequences.get(index) - (position + 1);
+          if (difference == 0) {
+            if (head.compareAndSet(position, position + 1)) {
+              break;
+            }
+          } else if (difference < 0) {
+            return drained;
+          }
+        }
+        T element = (T) elements[index];
+        try {
+          target.add(element);
+        } catch (RuntimeException | Error e) {
+          putBack(position, index, element);
+          signal(waitingConsumers);
+          throw e;
+        }
+        elements[index] = null;
+        sequences.set(index, position + mask + 1);
+        drained++;
+      }
+      return drained;
+    } finally {
+      activeProducers.decrement();
+      if (drained > 0) {
+        afterDequeue();
+      }
+    }
+  }
+
+  /**
+   * Возвращает в конец очереди элемент из ещё не освобождённой ячейки {@code index}, занятой
+   * на позиции {@code position}. Производители не могут пройти эту ячейку на следующем круге,
+   * поэтому хвост либо меньше, и элемент переносится в свободную ячейку, либо дошёл до неё
+   * самой, и элемент публикуется на месте. Закрытие очереди не мешает: элемент уже был принят.
+   */
+  private void putBack(long position, int index, T element) {
+    long own = position + mask + 1;
+    while (true) {
+      long tailPosition = tail.get();
+      if (tailPosition == own) {
+        if (tail.compareAndSet(own, own + 1)) {
+          sequences.set(index, own + 1);
+          return;
+        }
+      } else {
+        int free = (int) tailPosition & mask;
+        if (sequences.get(free) == tailPosition
+            && tail.compareAndSet(tailPosition, tailPosition + 1)) {
+          elements[free] = element;
+          sequences.set(free, tailPosition + 1);
+          elements[index] = null;
+          sequences.set(index, own);
+          return;
+        }
+      }
+      // Ячейку у хвоста ещё освобождает другой потребитель.
+      Thread.onSpinWait();
+    }
+  }
+
+  private boolean canEnqueue() {
+    return closed || size() < capacity();
+  }
+
+  private boolean canDequeue() {
+    return closed || size() > 0;
+  }
+
+  private void afterEnqueue() {
+    signal(waitingConsumers);
+    if (size() < capacity()) {
+      signal(waitingProducers);
+    }
+  }
+
+  private void afterDequeue() {
+    signal(waitingProducers);
+    if (size() > 0) {
+      signal(waitingConsumers);
+    }
+  }
+
+  /**
+   * Одна итерация ожидания: сначала активное ожидание, затем yield, затем парковка.
+   *
+   * @param timed    ограничено ли ожидание по времени
+   * @param deadline момент {@link System#nanoTime()}, после которого ждать не нужно
+   * @return номер следующей попытки
+   */
+  private int idle(int attempts, Queue<Thread> waiters, BooleanSupplier ready, boolean timed,
+      long deadline) throws InterruptedException {
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+    if (attempts < SPIN_TRIES) {
+      Thread.onSpinWait();
+    } else if (attempts < SPIN_TRIES + YIELD_TRIES) {
+      Thread.yield();
+    } else {
+      park(waiters, ready, timed, deadline);
+    }
+    return attempts + 1;
+  }
+
+  /**
+   * Поток сначала регистрируется, затем перепроверяет условие и только потом паркуется. Та
+   * сторона, что меняет очередь, сначала публикует изменение, а затем смотрит на ожидающих, так
+   * что сигнал не теряется.
+   */
+  private void park(Queue<Thread> waiters, BooleanSupplier ready, boolean timed, long deadline)
+      throws InterruptedException {
+    Thread current = Thread.currentThread();
+    waiters.add(current);
+    try {
+      if (!ready.getAsBoolean()) {
+        if (timed) {
+          LockSupport.parkNanos(this, deadline - System.nanoTime());
+        } else {
+          LockSupport.park(this);
+        }
+      }
+    } finally {
+      waiters.remove(current);
+    }
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+  }
+
+  private static void wakeAll(Queue<Thread> waiters) {
+    Thread waiter;
+    while ((waiter = waiters.poll()) != null) {
+      LockSupport.unpark(waiter);
+    }
+  }
+
+  private static void checkElement(Object element) {
+    if (element == null) {
+      throw new NullPointerException("Element must not be null");
+    }
+  }
+
+  private static void signal(Queue<Thread> waiters) {
+    if (!waiters.isEmpty()) {
+      Thread waiter = waiters.poll();
+      if (waiter != null) {
+        LockSupport.unpark(waiter);
+      }
+    }
+  }
+}
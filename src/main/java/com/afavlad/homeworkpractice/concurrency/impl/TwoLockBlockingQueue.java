@@ -0,0 +1,346 @@
+package com.afavlad.homeworkpractice.concurrency.impl;
+
+import com.afavlad.homeworkpractice.concurrency.CustomBlockingQueue;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ограниченная очередь на связном списке с раздельными блокировками для записи и чтения.
+ * <p>
+ * Производители берут только putLock, потребители — только takeLock, поэтому запись и чтение не
+ * мешают друг другу. Вместо {@code notifyAll()} используются условия notFull/notEmpty, и каждая
+ * операция будит ровно одного ожидающего той стороны, которая теперь может продолжить. Если после
+ * операции место (или элементы) ещё остались, поток будит следующего ожидающего своей стороны.
+ * <p>
+ * Когда нужны обе блокировки, они берутся в порядке putLock, затем takeLock.
+ *
+ * @param <T> тип элементов; {@code null} не допускается
+ */
+public class TwoLockBlockingQueue<T> implements CustomBlockingQueue<T> {
+
+  private final int capacity;
+  private final AtomicInteger count = new AtomicInteger();
+
+  private final ReentrantLock putLock = new ReentrantLock();
+  private final Condition notFull = putLock.newCondition();
+  private final ReentrantLock takeLock = new ReentrantLock();
+  private final Condition notEmpty = takeLock.newCondition();
+
+  /**
+   * Голова — пустой узел-заглушка; первый элемент лежит в head.next. Меняется только под takeLock.
+   */
+  private Node<T> head = new Node<>(null);
+
+  /**
+   * Последний узел. Меняется только под putLock.
+   */
+  private Node<T> tail = head;
+
+  /**
+   * Меняется под обеими блокировками, поэтому любую из сторон достаточно проверять под своей.
+   */
+  private volatile boolean closed;
+
+  public TwoLockBlockingQueue(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be greater than zero");
+    }
+    this.capacity = capacity;
+  }
+
+  @Override
+  public void enqueue(T element) throws InterruptedException {
+    Node<T> node = newNode(element);
+    int previousCount;
+    putLock.lockInterruptibly();
+    try {
+      while (count.get() == capacity) {
+        checkOpen();
+        notFull.await();
+      }
+      checkOpen();
+      previousCount = linkAndCascade(node);
+    } finally {
+      putLock.unlock();
+    }
+    if (previousCount == 0) {
+      signalNotEmpty();
+    }
+  }
+
+  @Override
+  public T dequeue() throws InterruptedException {
+    T element;
+    int previousCount;
+    takeLock.lockInterruptibly();
+    try {
+      while (count.get() == 0) {
+        if (closed) {
+          return null;
+        }
+        notEmpty.await();
+      }
+      element = unlink();
+      previousCount = count.getAndDecrement();
+      if (previousCount > 1) {
+        notEmpty.signal();
+      }
+    } finally {
+      takeLock.unlock();
+    }
+    if (previousCount == capacity) {
+      signalNotFull();
+    }
+    return element;
+  }
+
+  @Override
+  public int size() {
+    return count.get();
+  }
+
+  @Override
+  public boolean tryEnqueue(T element) {
+    Node<T> node = newNode(element);
+    int previousCount;
+    putLock.lock();
+    try {
+      checkOpen();
+      if (count.get() == capacity) {
+        return false;
+      }
+      previousCount = linkAndCascade(node);
+    } finally {
+      putLock.unlock();
+    }
+    if (previousCount == 0) {
+      signalNotEmpty();
+    }
+    return true;
+  }
+
+  @Override
+  public boolean offer(T element, long timeout, TimeUnit unit) throws InterruptedException {
+    Node<T> node = newNode(element);
+    long nanos = unit.toNanos(timeout);
+    int previousCount;
+    putLock.lockInterruptibly();
+    try {
+      while (count.get() == capacity) {
+        checkOpen();
+        if (nanos <= 0) {
+          return false;
+        }
+        nanos = notFull.awaitNanos(nanos);
+      }
+      checkOpen();
+      previousCount = linkAndCascade(node);
+    } finally {
+      putLock.unlock();
+    }
+    if (previousCount == 0) {
+      signalNotEmpty();
+    }
+    return true;
+  }
+
+  @Override
+  public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    T element;
+    int previousCount;
+    takeLock.lockInterruptibly();
+    try {
+      while (count.get() == 0) {
+        if (closed || nanos <= 0) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos(nanos);
+      }
+      element = unlink();
+      previousCount = count.getAndDecrement();
+      if (previousCount > 1) {
+        notEmpty.signal();
+      }
+    } finally {
+      takeLock.unlock();
+    }
+    if (previousCount == capacity) {
+      signalNotFull();
+    }
+    return element;
+  }
+
+  /**
+   * Забирает элементы за одно получение takeLock и одно изменение счётчика.
+   */
+  @Override
+  public int drainTo(Collection<? super T> target, int maxElements) {
+    if (target == this) {
+      throw new IllegalArgumentException("Cannot drain a queue into itself");
+    }
+    if (maxElements <= 0) {
+      return 0;
+    }
+    int drained = 0;
+    int previousCount;
+    takeLock.lock();
+    try {
+      int available = Math.min(maxElements, count.get());
+      try {
+        while (drained < available) {
+          // Сначала добавляем в target: если он бросит исключение, элемент останется в очереди.
+          target.add(head.next.item);
+          unlink();
+          drained++;
+        }
+      } finally {
+        previousCount = count.getAndAdd(-drained);
+      }
+      if (previousCount > drained) {
+        notEmpty.signal();
+      }
+    } finally {
+      takeLock.unlock();
+    }
+    if (drained > 0 && previousCount == capacity) {
+      signalNotFull();
+    }
+    return drained;
+  }
+
+  /**
+   * Добавляет элементы под одним putLock, пока есть место; потребителей будит только при переходе
+   * из пустого состояния.
+   */
+  @Override
+  public void enqueueAll(Collection<? extends T> elements) throws InterruptedException {
+    for (T element : elements) {
+      if (element == null) {
+        throw new NullPointerException("Element must not be null");
+      }
+    }
+    putLock.lockInterruptibly();
+    try {
+      for (T element : elements) {
+        while (count.get() == capacity) {
+          checkOpen();
+          notFull.await();
+        }
+        checkOpen();
+        if (link(new Node<>(element)) == 0) {
+          signalNotEmpty();
+        }
+      }
+      if (count.get() < capacity) {
+        notFull.signal();
+      }
+    } finally {
+      putLock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    putLock.lock();
+    takeLock.lock();
+    try {
+      closed = true;
+      notFull.signalAll();
+      notEmpty.signalAll();
+    } finally {
+      takeLock.unlock();
+      putLock.unlock();
+    }
+  }
+
+  @Override
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Добавляет узел в хвост. Вызывается под putLock.
+   *
+   * @return количество элементов до добавления
+   */
+  private int link(Node<T> node) {
+    tail.next = node;
+    tail = node;
+    return count.getAndIncrement();
+  }
+
+  /**
+   * После добавления одного элемента будит следующего производителя, если место ещё есть.
+   * Вызывается под putLock.
+   */
+  private int linkAndCascade(Node<T> node) {
+    int previousCount = link(node);
+    if (previousCount + 1 < capacity) {
+      notFull.signal();
+    }
+    return previousCount;
+  }
+
+  /**
+   * Снимает первый элемент. Вызывается под takeLock, когда очередь не пуста; счётчик не меняет.
+   */
+  private T unlink() {
+    Node<T> first = head.next;
+    head.next = null;
+    head = first;
+    T element = first.item;
+    first.item = null;
+    return element;
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("Queue is closed");
+    }
+  }
+
+  private static <T> Node<T> newNode(T element) {
+    if (element == null) {
+      throw new NullPointerException("Element must not be null");
+    }
+    return new Node<>(element);
+  }
+
+  /**
+   * Будит одного потребителя. Вызывается только при переходе очереди из пустого состояния:
+   * в остальных случаях потребители будят друг друга сами.
+   */
+  private void signalNotEmpty() {
+    takeLock.lock();
+    try {
+      notEmpty.signal();
+    } finally {
+      takeLock.unlock();
+    }
+  }
+
+  /**
+   * Будит одного производителя. Вызывается только при переходе очереди из полного состояния.
+   */
+  private void signalNotFull() {
+    putLock.lock();
+    try {
+      notFull.signal();
+    } finally {
+      putLock.unlock();
+    }
+  }
+
+  private static final class Node<T> {
+    private T item;
+    private Node<T> next;
+
+    private Node(T item) {
+      this.item = item;
+    }
+  }
+}
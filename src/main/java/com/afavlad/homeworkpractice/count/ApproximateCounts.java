@@ -0,0 +1,131 @@
+package com.afavlad.homeworkpractice.count;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Приближённый подсчёт потока элементов в памяти фиксированного размера.
+ * <p>
+ * Элементы добавляются по одному, массивами-кусками, из {@link Iterator} или {@link Stream}, и
+ * сами нигде не хранятся. Три скетча отвечают на разные вопросы:
+ * <ul>
+ *   <li>{@link #estimateCount(Object)} — частота ключа (Count-Min Sketch, оценка сверху);</li>
+ *   <li>{@link #topK(int)} — самые частые ключи (Space-Saving);</li>
+ *   <li>{@link #estimateDistinct()} — число различных ключей (HyperLogLog).</li>
+ * </ul>
+ * Размер и погрешности задаёт {@link SketchAccuracy}. Для точного подсчёта — {@link
+ * ObjectCounts}. Экземпляр не потокобезопасен.
+ *
+ * @param <T> тип элементов
+ */
+public final class ApproximateCounts<T> {
+
+  private final SketchAccuracy accuracy;
+  private final ToLongFunction<? super T> hasher;
+  private final CountMinSketch frequencies;
+  private final HyperLogLog distinct;
+  private final SpaceSaving<T> heavyHitters;
+  private long total;
+
+  public ApproximateCounts(SketchAccuracy accuracy) {
+    this(accuracy, Hashing::hash64);
+  }
+
+  /**
+   * @param hasher 64-битный хеш элемента; нужен для типов, у которых {@code hashCode()} слишком
+   *               беден для сотен миллионов различных значений
+   */
+  public ApproximateCounts(SketchAccuracy accuracy, ToLongFunction<? super T> hasher) {
+    if (accuracy == null || hasher == null) {
+      throw new IllegalArgumentException("Accuracy and hasher must not be null");
+    }
+    this.accuracy = accuracy;
+    this.hasher = hasher;
+    this.frequencies = new CountMinSketch(CountMinSketch.width(accuracy.getFrequencyError()),
+        CountMinSketch.depth(accuracy.getFailureProbability()));
+    this.distinct = new HyperLogLog(HyperLogLog.precision(accuracy.getDistinctError()));
+    this.heavyHitters =
+        accuracy.getHeavyHitters() == 0 ? null : new SpaceSaving<>(accuracy.getHeavyHitters());
+  }
+
+  public SketchAccuracy getAccuracy() {
+    return accuracy;
+  }
+
+  public void add(T element) {
+    long hash = hasher.applyAsLong(element);
+    frequencies.add(hash);
+    distinct.add(hash);
+    if (heavyHitters != null) {
+      heavyHitters.add(element);
+    }
+    total++;
+  }
+
+  /**
+   * Добавляет очередной кусок потока.
+   */
+  public void addAll(T[] chunk) {
+    for (T element : chunk) {
+      add(element);
+    }
+  }
+
+  public void addAll(Iterator<? extends T> elements) {
+    while (elements.hasNext()) {
+      add(elements.next());
+    }
+  }
+
+  /**
+   * Добавляет элементы потока. Параллельный поток обходится последовательно: скетчи не
+   * потокобезопасны.
+   */
+  public void addAll(Stream<? extends T> elements) {
+    elements.sequential().forEach(this::add);
+  }
+
+  /**
+   * Число всех добавленных элементов (точное).
+   */
+  public long total() {
+    return total;
+  }
+
+  /**
+   * Оценка частоты ключа сверху. Если ключ отслеживается Space-Saving, берётся меньшая из двух
+   * оценок: обе не меньше настоящей частоты.
+   */
+  public long estimateCount(T key) {
+    long estimate = frequencies.estimate(hasher.applyAsLong(key));
+    if (heavyHitters != null) {
+      long tracked = heavyHitters.estimate(key);
+      if (tracked >= 0) {
+        estimate = Math.min(estimate, tracked);
+      }
+    }
+    return estimate;
+  }
+
+  /**
+   * Оценка числа различных ключей.
+   */
+  public long estimateDistinct() {
+    return distinct.estimate();
+  }
+
+  /**
+   * До {@code k} самых частых ключей по убыванию оценки. Надёжны ключи, у которых
+   * {@link HeavyHitter#guaranteedCount()} больше частоты следующих за ними.
+   *
+   * @throws IllegalArgumentException если {@code k < 0}
+   */
+  public List<HeavyHitter<T>> topK(int k) {
+    if (k < 0) {
+      throw new IllegalArgumentException("k must be >= 0");
+    }
+    return heavyHitters == null ? List.of() : heavyHitters.top(k);
+  }
+}
@@ -0,0 +1,66 @@
+package com.afavlad.homeworkpractice.count;
+
+/**
+ * Count-Min Sketch: оценка частоты ключа в таблице {@code depth × width} счётчиков.
+ * <p>
+ * Каждая строка — свой хеш ключа в один из {@code width} счётчиков; оценка — минимум по
+ * строкам. Оценка никогда не меньше настоящей частоты, а при {@code width = ⌈e/ε⌉} и
+ * {@code depth = ⌈ln(1/δ)⌉} превышает её не больше чем на {@code ε·N} с вероятностью не меньше
+ * {@code 1 − δ}, где N — число всех добавленных элементов. Хеши строк получаются из одного
+ * 64-битного хеша ключа (двойное хеширование Кирша—Митценмахера).
+ * <p>
+ * Используется консервативное обновление: увеличиваются только счётчики, которые меньше новой
+ * оценки. Гарантии те же, а завышение на частых коллизиях заметно меньше.
+ */
+final class CountMinSketch {
+
+  private final int width;
+  private final int depth;
+  private final long[] counters;
+
+  CountMinSketch(int width, int depth) {
+    this.width = width;
+    this.depth = depth;
+    this.counters = new long[Math.multiplyExact(width, depth)];
+  }
+
+  static int width(double epsilon) {
+    return (int) Math.ceil(Math.E / epsilon);
+  }
+
+  static int depth(double failureProbability) {
+    return Math.max(1, (int) Math.ceil(Math.log(1 / failureProbability)));
+  }
+
+  /**
+   * Добавляет вхождение ключа и возвращает его новую оценку.
+   */
+  long add(long hash) {
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      estimate = Math.min(estimate, counters[index(hash, row)]);
+    }
+    long updated = estimate + 1;
+    for (int row = 0; row < depth; row++) {
+      int index = index(hash, row);
+      if (counters[index] < updated) {
+        counters[index] = updated;
+      }
+    }
+    return updated;
+  }
+
+  long estimate(long hash) {
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      estimate = Math.min(estimate, counters[index(hash, row)]);
+    }
+    return estimate;
+  }
+
+  private int index(long hash, int row) {
+    int combined = (int) hash + row * (int) (hash >>> 32);
+    // Умножение со сдвигом вместо остатка от деления: равномерно и без деления.
+    return row * width + (int) (((combined & 0xFFFFFFFFL) * width) >>> 32);
+  }
+}
@@ -1,16 +1,118 @@
 package com.afavlad.homeworkpractice.count;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.stream.Stream;
 
+/**
+ * Подсчёт вхождений элементов массива.
+ * <p>
+ * {@link #countOfElements(Object[])} возвращает обычный {@link HashMap}. Для больших массивов
+ * есть подсчёт в таблицы с открытой адресацией ({@link IntCounts}, {@link LongCounts},
+ * {@link ObjectCounts}): без обёрток на элемент и со счётчиками {@code long}, которые не
+ * переполняются. Методы {@code parallelCountOfElements} делят массив на куски, считают их в
+ * {@link java.util.concurrent.ForkJoinPool#commonPool()} в частичные таблицы и сливают их в конце.
+ * <p>
+ * Потоки, которые не помещаются в память массивом, считаются из {@link Iterator} или
+ * {@link Stream}: точно — в {@link ObjectCounts}, или приближённо в памяти фиксированного размера —
+ * в {@link ApproximateCounts}.
+ */
 public class ElementsCounter {
 
   public static <T> Map<T, Integer> countOfElements(T[] array) {
     Map<T, Integer> map = new HashMap<>();
-    for(int i = 0; i < array.length; i++) {
-      map.put(array[i], map.getOrDefault(array[i], 0) + 1);
+    for (T element : array) {
+      // Один поиск в таблице вместо getOrDefault и put.
+      map.merge(element, 1, Integer::sum);
     }
     return map;
   }
 
+  /**
+   * Подсчёт со счётчиками {@code long} без узлов {@link HashMap} на каждое значение. Подходит и
+   * для строк: {@code String} кеширует свой хеш.
+   */
+  public static <T> ObjectCounts<T> countOfElementsAsLong(T[] array) {
+    return countRange(array, 0, array.length);
+  }
+
+  public static <T> ObjectCounts<T> countOfElements(Iterator<? extends T> elements) {
+    ObjectCounts<T> counts = new ObjectCounts<>();
+    while (elements.hasNext()) {
+      counts.add(elements.next());
+    }
+    return counts;
+  }
+
+  /**
+   * Точный подсчёт потока; параллельный поток считается по кускам с последующим слиянием.
+   */
+  public static <T> ObjectCounts<T> countOfElements(Stream<? extends T> elements) {
+    return elements.collect(ObjectCounts::new, ObjectCounts::add, ObjectCounts::merge);
+  }
+
+  public static <T> ApproximateCounts<T> approximateCountOfElements(
+      Iterator<? extends T> elements, SketchAccuracy accuracy) {
+    ApproximateCounts<T> counts = new ApproximateCounts<>(accuracy);
+    counts.addAll(elements);
+    return counts;
+  }
+
+  public static <T> ApproximateCounts<T> approximateCountOfElements(
+      Stream<? extends T> elements, SketchAccuracy accuracy) {
+    ApproximateCounts<T> counts = new ApproximateCounts<>(accuracy);
+    counts.addAll(elements);
+    return counts;
+  }
+
+  public static IntCounts countOfElements(int[] array) {
+    return countRange(array, 0, array.length);
+  }
+
+  public static LongCounts countOfElements(long[] array) {
+    return countRange(array, 0, array.length);
+  }
+
+  public static <T> ObjectCounts<T> parallelCountOfElements(T[] array) {
+    return new RangeCount<ObjectCounts<T>>((from, to) -> countRange(array, from, to),
+        (left, right) -> left.size() >= right.size() ? left.merge(right) : right.merge(left),
+        RangeCount.chunkSize(array.length), 0, array.length).invoke();
+  }
+
+  public static IntCounts parallelCountOfElements(int[] array) {
+    return new RangeCount<IntCounts>((from, to) -> countRange(array, from, to),
+        (left, right) -> left.size() >= right.size() ? left.merge(right) : right.merge(left),
+        RangeCount.chunkSize(array.length), 0, array.length).invoke();
+  }
+
+  public static LongCounts parallelCountOfElements(long[] array) {
+    return new RangeCount<LongCounts>((from, to) -> countRange(array, from, to),
+        (left, right) -> left.size() >= right.size() ? left.merge(right) : right.merge(left),
+        RangeCount.chunkSize(array.length), 0, array.length).invoke();
+  }
+
+  private static <T> ObjectCounts<T> countRange(T[] array, int from, int to) {
+    ObjectCounts<T> counts = new ObjectCounts<>();
+    for (int i = from; i < to; i++) {
+      counts.add(array[i], 1);
+    }
+    return counts;
+  }
+
+  private static IntCounts countRange(int[] array, int from, int to) {
+    IntCounts counts = new IntCounts();
+    for (int i = from; i < to; i++) {
+      counts.add(array[i], 1);
+    }
+    return counts;
+  }
+
+  private static LongCounts countRange(long[] array, int from, int to) {
+    LongCounts counts = new LongCounts();
+    for (int i = from; i < to; i++) {
+      counts.add(array[i], 1);
+    }
+    return counts;
+  }
 }
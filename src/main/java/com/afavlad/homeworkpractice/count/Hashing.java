@@ -0,0 +1,50 @@
+package com.afavlad.homeworkpractice.count;
+
+/**
+ * 64-битные хеши для скетчей {@link ApproximateCounts}.
+ * <p>
+ * {@code hashCode()} даёт только 2<sup>32</sup> значений: на сотнях миллионов различных ключей
+ * его коллизии уже заметно искажают оценку HyperLogLog. Поэтому строки и целые числа хешируются
+ * в 64 бита целиком, а для остальных объектов перемешивается {@code hashCode()}.
+ */
+final class Hashing {
+
+  private static final long NULL_HASH = 0x5DEECE66DL;
+
+  private Hashing() {
+  }
+
+  static long hash64(Object key) {
+    if (key == null) {
+      return mix(NULL_HASH);
+    }
+    if (key instanceof String string) {
+      return hash64(string);
+    }
+    if (key instanceof Long || key instanceof Integer || key instanceof Short
+        || key instanceof Byte) {
+      return mix(((Number) key).longValue());
+    }
+    return mix(key.hashCode());
+  }
+
+  /**
+   * FNV-1a по символам строки с финальным перемешиванием.
+   */
+  static long hash64(String string) {
+    long hash = 0xCBF29CE484222325L;
+    for (int i = 0; i < string.length(); i++) {
+      hash = (hash ^ string.charAt(i)) * 0x100000001B3L;
+    }
+    return mix(hash ^ string.length());
+  }
+
+  /**
+   * Финальное перемешивание MurmurHash3: каждый бит входа влияет на все биты результата.
+   */
+  static long mix(long value) {
+    value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+    value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return value ^ (value >>> 33);
+  }
+}
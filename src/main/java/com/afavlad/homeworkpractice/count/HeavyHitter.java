@@ -0,0 +1,20 @@
+package com.afavlad.homeworkpractice.count;
+
+/**
+ * Частый ключ из {@link ApproximateCounts#topK(int)}.
+ *
+ * @param key   ключ
+ * @param count оценка частоты сверху: настоящая частота не больше {@code count}
+ * @param error на сколько оценка может быть завышена: настоящая частота не меньше
+ *              {@code count - error}
+ * @param <T>   тип ключа
+ */
+public record HeavyHitter<T>(T key, long count, long error) {
+
+  /**
+   * Частота, которую ключ гарантированно набрал.
+   */
+  public long guaranteedCount() {
+    return count - error;
+  }
+}
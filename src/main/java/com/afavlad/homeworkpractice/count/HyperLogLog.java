@@ -0,0 +1,69 @@
+package com.afavlad.homeworkpractice.count;
+
+/**
+ * HyperLogLog: оценка числа различных ключей в {@code 2^precision} однобайтовых регистрах.
+ * <p>
+ * Старшие {@code precision} бит 64-битного хеша выбирают регистр, в котором хранится
+ * наибольшая позиция первой единицы в остальных битах. Стандартная относительная ошибка
+ * оценки {@code 1.04 / √m}, где {@code m} — число регистров; при малом числе ключей, пока есть
+ * пустые регистры, используется линейный подсчёт. С 64-битным хешем поправка для больших
+ * мощностей не нужна.
+ */
+final class HyperLogLog {
+
+  static final int MIN_PRECISION = 4;
+  static final int MAX_PRECISION = 18;
+
+  private final int precision;
+  private final byte[] registers;
+
+  HyperLogLog(int precision) {
+    this.precision = precision;
+    this.registers = new byte[1 << precision];
+  }
+
+  /**
+   * Наименьшая точность, стандартная ошибка которой не больше {@code relativeError}.
+   */
+  static int precision(double relativeError) {
+    double registers = Math.pow(1.04 / relativeError, 2);
+    int precision = 64 - Long.numberOfLeadingZeros((long) Math.ceil(registers) - 1);
+    return Math.max(MIN_PRECISION, Math.min(MAX_PRECISION, precision));
+  }
+
+  void add(long hash) {
+    int index = (int) (hash >>> (64 - precision));
+    // Единица-ограничитель: ранг не больше 64 - precision + 1 даже при нулевом остатке.
+    long rest = (hash << precision) | (1L << (precision - 1));
+    byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+    if (registers[index] < rank) {
+      registers[index] = rank;
+    }
+  }
+
+  long estimate() {
+    int m = registers.length;
+    double sum = 0;
+    int zeros = 0;
+    for (byte register : registers) {
+      sum += Math.scalb(1.0, -register);
+      if (register == 0) {
+        zeros++;
+      }
+    }
+    double estimate = alpha(m) * m * m / sum;
+    if (estimate <= 2.5 * m && zeros != 0) {
+      estimate = m * Math.log((double) m / zeros);
+    }
+    return Math.round(estimate);
+  }
+
+  private static double alpha(int m) {
+    return switch (m) {
+      case 16 -> 0.673;
+      case 32 -> 0.697;
+      case 64 -> 0.709;
+      default -> 0.7213 / (1 + 1.079 / m);
+    };
+  }
+}
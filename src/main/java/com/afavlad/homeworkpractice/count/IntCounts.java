@@ -0,0 +1,140 @@
+package com.afavlad.homeworkpractice.count;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Счётчики вхождений значений {@code int} в таблице с открытой адресацией.
+ * <p>
+ * Ключи и счётчики лежат в двух параллельных массивах, поиск идёт линейным пробированием, поэтому
+ * подсчёт не создаёт объектов на элемент. Пустая ячейка отмечена нулевым счётчиком: у каждого
+ * записанного ключа счётчик не меньше единицы. Счётчики {@code long} и не переполняются на
+ * массивах любого размера. Экземпляр не потокобезопасен.
+ */
+public final class IntCounts {
+
+  private static final int INITIAL_CAPACITY = 64;
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  /**
+   * Получатель пар «значение — число вхождений».
+   */
+  @FunctionalInterface
+  public interface EntryConsumer {
+
+    void accept(int key, long count);
+  }
+
+  private int[] keys = new int[INITIAL_CAPACITY];
+  private long[] counts = new long[INITIAL_CAPACITY];
+  private int size;
+  private long total;
+
+  IntCounts() {
+  }
+
+  /**
+   * Число вхождений {@code key}; ноль, если значение не встречалось.
+   */
+  public long count(int key) {
+    int mask = keys.length - 1;
+    for (int i = slot(key, mask); counts[i] != 0; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        return counts[i];
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Число различных значений.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Число всех подсчитанных элементов.
+   */
+  public long total() {
+    return total;
+  }
+
+  /**
+   * Передаёт все пары в {@code consumer} в порядке таблицы.
+   */
+  public void forEach(EntryConsumer consumer) {
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] != 0) {
+        consumer.accept(keys[i], counts[i]);
+      }
+    }
+  }
+
+  /**
+   * Копия счётчиков в обычном {@link Map}.
+   */
+  public Map<Integer, Long> toMap() {
+    Map<Integer, Long> map = new HashMap<>(size * 2);
+    forEach(map::put);
+    return map;
+  }
+
+  @Override
+  public String toString() {
+    return toMap().toString();
+  }
+
+  void add(int key, long delta) {
+    int mask = keys.length - 1;
+    int i = slot(key, mask);
+    while (counts[i] != 0) {
+      if (keys[i] == key) {
+        counts[i] += delta;
+        total += delta;
+        return;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    counts[i] = delta;
+    total += delta;
+    if (++size > keys.length >> 1) {
+      grow();
+    }
+  }
+
+  /**
+   * Прибавляет счётчики {@code other} к своим.
+   */
+  IntCounts merge(IntCounts other) {
+    other.forEach(this::add);
+    return this;
+  }
+
+  private void grow() {
+    if (keys.length == MAX_CAPACITY) {
+      throw new IllegalStateException("Too many distinct values: " + size);
+    }
+    int[] oldKeys = keys;
+    long[] oldCounts = counts;
+    keys = new int[oldKeys.length << 1];
+    counts = new long[oldKeys.length << 1];
+    int mask = keys.length - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldCounts[j] != 0) {
+        int i = slot(oldKeys[j], mask);
+        while (counts[i] != 0) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = oldKeys[j];
+        counts[i] = oldCounts[j];
+      }
+    }
+  }
+
+  private static int slot(int key, int mask) {
+    int hash = key * 0x9E3779B9;
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+}
@@ -0,0 +1,175 @@
+package com.afavlad.homeworkpractice.count;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Счётчики вхождений объектов (например, строк) в таблице с открытой адресацией.
+ * <p>
+ * В отличие от {@code HashMap<T, Integer>} здесь нет узла и обёртки счётчика на каждый ключ:
+ * ключи лежат в {@code Object[]}, счётчики — в параллельном {@code long[]}, и повторное вхождение
+ * ключа только увеличивает ячейку массива. Пустая ячейка отмечена нулевым счётчиком, значение
+ * {@code null} считается отдельно. Счётчики можно пополнять по кускам потока через
+ * {@link #add(Object)} и {@link #addAll(Object[])}. Экземпляр не потокобезопасен.
+ *
+ * @param <T> тип значений
+ */
+public final class ObjectCounts<T> {
+
+  private static final int INITIAL_CAPACITY = 64;
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  /**
+   * Получатель пар «значение — число вхождений».
+   */
+  @FunctionalInterface
+  public interface EntryConsumer<T> {
+
+    void accept(T key, long count);
+  }
+
+  private Object[] keys = new Object[INITIAL_CAPACITY];
+  private long[] counts = new long[INITIAL_CAPACITY];
+  private int size;
+  private long nullCount;
+  private long total;
+
+  public ObjectCounts() {
+  }
+
+  /**
+   * Добавляет одно вхождение {@code key}.
+   */
+  public void add(T key) {
+    add(key, 1);
+  }
+
+  /**
+   * Добавляет очередной кусок потока.
+   */
+  public void addAll(T[] chunk) {
+    for (T key : chunk) {
+      add(key, 1);
+    }
+  }
+
+  /**
+   * Число вхождений {@code key}; ноль, если значение не встречалось.
+   */
+  public long count(T key) {
+    if (key == null) {
+      return nullCount;
+    }
+    int mask = keys.length - 1;
+    for (int i = slot(key, mask); counts[i] != 0; i = (i + 1) & mask) {
+      if (key.equals(keys[i])) {
+        return counts[i];
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Число различных значений, включая {@code null}, если он встречался.
+   */
+  public int size() {
+    return nullCount == 0 ? size : size + 1;
+  }
+
+  /**
+   * Число всех подсчитанных элементов.
+   */
+  public long total() {
+    return total;
+  }
+
+  /**
+   * Передаёт все пары в {@code consumer}: сначала {@code null}, если он встречался, затем
+   * остальные значения в порядке таблицы.
+   */
+  @SuppressWarnings("unchecked")
+  public void forEach(EntryConsumer<? super T> consumer) {
+    if (nullCount != 0) {
+      consumer.accept(null, nullCount);
+    }
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] != 0) {
+        consumer.accept((T) keys[i], counts[i]);
+      }
+    }
+  }
+
+  /**
+   * Копия счётчиков в обычном {@link Map}.
+   */
+  public Map<T, Long> toMap() {
+    Map<T, Long> map = new HashMap<>(size() * 2);
+    forEach(map::put);
+    return map;
+  }
+
+  @Override
+  public String toString() {
+    return toMap().toString();
+  }
+
+  void add(T key, long delta) {
+    total += delta;
+    if (key == null) {
+      nullCount += delta;
+      return;
+    }
+    int mask = keys.length - 1;
+    int i = slot(key, mask);
+    while (counts[i] != 0) {
+      if (key.equals(keys[i])) {
+        counts[i] += delta;
+        return;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    counts[i] = delta;
+    if (++size > keys.length >> 1) {
+      grow();
+    }
+  }
+
+  /**
+   * Прибавляет счётчики {@code other} к своим.
+   */
+  ObjectCounts<T> merge(ObjectCounts<T> other) {
+    other.forEach(this::add);
+    return this;
+  }
+
+  private void grow() {
+    if (keys.length == MAX_CAPACITY) {
+      throw new IllegalStateException("Too many distinct values: " + size);
+    }
+    Object[] oldKeys = keys;
+    long[] oldCounts = counts;
+    keys = new Object[oldKeys.length << 1];
+    counts = new long[oldKeys.length << 1];
+    int mask = keys.length - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldCounts[j] != 0) {
+        int i = slot(oldKeys[j], mask);
+        while (counts[i] != 0) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = oldKeys[j];
+        counts[i] = oldCounts[j];
+      }
+    }
+  }
+
+  /**
+   * Перемешивает {@code hashCode()}, чтобы плохие хеши (например, подряд идущие числа) не
+   * собирались в длинные цепочки пробирования.
+   */
+  private static int slot(Object key, int mask) {
+    int hash = key.hashCode() * 0x9E3779B9;
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+}
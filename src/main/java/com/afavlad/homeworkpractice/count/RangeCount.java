@@ -0,0 +1,75 @@
+package com.afavlad.homeworkpractice.count;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * Параллельный подсчёт диапазона индексов массива на {@link java.util.concurrent.ForkJoinPool}.
+ * <p>
+ * Диапазон делится пополам до кусков не больше {@link #chunkSize(int)} элементов; каждый кусок
+ * считается в свои частичные счётчики без синхронизации, а при соединении половин меньшая
+ * таблица вливается в большую. Общих изменяемых структур у потоков нет, поэтому нет и
+ * конкуренции за горячие ключи, как у {@code ConcurrentHashMap} со счётчиками.
+ *
+ * @param <C> тип частичных счётчиков
+ */
+final class RangeCount<C> extends RecursiveTask<C> {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final int MIN_CHUNK = 1 << 16;
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  /**
+   * Подсчёт элементов с индексами {@code [from, to)} в новые счётчики.
+   */
+  @FunctionalInterface
+  interface Counter<C> {
+
+    C count(int from, int to);
+  }
+
+  private final Counter<C> counter;
+  private final BinaryOperator<C> merger;
+  private final int chunk;
+  private final int from;
+  private final int to;
+
+  RangeCount(Counter<C> counter, BinaryOperator<C> merger, int chunk, int from, int to) {
+    this.counter = counter;
+    this.merger = merger;
+    this.chunk = chunk;
+    this.from = from;
+    this.to = to;
+  }
+
+  /**
+   * Размер куска для массива длины {@code length}; {@code length}, если делить не стоит.
+   * <p>
+   * Каждый кусок заводит свою таблицу, и при многих различных значениях слияние стоит почти
+   * столько же, сколько подсчёт. Поэтому кусков немного — по {@value #CHUNKS_PER_THREAD} на поток
+   * пула для балансировки, — а при одном процессоре массив считается одним куском.
+   */
+  static int chunkSize(int length) {
+    if (Runtime.getRuntime().availableProcessors() == 1) {
+      return Math.max(length, 1);
+    }
+    int threads = ForkJoinPool.getCommonPoolParallelism() + 1;
+    return Math.max(MIN_CHUNK, length / (threads * CHUNKS_PER_THREAD) + 1);
+  }
+
+  @Override
+  protected C compute() {
+    if (to - from <= chunk) {
+      return counter.count(from, to);
+    }
+    int mid = (from + to) >>> 1;
+    RangeCount<C> leftTask = new RangeCount<>(counter, merger, chunk, from, mid);
+    RangeCount<C> rightTask = new RangeCount<>(counter, merger, chunk, mid, to);
+    leftTask.fork();
+    C right = rightTask.compute();
+    C left = leftTask.join();
+    return merger.apply(left, right);
+  }
+}
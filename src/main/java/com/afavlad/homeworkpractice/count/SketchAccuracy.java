@@ -0,0 +1,103 @@
+package com.afavlad.homeworkpractice.count;
+
+/**
+ * Точность и размер скетчей {@link ApproximateCounts}.
+ * <p>
+ * Память скетчей задаётся только этими параметрами и не зависит от числа элементов и различных
+ * ключей в потоке:
+ * <ul>
+ *   <li>частоты (Count-Min Sketch) завышаются не больше чем на {@code frequencyError · N} с
+ *   вероятностью не меньше {@code 1 − failureProbability}, где N — число всех элементов;</li>
+ *   <li>число различных ключей (HyperLogLog) оценивается со стандартной относительной ошибкой
+ *   не больше {@code distinctError};</li>
+ *   <li>частые ключи (Space-Saving) отслеживаются в {@code heavyHitters} счётчиках: ключ с
+ *   частотой больше {@code N / heavyHitters} не теряется, ошибка его частоты не больше
+ *   {@code N / heavyHitters}.</li>
+ * </ul>
+ */
+public final class SketchAccuracy {
+
+  private static final SketchAccuracy DEFAULTS = new SketchAccuracy(1e-4, 1e-3, 0.01, 1_000);
+
+  /**
+   * Примерный размер счётчика Space-Saving вместе с записью в {@link java.util.HashMap}.
+   */
+  private static final int HEAVY_HITTER_BYTES = 96;
+
+  private final double frequencyError;
+  private final double failureProbability;
+  private final double distinctError;
+  private final int heavyHitters;
+
+  private SketchAccuracy(double frequencyError, double failureProbability, double distinctError,
+      int heavyHitters) {
+    if (!(frequencyError > 0 && frequencyError < 1)) {
+      throw new IllegalArgumentException("Frequency error must be in (0, 1)");
+    }
+    if (!(failureProbability > 0 && failureProbability < 1)) {
+      throw new IllegalArgumentException("Failure probability must be in (0, 1)");
+    }
+    double minDistinctError = 1.04 / Math.sqrt(1 << HyperLogLog.MAX_PRECISION);
+    if (!(distinctError >= minDistinctError && distinctError < 1)) {
+      throw new IllegalArgumentException(
+          "Distinct error must be in [" + minDistinctError + ", 1)");
+    }
+    if (heavyHitters < 0) {
+      throw new IllegalArgumentException("Heavy hitters must be >= 0");
+    }
+    if ((long) CountMinSketch.width(frequencyError) * CountMinSketch.depth(failureProbability)
+        > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("Count-Min Sketch is too large for these errors");
+    }
+    this.frequencyError = frequencyError;
+    this.failureProbability = failureProbability;
+    this.distinctError = distinctError;
+    this.heavyHitters = heavyHitters;
+  }
+
+  /**
+   * Ошибка частот 0.01 %, вероятность её превышения 0.1 %, ошибка числа различных ключей 1 %,
+   * 1000 частых ключей; около 1.7 МБ.
+   */
+  public static SketchAccuracy defaults() {
+    return DEFAULTS;
+  }
+
+  public static SketchAccuracy of(double frequencyError, double failureProbability,
+      double distinctError, int heavyHitters) {
+    return new SketchAccuracy(frequencyError, failureProbability, distinctError, heavyHitters);
+  }
+
+  public double getFrequencyError() {
+    return frequencyError;
+  }
+
+  public double getFailureProbability() {
+    return failureProbability;
+  }
+
+  public double getDistinctError() {
+    return distinctError;
+  }
+
+  public int getHeavyHitters() {
+    return heavyHitters;
+  }
+
+  /**
+   * Примерный объём памяти скетчей в байтах.
+   */
+  public long estimatedBytes() {
+    long countMin = 8L * CountMinSketch.width(frequencyError)
+        * CountMinSketch.depth(failureProbability);
+    long hyperLogLog = 1L << HyperLogLog.precision(distinctError);
+    return countMin + hyperLogLog + (long) HEAVY_HITTER_BYTES * heavyHitters;
+  }
+
+  @Override
+  public String toString() {
+    return "SketchAccuracy{frequencyError=" + frequencyError + ", failureProbability="
+        + failureProbability + ", distinctError=" + distinctError + ", heavyHitters="
+        + heavyHitters + '}';
+  }
+}
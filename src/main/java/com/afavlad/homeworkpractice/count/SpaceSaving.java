@@ -0,0 +1,119 @@
+package com.afavlad.homeworkpractice.count;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving: частые ключи потока в фиксированном числе счётчиков.
+ * <p>
+ * Пока есть свободные счётчики, каждый новый ключ получает свой. Когда они кончились, новый
+ * ключ вытесняет ключ с наименьшим счётчиком и наследует его значение плюс один; унаследованная
+ * часть запоминается как ошибка. Любой ключ с частотой больше {@code N/capacity} гарантированно
+ * остаётся среди счётчиков, и оценка каждого завышена не больше чем на {@code N/capacity}.
+ * <p>
+ * Счётчики лежат в двоичной куче по значению, поэтому минимум находится сразу, а увеличение
+ * счётчика стоит {@code O(log capacity)}.
+ *
+ * @param <T> тип ключа
+ */
+final class SpaceSaving<T> {
+
+  private static final class Counter<T> {
+
+    private T key;
+    private long count;
+    private long error;
+    private int position;
+  }
+
+  private final Map<T, Counter<T>> counters;
+  private final Counter<T>[] heap;
+  private int size;
+
+  @SuppressWarnings("unchecked")
+  SpaceSaving(int capacity) {
+    this.counters = new HashMap<>(capacity * 2);
+    this.heap = (Counter<T>[]) new Counter<?>[capacity];
+  }
+
+  void add(T key) {
+    Counter<T> counter = counters.get(key);
+    if (counter == null) {
+      if (size < heap.length) {
+        counter = new Counter<>();
+        counter.key = key;
+        counter.count = 1;
+        counters.put(key, counter);
+        heap[size] = counter;
+        siftUp(size++);
+        return;
+      }
+      counter = heap[0];
+      counters.remove(counter.key);
+      counter.error = counter.count;
+      counter.key = key;
+      counters.put(key, counter);
+    }
+    counter.count++;
+    siftDown(counter.position);
+  }
+
+  /**
+   * Оценка частоты отслеживаемого ключа или {@code -1}, если ключа среди счётчиков нет.
+   */
+  long estimate(T key) {
+    Counter<T> counter = counters.get(key);
+    return counter == null ? -1 : counter.count;
+  }
+
+  /**
+   * До {@code k} ключей с наибольшими счётчиками по убыванию.
+   */
+  List<HeavyHitter<T>> top(int k) {
+    List<HeavyHitter<T>> hitters = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      hitters.add(new HeavyHitter<>(heap[i].key, heap[i].count, heap[i].error));
+    }
+    hitters.sort(Comparator.comparingLong(HeavyHitter<T>::count).reversed());
+    return List.copyOf(hitters.subList(0, Math.min(k, hitters.size())));
+  }
+
+  private void siftUp(int position) {
+    Counter<T> counter = heap[position];
+    while (position > 0) {
+      int parent = (position - 1) >>> 1;
+      if (heap[parent].count <= counter.count) {
+        break;
+      }
+      heap[position] = heap[parent];
+      heap[position].position = position;
+      position = parent;
+    }
+    heap[position] = counter;
+    counter.position = position;
+  }
+
+  private void siftDown(int position) {
+    Counter<T> counter = heap[position];
+    while (true) {
+      int child = 2 * position + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+        child++;
+      }
+      if (heap[child].count >= counter.count) {
+        break;
+      }
+      heap[position] = heap[child];
+      heap[position].position = position;
+      position = child;
+    }
+    heap[position] = counter;
+    counter.position = position;
+  }
+}
@@ -0,0 +1,123 @@
+package com.afavlad.homeworkpractice.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Потокобезопасная гистограмма длительностей в наносекундах в духе HdrHistogram.
+ * <p>
+ * Диапазон значений разбит на степени двойки, а каждая степень — на {@link #SUB_BUCKETS} равных
+ * частей, поэтому относительная погрешность перцентилей не больше 1/{@value #SUB_BUCKETS}.
+ * Массив корзин создаётся один раз; {@link #record(long)} только увеличивает счётчики и ничего
+ * не выделяет.
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong totalCount = new AtomicLong();
+  private final AtomicLong totalNanos = new AtomicLong();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  /**
+   * Записывает одно значение. Отрицательные значения считаются нулём.
+   */
+  public void record(long nanos) {
+    long value = Math.max(nanos, 0);
+    counts.incrementAndGet(indexOf(value));
+    totalCount.incrementAndGet();
+    totalNanos.addAndGet(value);
+    long max;
+    while (value > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, value)) {
+      Thread.onSpinWait();
+    }
+  }
+
+  public long getCount() {
+    return totalCount.get();
+  }
+
+  public long getMaxNanos() {
+    return maxNanos.get();
+  }
+
+  public double getMeanNanos() {
+    long count = totalCount.get();
+    return count == 0 ? 0 : (double) totalNanos.get() / count;
+  }
+
+  /**
+   * Значение, не меньше которого оказались (100 - percentile)% записей. Возвращает верхнюю
+   * границу корзины, но не больше максимума.
+   *
+   * @param percentile от 0 до 100
+   */
+  public long getValueAtPercentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile must be between 0 and 100");
+    }
+    long count = totalCount.get();
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(upperBoundOf(i), maxNanos.get());
+      }
+    }
+    return maxNanos.get();
+  }
+
+  /**
+   * Обнуляет гистограмму. Записи, идущие параллельно со сбросом, могут частично сохраниться.
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts.set(i, 0);
+    }
+    totalCount.set(0);
+    totalNanos.set(0);
+    maxNanos.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("count=%d, mean=%.1fus, p50=%dus, p99=%dus, max=%dus",
+        getCount(),
+        getMeanNanos() / 1000,
+        TimeUnit.NANOSECONDS.toMicros(getValueAtPercentile(50)),
+        TimeUnit.NANOSECONDS.toMicros(getValueAtPercentile(99)),
+        TimeUnit.NANOSECONDS.toMicros(getMaxNanos()));
+  }
+
+  /**
+   * Значения меньше {@link #SUB_BUCKETS} лежат в своих корзинах; остальные — в корзине
+   * (степень двойки, следующие за старшим битом SUB_BUCKET_BITS бит).
+   */
+  private static int indexOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+    return (shift + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  private static long upperBoundOf(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = index / SUB_BUCKETS - 1;
+    long subBucket = index % SUB_BUCKETS;
+    long lowerBound = (SUB_BUCKETS + subBucket) << shift;
+    return lowerBound + (1L << shift) - 1;
+  }
+}
@@ -0,0 +1,38 @@
+package com.afavlad.homeworkpractice.stringbuilder;
+
+/**
+ * Именованная точка в истории изменений {@link CustomStringBuilder}.
+ * <p>
+ * Создаётся методом {@link CustomStringBuilder#checkpoint(String)} и передаётся в
+ * {@link CustomStringBuilder#rollbackTo(Checkpoint)}. Сама точка не хранит текст, только номер
+ * состояния, поэтому откат к ней возможен, пока нужные записи не вытеснены из истории.
+ */
+public final class Checkpoint {
+
+  private final String name;
+  private final EditHistory history;
+  private final long state;
+
+  Checkpoint(String name, EditHistory history, long state) {
+    this.name = name;
+    this.history = history;
+    this.state = state;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  EditHistory getHistory() {
+    return history;
+  }
+
+  long getState() {
+    return state;
+  }
+
+  @Override
+  public String toString() {
+    return "Checkpoint{name=" + name + ", state=" + state + '}';
+  }
+}
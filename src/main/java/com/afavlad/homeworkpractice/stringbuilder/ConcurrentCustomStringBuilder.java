@@ -0,0 +1,274 @@
+package com.afavlad.homeworkpractice.stringbuilder;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Потокобезопасный вариант {@link CustomStringBuilder} без блокировок.
+ * <p>
+ * Текущее состояние — неизменяемая версия: {@link Rope} с текстом и ссылка на предыдущую версию.
+ * Любое изменение строит новую версию из текущей и публикует её через CAS; при конфликте попытка
+ * повторяется. Дописывание в конец не трогает дерево: фрагмент добавляется в короткий список
+ * ожидающих, который сливается в дерево раз в {@link #MAX_PENDING} вызовов, поэтому одна попытка
+ * CAS стоит O(1) и повтор при конфликте дёшев. Поэтому:
+ * <ul>
+ *     <li>несколько потоков могут дописывать текст одновременно, не блокируя друг друга;</li>
+ *     <li>{@link #toString()} и {@link #snapshot()} видят одно согласованное состояние;</li>
+ *     <li>{@link #undo()} отменяет последнее опубликованное изменение — порядок отмены совпадает
+ *         с порядком, в котором изменения стали видны другим потокам.</li>
+ * </ul>
+ * Отдельные вызовы {@link #length()} и {@link #charAt(int)} могут видеть разные версии; для
+ * нескольких согласованных чтений используйте {@link #snapshot()}.
+ * <p>
+ * История ограничена всегда, по умолчанию {@value #DEFAULT_MAX_HISTORY} изменениями: иначе
+ * долгоживущий объект хранил бы все когда-либо опубликованные версии.
+ */
+public final class ConcurrentCustomStringBuilder implements CharSequence {
+
+  public static final int DEFAULT_MAX_HISTORY = 1_000;
+
+  private static final int MAX_PENDING = 32;
+
+  private final AtomicReference<Version> state;
+  private final int maxHistory;
+
+  public ConcurrentCustomStringBuilder() {
+    this("");
+  }
+
+  public ConcurrentCustomStringBuilder(String string) {
+    this(string, DEFAULT_MAX_HISTORY);
+  }
+
+  /**
+   * @param string     начальное содержимое
+   * @param maxHistory сколько последних изменений гарантированно можно отменить (хранится около
+   *                   2 × maxHistory версий; при конкуренции за CAS ненадолго больше)
+   */
+  public ConcurrentCustomStringBuilder(String string, int maxHistory) {
+    if (maxHistory < 0) {
+      throw new IllegalArgumentException("Max history must be >= 0");
+    }
+    this.maxHistory = maxHistory;
+    this.state = new AtomicReference<>(new Version(Rope.of(string), null, null, 0));
+  }
+
+  @Override
+  public int length() {
+    return state.get().length();
+  }
+
+  @Override
+  public char charAt(int index) {
+    return state.get().content().charAt(index);
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    return state.get().content().subSequence(start, end);
+  }
+
+  @Override
+  public String toString() {
+    return state.get().content().toString();
+  }
+
+  /**
+   * Неизменяемое представление текущего содержимого. Не копирует символы и не меняется при
+   * последующих изменениях.
+   */
+  public CharSequence snapshot() {
+    Rope text = state.get().content();
+    return text.subSequence(0, text.length());
+  }
+
+  public ConcurrentCustomStringBuilder append(String str) {
+    String text = String.valueOf(str);
+    Version current;
+    Version updated;
+    do {
+      current = state.get();
+      if (current.pending != null && current.pending.count >= MAX_PENDING) {
+        updated = next(current, Rope.concat(current.content(), Rope.of(text)), null);
+      } else {
+        updated = next(current, current.text, new Pending(text, current.pending));
+      }
+    } while (!state.compareAndSet(current, updated));
+    trimHistory(updated);
+    return this;
+  }
+
+  public ConcurrentCustomStringBuilder append(char ch) {
+    return append(String.valueOf(ch));
+  }
+
+  public ConcurrentCustomStringBuilder append(int i) {
+    return append(String.valueOf(i));
+  }
+
+  public ConcurrentCustomStringBuilder append(Object obj) {
+    return append(String.valueOf(obj));
+  }
+
+  public ConcurrentCustomStringBuilder insert(int offset, String str) {
+    String text = String.valueOf(str);
+    Version current;
+    Version updated;
+    do {
+      current = state.get();
+      int length = current.length();
+      if (offset < 0 || offset > length) {
+        throw new StringIndexOutOfBoundsException("offset " + offset + ", length " + length);
+      }
+      updated = next(current, current.content().replace(offset, offset, text), null);
+    } while (!state.compareAndSet(current, updated));
+    trimHistory(updated);
+    return this;
+  }
+
+  public ConcurrentCustomStringBuilder delete(int start, int end) {
+    return replace(start, end, "");
+  }
+
+  public ConcurrentCustomStringBuilder replace(int start, int end, String str) {
+    if (str == null) {
+      throw new NullPointerException("Replacement must not be null");
+    }
+    Version current;
+    Version updated;
+    do {
+      current = state.get();
+      int length = current.length();
+      if (start < 0 || start > length || start > end) {
+        throw new StringIndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+      }
+      updated = next(current, current.content().replace(start, Math.min(end, length), str), null);
+    } while (!state.compareAndSet(current, updated));
+    trimHistory(updated);
+    return this;
+  }
+
+  /**
+   * Отменяет последнее опубликованное изменение.
+   *
+   * @return false, если отменять нечего
+   */
+  public boolean undo() {
+    Version current;
+    do {
+      current = state.get();
+      if (current.previous == null) {
+        return false;
+      }
+    } while (!state.compareAndSet(current, current.previous));
+    return true;
+  }
+
+  public boolean canUndo() {
+    return state.get().previous != null;
+  }
+
+  /**
+   * Очистка истории. Изменения, опубликованные другими потоками во время очистки, не теряются.
+   */
+  public void clearHistory() {
+    Version current;
+    do {
+      current = state.get();
+    } while (!state.compareAndSet(current, new Version(current.text, current.pending, null, 0)));
+  }
+
+  /**
+   * Строит версию, следующую за current. Вызывается в цикле CAS, поэтому стоит O(1): история
+   * укорачивается уже после публикации, в {@link #trimHistory}.
+   */
+  private Version next(Version current, Rope text, Pending pending) {
+    if (maxHistory == 0) {
+      return new Version(text, pending, null, 0);
+    }
+    return new Version(text, pending, current, current.depth + 1);
+  }
+
+  /**
+   * Когда цепочка истории опубликованной версии вдвое превышает лимит, её хвост отрезается
+   * копированием последних maxHistory версий — в среднем O(1) на изменение. Попытка одна: если
+   * за это время опубликована другая версия, укорачивать историю будет её автор.
+   */
+  private void trimHistory(Version published) {
+    if (maxHistory > 0 && published.depth >= 2L * maxHistory) {
+      state.compareAndSet(published, trim(published, maxHistory));
+    }
+  }
+
+  private static Version trim(Version version, int keep) {
+    Version[] kept = new Version[keep + 1];
+    int count = 0;
+    for (Version v = version; v != null && count <= keep; v = v.previous) {
+      kept[count++] = v;
+    }
+    Version trimmed = null;
+    for (int i = count - 1; i >= 0; i--) {
+      trimmed = new Version(kept[i].text, kept[i].pending, trimmed, trimmed == null ? 0 : trimmed.depth + 1);
+    }
+    return trimmed;
+  }
+
+  /**
+   * Неизменяемое состояние: дерево с текстом, ещё не слитые в него дописанные фрагменты и версия,
+   * к которой возвращает {@link #undo()}.
+   */
+  private static final class Version {
+    private final Rope text;
+    private final Pending pending;
+    private final Version previous;
+    private final int depth;
+    // Кэш слитого содержимого. Гонка безопасна: Rope неизменяема и все её поля final.
+    private Rope content;
+
+    private Version(Rope text, Pending pending, Version previous, int depth) {
+      this.text = text;
+      this.pending = pending;
+      this.previous = previous;
+      this.depth = depth;
+    }
+
+    int length() {
+      return pending == null ? text.length() : text.length() + pending.length;
+    }
+
+    Rope content() {
+      Rope result = content;
+      if (result == null) {
+        result = pending == null ? text : Rope.concat(text, Rope.of(pending.join()));
+        content = result;
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Неизменяемый список дописанных фрагментов, от последнего к первому.
+   */
+  private static final class Pending {
+    private final String text;
+    private final Pending previous;
+    private final int count;
+    private final int length;
+
+    private Pending(String text, Pending previous) {
+      this.text = text;
+      this.previous = previous;
+      this.count = previous == null ? 1 : previous.count + 1;
+      this.length = previous == null ? text.length() : previous.length + text.length();
+    }
+
+    String join() {
+      char[] chars = new char[length];
+      int end = length;
+      for (Pending p = this; p != null; p = p.previous) {
+        end -= p.text.length();
+        p.text.getChars(0, p.text.length(), chars, end);
+      }
+      return new String(chars);
+    }
+  }
+}
@@ -1,60 +1,157 @@
 package com.afavlad.homeworkpractice.stringbuilder;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 public final class CustomStringBuilder implements CharSequence {
-  private StringBuilder builder;
-  private final Deque<String> snapshots = new ArrayDeque<>();
+  private final TextBuffer buffer;
+  private final EditHistory history;
 
   public CustomStringBuilder() {
-    this.builder = new StringBuilder();
+    this("");
   }
 
   public CustomStringBuilder(String string) {
-    this.builder = new StringBuilder(string);
+    this(string, HistoryLimit.unbounded());
   }
 
-  @Override
-  public int length() {
-    return builder.length();
+  public CustomStringBuilder(String string, StorageMode mode) {
+    this(string, HistoryLimit.unbounded(), mode);
+  }
+
+  public CustomStringBuilder(String string, HistoryLimit limit) {
+    this(string, limit, StorageMode.STRING_BUILDER);
+  }
+
+  /**
+   * @param string начальное содержимое
+   * @param limit  ограничение истории изменений; старые записи вытесняются при его превышении
+   * @param mode   способ хранения текста
+   */
+  public CustomStringBuilder(String string, HistoryLimit limit, StorageMode mode) {
+    this.buffer = mode == StorageMode.ROPE ? new RopeBuffer(string) : new StringBuilderBuffer(string);
+    this.history = new EditHistory(limit);
   }
 
-  private StringBuilder getBuilder() {
-    return builder;
+  @Override
+  public int length() {
+    return buffer.length();
   }
 
   @Override
   public char charAt(int index) {
-    return builder.charAt(index);
+    return buffer.charAt(index);
   }
 
+  /**
+   * В режиме {@link StorageMode#ROPE} возвращает представление без копирования, которое не
+   * меняется при последующих правках.
+   */
   @Override
   public CharSequence subSequence(int start, int end) {
-    return builder.subSequence(start, end);
+    return buffer.subSequence(start, end);
   }
 
   @Override
   public String toString() {
-    return builder.toString();
+    return buffer.toString();
   }
 
   /**
-   * Сохраняем текущее состояние перед изменениями.
+   * Записываем содержимое в writer частями, не создавая промежуточную строку.
    */
-  private void saveSnapshot() {
-    snapshots.push(builder.toString());
+  public void writeTo(Writer writer) throws IOException {
+    TextOutput.writeTo(buffer, writer);
   }
 
   /**
-   * Откатываем к предыдущему состоянию
+   * Кодируем содержимое в target, начиная с его текущей позиции. Некодируемые символы заменяются.
+   *
+   * @throws java.nio.BufferOverflowException если в target не хватает места
    */
-  public void undo() {
-    if (snapshots.isEmpty()) {
-      return;
+  public void encodeTo(ByteBuffer target, Charset charset) {
+    TextOutput.encodeTo(buffer, target, charset);
+  }
+
+  /**
+   * Записываем содержимое в канал в UTF-8 с его текущей позиции.
+   *
+   * @return количество записанных байт
+   */
+  public long transferTo(FileChannel channel) throws IOException {
+    return transferTo(channel, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Записываем содержимое в канал в заданной кодировке с его текущей позиции. Используется
+   * буфер фиксированного размера, поэтому дополнительная память не зависит от длины текста.
+   *
+   * @return количество записанных байт
+   */
+  public long transferTo(FileChannel channel, Charset charset) throws IOException {
+    return TextOutput.transferTo(buffer, channel, charset);
+  }
+
+  /**
+   * Заменяем диапазон [start, end) и запоминаем обратную операцию.
+   * <p>
+   * Все изменения сводятся к этой операции; в историю попадает только удалённый текст или
+   * предыдущая версия дерева, а не полный снимок строки.
+   */
+  private void replaceRange(int start, int end, String text) {
+    history.record(buffer.replace(start, end, text));
+  }
+
+  private void appendText(String text) {
+    int length = buffer.length();
+    replaceRange(length, length, text);
+  }
+
+  private static void checkOffset(int offset, int length) {
+    if (offset < 0 || offset > length) {
+      throw new StringIndexOutOfBoundsException("offset " + offset + ", length " + length);
+    }
+  }
+
+  private static void checkIndex(int index, int length) {
+    if (index < 0 || index >= length) {
+      throw new StringIndexOutOfBoundsException("index " + index + ", length " + length);
     }
-    String previous = snapshots.pop();
-    this.builder = new  StringBuilder(previous);
+  }
+
+  /**
+   * Проверяем диапазон так же, как {@link StringBuilder}: конец за пределами строки обрезается.
+   *
+   * @return фактический конец диапазона
+   */
+  private static int checkRange(int start, int end, int length) {
+    int actualEnd = Math.min(end, length);
+    if (start < 0 || start > length || start > end) {
+      throw new StringIndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+    }
+    return actualEnd;
+  }
+
+  /**
+   * Откатываем к предыдущему состоянию.
+   * <p>
+   * Применяет одну обратную операцию, поэтому стоимость пропорциональна размеру отменяемого
+   * изменения, а не длине всей строки. В режиме {@link StorageMode#ROPE} откат просто
+   * восстанавливает предыдущую версию дерева за O(1).
+   */
+  public void undo() {
+    history.undo();
+  }
+
+  /**
+   * Повторяем последнее отменённое изменение. Любое новое изменение очищает стек redo.
+   */
+  public void redo() {
+    history.redo();
   }
 
   /**
@@ -62,78 +159,124 @@ public final class CustomStringBuilder implements CharSequence {
    *
    */
   public boolean canUndo() {
-    return !snapshots.isEmpty();
+    return history.canUndo();
+  }
+
+  /**
+   * Проверка, есть ли что повторять.
+   */
+  public boolean canRedo() {
+    return history.canRedo();
+  }
+
+  /**
+   * Запоминаем текущее состояние под именем name.
+   */
+  public Checkpoint checkpoint(String name) {
+    return history.checkpoint(name);
   }
 
   /**
-   * Очистка всей истории снимков.
+   * Возвращаемся к состоянию контрольной точки, отменяя или повторяя изменения.
+   *
+   * @throws IllegalStateException если нужные записи уже вытеснены из истории
+   */
+  public void rollbackTo(Checkpoint checkpoint) {
+    history.rollbackTo(checkpoint);
+  }
+
+  /**
+   * Очистка всей истории изменений.
    */
   public void clearHistory() {
-    snapshots.clear();
+    history.clear();
+  }
+
+  public HistoryLimit getHistoryLimit() {
+    return history.getLimit();
+  }
+
+  /**
+   * Меняем ограничение истории; лишние старые записи вытесняются сразу.
+   */
+  public void setHistoryLimit(HistoryLimit limit) {
+    history.setLimit(limit);
+  }
+
+  /**
+   * Количество записей в истории (undo и redo вместе).
+   */
+  public int historySize() {
+    return history.size();
+  }
+
+  /**
+   * Приблизительный объём памяти, занятый историей, в байтах.
+   */
+  public long historyRetainedBytes() {
+    return history.retainedBytes();
   }
 
   public CustomStringBuilder append(String str) {
-    saveSnapshot();
-    builder.append(str);
+    appendText(String.valueOf(str));
     return this;
   }
 
   public CustomStringBuilder append(char ch) {
-    saveSnapshot();
-    builder.append(ch);
+    appendText(String.valueOf(ch));
     return this;
   }
 
   public CustomStringBuilder append(int i) {
-    saveSnapshot();
-    builder.append(i);
+    appendText(String.valueOf(i));
     return this;
   }
 
   public CustomStringBuilder append(Object obj) {
-    saveSnapshot();
-    builder.append(obj);
+    appendText(String.valueOf(obj));
     return this;
   }
 
   public CustomStringBuilder insert(int offset, String str) {
-    saveSnapshot();
-    builder.insert(offset, str);
+    checkOffset(offset, buffer.length());
+    replaceRange(offset, offset, String.valueOf(str));
     return this;
   }
 
   public CustomStringBuilder insert(int offset, char ch) {
-    saveSnapshot();
-    builder.insert(offset, ch);
+    checkOffset(offset, buffer.length());
+    replaceRange(offset, offset, String.valueOf(ch));
     return this;
   }
 
   public CustomStringBuilder delete(int start, int end) {
-    saveSnapshot();
-    builder.delete(start, end);
+    int actualEnd = checkRange(start, end, buffer.length());
+    replaceRange(start, actualEnd, "");
     return  this;
   }
 
   public CustomStringBuilder deleteCharAt(int index) {
-    saveSnapshot();
-    builder.deleteCharAt(index);
+    checkIndex(index, buffer.length());
+    replaceRange(index, index + 1, "");
     return this;
   }
 
   public CustomStringBuilder replace(int start, int end, String str) {
-    saveSnapshot();
-    builder.replace(start, end, str);
+    int actualEnd = checkRange(start, end, buffer.length());
+    replaceRange(start, actualEnd, str);
     return this;
   }
 
   public CustomStringBuilder reverse() {
-    saveSnapshot();
-    builder.reverse();
+    // Двойной reverse() не всегда восстанавливает исходную строку из-за суррогатных пар,
+    // поэтому reverse() записываем как обычную замену всего текста.
+    String reversed = new StringBuilder(buffer.toString()).reverse().toString();
+    replaceRange(0, buffer.length(), reversed);
     return this;
   }
 
   public void setCharAt(int index, char ch) {
-    saveSnapshot();
-    builder.setCharAt(index, ch);
+    checkIndex(index, buffer.length());
+    replaceRange(index, index + 1, String.valueOf(ch));
   }
 }
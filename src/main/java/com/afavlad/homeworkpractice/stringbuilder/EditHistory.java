@@ -0,0 +1,183 @@
+package com.afavlad.homeworkpractice.stringbuilder;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * История изменений с undo/redo, контрольными точками и ограничением по размеру.
+ * <p>
+ * Каждое состояние текста получает свой номер. Запись в стеке undo или redo хранит обратную
+ * операцию и номер состояния, в которое она приводит, поэтому контрольной точке достаточно
+ * помнить только номер.
+ */
+final class EditHistory {
+
+  private final Deque<Entry> undo = new ArrayDeque<>();
+  private final Deque<Entry> redo = new ArrayDeque<>();
+  private HistoryLimit limit;
+  private long retainedBytes;
+  private long lastState;
+  private long state;
+
+  EditHistory(HistoryLimit limit) {
+    setLimit(limit);
+  }
+
+  HistoryLimit getLimit() {
+    return limit;
+  }
+
+  void setLimit(HistoryLimit limit) {
+    if (limit == null) {
+      throw new IllegalArgumentException("History limit must not be null");
+    }
+    this.limit = limit;
+    evict();
+  }
+
+  /**
+   * Регистрирует новое изменение. Ветка redo при этом теряется.
+   *
+   * @param revision обратная операция для выполненного изменения
+   */
+  void record(Revision revision) {
+    clear(redo);
+    push(undo, revision, state);
+    state = ++lastState;
+    evict();
+  }
+
+  boolean canUndo() {
+    return !undo.isEmpty();
+  }
+
+  boolean canRedo() {
+    return !redo.isEmpty();
+  }
+
+  boolean undo() {
+    boolean moved = move(undo, redo);
+    evict();
+    return moved;
+  }
+
+  boolean redo() {
+    boolean moved = move(redo, undo);
+    evict();
+    return moved;
+  }
+
+  Checkpoint checkpoint(String name) {
+    return new Checkpoint(name, this, state);
+  }
+
+  /**
+   * Откатывает или повторяет изменения, пока текст не вернётся в состояние контрольной точки.
+   * <p>
+   * Вытеснение откладывается до конца отката: обратные операции могут занимать больше места,
+   * чем исходные, и промежуточное вытеснение выбросило бы записи, ведущие к точке.
+   *
+   * @throws IllegalArgumentException если точка создана другим объектом
+   * @throws IllegalStateException    если записи, ведущие к точке, уже вытеснены или отброшены
+   */
+  void rollbackTo(Checkpoint checkpoint) {
+    if (checkpoint == null || checkpoint.getHistory() != this) {
+      throw new IllegalArgumentException("Checkpoint does not belong to this builder");
+    }
+    long target = checkpoint.getState();
+    if (target == state) {
+      return;
+    }
+    Deque<Entry> from;
+    Deque<Entry> to;
+    if (contains(undo, target)) {
+      from = undo;
+      to = redo;
+    } else if (contains(redo, target)) {
+      from = redo;
+      to = undo;
+    } else {
+      throw new IllegalStateException("Checkpoint '" + checkpoint.getName() + "' is no longer reachable");
+    }
+    while (state != target) {
+      if (!move(from, to)) {
+        throw new IllegalStateException("Checkpoint '" + checkpoint.getName() + "' is no longer reachable");
+      }
+    }
+    evict();
+  }
+
+  /**
+   * Очистка всей истории. Текущее состояние остаётся единственным доступным.
+   */
+  void clear() {
+    clear(undo);
+    clear(redo);
+  }
+
+  int size() {
+    return undo.size() + redo.size();
+  }
+
+  long retainedBytes() {
+    return retainedBytes;
+  }
+
+  private boolean move(Deque<Entry> from, Deque<Entry> to) {
+    Entry entry = from.poll();
+    if (entry == null) {
+      return false;
+    }
+    retainedBytes -= entry.bytes;
+    push(to, entry.revision.revert(), state);
+    state = entry.target;
+    return true;
+  }
+
+  private void push(Deque<Entry> stack, Revision revision, long target) {
+    Entry entry = new Entry(revision, target);
+    stack.push(entry);
+    retainedBytes += entry.bytes;
+  }
+
+  /**
+   * Вытесняем самые старые записи undo, затем самые дальние записи redo, пока история не
+   * уложится в лимит.
+   */
+  private void evict() {
+    while (limit.isExceeded(size(), retainedBytes)) {
+      Entry evicted = undo.isEmpty() ? redo.pollLast() : undo.pollLast();
+      retainedBytes -= evicted.bytes;
+    }
+  }
+
+  private void clear(Deque<Entry> stack) {
+    for (Entry entry : stack) {
+      retainedBytes -= entry.bytes;
+    }
+    stack.clear();
+  }
+
+  private static boolean contains(Deque<Entry> stack, long target) {
+    for (Entry entry : stack) {
+      if (entry.target == target) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static final class Entry {
+    private static final long OVERHEAD_BYTES = 32;
+
+    private final Revision revision;
+    private final long target;
+    private final long bytes;
+
+    private Entry(Revision revision, long target) {
+      this.revision = revision;
+      this.target = target;
+      this.bytes = OVERHEAD_BYTES + revision.retainedBytes();
+    }
+  }
+}
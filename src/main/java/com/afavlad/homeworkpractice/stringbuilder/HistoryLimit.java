@@ -0,0 +1,72 @@
+package com.afavlad.homeworkpractice.stringbuilder;
+
+/**
+ * Ограничение размера истории изменений {@link CustomStringBuilder}.
+ * <p>
+ * Когда история выходит за любой из лимитов, самые старые записи удаляются, и откатиться к ним
+ * уже нельзя. Объём в байтах считается приблизительно: сохранённые символы плюс накладные расходы
+ * на объекты записи.
+ */
+public final class HistoryLimit {
+
+  private static final HistoryLimit UNBOUNDED = new HistoryLimit(Integer.MAX_VALUE, Long.MAX_VALUE);
+
+  private final int maxOperations;
+  private final long maxRetainedBytes;
+
+  private HistoryLimit(int maxOperations, long maxRetainedBytes) {
+    if (maxOperations < 0) {
+      throw new IllegalArgumentException("Max operations must be >= 0");
+    }
+    if (maxRetainedBytes < 0) {
+      throw new IllegalArgumentException("Max retained bytes must be >= 0");
+    }
+    this.maxOperations = maxOperations;
+    this.maxRetainedBytes = maxRetainedBytes;
+  }
+
+  /**
+   * История без ограничений (поведение по умолчанию).
+   */
+  public static HistoryLimit unbounded() {
+    return UNBOUNDED;
+  }
+
+  /**
+   * Хранить не больше maxOperations записей (undo и redo вместе).
+   */
+  public static HistoryLimit ofOperations(int maxOperations) {
+    return new HistoryLimit(maxOperations, Long.MAX_VALUE);
+  }
+
+  /**
+   * Хранить записи суммарным объёмом не больше maxRetainedBytes байт.
+   */
+  public static HistoryLimit ofBytes(long maxRetainedBytes) {
+    return new HistoryLimit(Integer.MAX_VALUE, maxRetainedBytes);
+  }
+
+  /**
+   * Оба ограничения сразу: история обрезается, как только превышен любой из них.
+   */
+  public static HistoryLimit of(int maxOperations, long maxRetainedBytes) {
+    return new HistoryLimit(maxOperations, maxRetainedBytes);
+  }
+
+  public int getMaxOperations() {
+    return maxOperations;
+  }
+
+  public long getMaxRetainedBytes() {
+    return maxRetainedBytes;
+  }
+
+  boolean isExceeded(int operations, long retainedBytes) {
+    return operations > maxOperations || retainedBytes > maxRetainedBytes;
+  }
+
+  @Override
+  public String toString() {
+    return "HistoryLimit{maxOperations=" + maxOperations + ", maxRetainedBytes=" + maxRetainedBytes + '}';
+  }
+}
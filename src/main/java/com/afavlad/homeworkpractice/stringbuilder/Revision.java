@@ -0,0 +1,19 @@
+package com.afavlad.homeworkpractice.stringbuilder;
+
+/**
+ * Запись истории изменений, которую можно откатить.
+ */
+interface Revision {
+
+  /**
+   * Применяет запись к тексту.
+   *
+   * @return запись, которая отменяет только что выполненный откат (используется для redo/undo)
+   */
+  Revision revert();
+
+  /**
+   * Приблизительный объём памяти в байтах, который удерживает запись.
+   */
+  long retainedBytes();
+}
@@ -0,0 +1,321 @@
+package com.afavlad.homeworkpractice.stringbuilder;
+
+/**
+ * Неизменяемая строка в виде сбалансированного (AVL) дерева конкатенаций.
+ * <p>
+ * Листья хранят фрагменты до {@link #MAX_LEAF_LENGTH} символов, внутренние узлы — суммарную длину
+ * и высоту поддерева. Любое изменение создаёт O(log n) новых узлов, а остальные переиспользует,
+ * поэтому старые версии дёшево хранить для отката.
+ */
+abstract class Rope implements CharSequence {
+
+  static final int MAX_LEAF_LENGTH = 512;
+
+  /**
+   * Приблизительный размер одного узла в байтах, используется для оценки памяти истории.
+   */
+  static final int NODE_BYTES = 32;
+
+  private static final Rope EMPTY = new Leaf("");
+
+  static Rope of(String text) {
+    if (text.length() <= MAX_LEAF_LENGTH) {
+      return text.isEmpty() ? EMPTY : new Leaf(text);
+    }
+    int mid = text.length() >>> 1;
+    return new Node(of(text.substring(0, mid)), of(text.substring(mid)));
+  }
+
+  abstract int height();
+
+  /**
+   * Копирует символы [start, end) в target.
+   */
+  abstract void appendTo(StringBuilder target, int start, int end);
+
+  /**
+   * Копирует символы [start, end) в dst, начиная с позиции dstBegin.
+   */
+  abstract void getChars(int start, int end, char[] dst, int dstBegin);
+
+  /**
+   * Возвращает первые index символов.
+   */
+  abstract Rope prefix(int index);
+
+  /**
+   * Возвращает символы, начиная с index.
+   */
+  abstract Rope suffix(int index);
+
+  /**
+   * Новая версия, в которой символы [start, end) заменены на text.
+   */
+  Rope replace(int start, int end, String text) {
+    return concat(concat(prefix(start), of(text)), suffix(end));
+  }
+
+  /**
+   * Представление диапазона [start, end) без копирования символов.
+   */
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    checkRange(start, end, length());
+    return new Slice(this, start, end);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder(length());
+    appendTo(result, 0, length());
+    return result.toString();
+  }
+
+  /**
+   * Склеивает две версии, сохраняя баланс. Соседние короткие листья сливаются, чтобы серия
+   * мелких вставок не превращалась в дерево из односимвольных листьев.
+   */
+  static Rope concat(Rope left, Rope right) {
+    if (left.length() == 0) {
+      return right;
+    }
+    if (right.length() == 0) {
+      return left;
+    }
+    if (left.height() > right.height() + 1) {
+      Node node = (Node) left;
+      return balance(node.left, concat(node.right, right));
+    }
+    if (right.height() > left.height() + 1) {
+      Node node = (Node) right;
+      return balance(concat(left, node.left), node.right);
+    }
+    return join(left, right);
+  }
+
+  private static Rope join(Rope left, Rope right) {
+    if (left instanceof Leaf && right instanceof Leaf) {
+      if (left.length() + right.length() <= MAX_LEAF_LENGTH) {
+        return new Leaf(left.toString() + right);
+      }
+    } else if (right instanceof Leaf && left.height() == 1) {
+      Node node = (Node) left;
+      if (node.right.length() + right.length() <= MAX_LEAF_LENGTH) {
+        return new Node(node.left, new Leaf(node.right.toString() + right));
+      }
+    } else if (left instanceof Leaf && right.height() == 1) {
+      Node node = (Node) right;
+      if (left.length() + node.left.length() <= MAX_LEAF_LENGTH) {
+        return new Node(new Leaf(left.toString() + node.left), node.right);
+      }
+    }
+    return new Node(left, right);
+  }
+
+  /**
+   * Собирает узел из поддеревьев, высоты которых отличаются не больше чем на 2, выполняя
+   * одиночный или двойной поворот.
+   */
+  private static Rope balance(Rope left, Rope right) {
+    if (left.height() > right.height() + 1) {
+      Node node = (Node) left;
+      if (node.left.height() >= node.right.height()) {
+        return new Node(node.left, new Node(node.right, right));
+      }
+      Node inner = (Node) node.right;
+      return new Node(new Node(node.left, inner.left), new Node(inner.right, right));
+    }
+    if (right.height() > left.height() + 1) {
+      Node node = (Node) right;
+      if (node.right.height() >= node.left.height()) {
+        return new Node(new Node(left, node.left), node.right);
+      }
+      Node inner = (Node) node.left;
+      return new Node(new Node(left, inner.left), new Node(inner.right, node.right));
+    }
+    return new Node(left, right);
+  }
+
+  static void checkRange(int start, int end, int length) {
+    if (start < 0 || start > end || end > length) {
+      throw new StringIndexOutOfBoundsException(
+          "start " + start + ", end " + end + ", length " + length);
+    }
+  }
+
+  private static final class Leaf extends Rope {
+    private final String text;
+
+    private Leaf(String text) {
+      this.text = text;
+    }
+
+    @Override
+    public int length() {
+      return text.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+      return text.charAt(index);
+    }
+
+    @Override
+    int height() {
+      return 0;
+    }
+
+    @Override
+    void appendTo(StringBuilder target, int start, int end) {
+      target.append(text, start, end);
+    }
+
+    @Override
+    void getChars(int start, int end, char[] dst, int dstBegin) {
+      text.getChars(start, end, dst, dstBegin);
+    }
+
+    @Override
+    Rope prefix(int index) {
+      return index >= text.length() ? this : of(text.substring(0, index));
+    }
+
+    @Override
+    Rope suffix(int index) {
+      return index <= 0 ? this : of(text.substring(index));
+    }
+
+    @Override
+    public String toString() {
+      return text;
+    }
+  }
+
+  private static final class Node extends Rope {
+    private final Rope left;
+    private final Rope right;
+    private final int length;
+    private final int height;
+
+    private Node(Rope left, Rope right) {
+      this.left = left;
+      this.right = right;
+      this.length = left.length() + right.length();
+      this.height = Math.max(left.height(), right.height()) + 1;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      Rope current = this;
+      while (current instanceof Node) {
+        Node node = (Node) current;
+        int leftLength = node.left.length();
+        if (index < leftLength) {
+          current = node.left;
+        } else {
+          index -= leftLength;
+          current = node.right;
+        }
+      }
+      return current.charAt(index);
+    }
+
+    @Override
+    int height() {
+      return height;
+    }
+
+    @Override
+    void appendTo(StringBuilder target, int start, int end) {
+      int leftLength = left.length();
+      if (start < leftLength) {
+        left.appendTo(target, start, Math.min(end, leftLength));
+      }
+      if (end > leftLength) {
+        right.appendTo(target, Math.max(start - leftLength, 0), end - leftLength);
+      }
+    }
+
+    @Override
+    void getChars(int start, int end, char[] dst, int dstBegin) {
+      int leftLength = left.length();
+      if (start < leftLength) {
+        left.getChars(start, Math.min(end, leftLength), dst, dstBegin);
+      }
+      if (end > leftLength) {
+        int rightStart = Math.max(start - leftLength, 0);
+        right.getChars(rightStart, end - leftLength, dst, dstBegin + Math.max(leftLength - start, 0));
+      }
+    }
+
+    @Override
+    Rope prefix(int index) {
+      if (index >= length) {
+        return this;
+      }
+      int leftLength = left.length();
+      if (index <= leftLength) {
+        return left.prefix(index);
+      }
+      return concat(left, right.prefix(index - leftLength));
+    }
+
+    @Override
+    Rope suffix(int index) {
+      if (index <= 0) {
+        return this;
+      }
+      int leftLength = left.length();
+      if (index >= leftLength) {
+        return right.suffix(index - leftLength);
+      }
+      return concat(left.suffix(index), right);
+    }
+  }
+
+  /**
+   * Диапазон неизменяемой версии. Символы читаются из дерева, а не копируются.
+   */
+  private static final class Slice implements CharSequence {
+    private final Rope rope;
+    private final int start;
+    private final int end;
+
+    private Slice(Rope rope, int start, int end) {
+      this.rope = rope;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public int length() {
+      return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+      if (index < 0 || index >= length()) {
+        throw new StringIndexOutOfBoundsException("index " + index + ", length " + length());
+      }
+      return rope.charAt(start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+      checkRange(from, to, length());
+      return new Slice(rope, start + from, start + to);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder result = new StringBuilder(length());
+      rope.appendTo(result, start, end);
+      return result.toString();
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package com.afavlad.homeworkpractice.stringbuilder;
+
+/**
+ * Хранилище на основе неизменяемой {@link Rope}.
+ * <p>
+ * Вставка и удаление в любой позиции стоят O(log n), а старые версии разделяют узлы с текущей.
+ * Поэтому запись для отката — это просто предыдущий корень, и откат выполняется за O(1).
+ */
+final class RopeBuffer implements TextBuffer {
+
+  private Rope root;
+
+  RopeBuffer(String string) {
+    this.root = Rope.of(string);
+  }
+
+  @Override
+  public int length() {
+    return root.length();
+  }
+
+  @Override
+  public char charAt(int index) {
+    return root.charAt(index);
+  }
+
+  /**
+   * Возвращает представление диапазона без копирования символов. Представление не меняется
+   * при последующих изменениях буфера.
+   */
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    return root.subSequence(start, end);
+  }
+
+  @Override
+  public String toString() {
+    return root.toString();
+  }
+
+  @Override
+  public void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
+    Rope.checkRange(srcBegin, srcEnd, root.length());
+    root.getChars(srcBegin, srcEnd, dst, dstBegin);
+  }
+
+  @Override
+  public Revision replace(int start, int end, String text) {
+    Rope previous = root;
+    root = root.replace(start, end, text);
+    return new RootRevision(previous, end - start, text.length());
+  }
+
+  /**
+   * Откат к сохранённому корню. Узлы, общие с текущей версией, память не удерживают, поэтому
+   * объём оцениваем по пути от корня до изменённого места и удалённому тексту.
+   */
+  private final class RootRevision implements Revision {
+    private final Rope saved;
+    private final int removedLength;
+    private final int insertedLength;
+
+    private RootRevision(Rope saved, int removedLength, int insertedLength) {
+      this.saved = saved;
+      this.removedLength = removedLength;
+      this.insertedLength = insertedLength;
+    }
+
+    @Override
+    public Revision revert() {
+      Rope current = root;
+      root = saved;
+      return new RootRevision(current, insertedLength, removedLength);
+    }
+
+    @Override
+    public long retainedBytes() {
+      return 24 + Rope.NODE_BYTES * (saved.height() + 1) + 2L * removedLength;
+    }
+  }
+}
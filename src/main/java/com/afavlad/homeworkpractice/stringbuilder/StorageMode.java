@@ -0,0 +1,18 @@
+package com.afavlad.homeworkpractice.stringbuilder;
+
+/**
+ * Способ хранения текста внутри {@link CustomStringBuilder}.
+ */
+public enum StorageMode {
+
+  /**
+   * Один {@link StringBuilder}. Быстрее всего для дописывания в конец и небольших текстов.
+   */
+  STRING_BUILDER,
+
+  /**
+   * Сбалансированное дерево фрагментов (rope). Вставка и удаление в любом месте за O(log n),
+   * subSequence без копирования, undo за O(1). Подходит для больших документов.
+   */
+  ROPE
+}
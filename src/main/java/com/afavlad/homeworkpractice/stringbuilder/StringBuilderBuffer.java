@@ -0,0 +1,73 @@
+package com.afavlad.homeworkpractice.stringbuilder;
+
+/**
+ * Хранилище на основе {@link StringBuilder}.
+ * <p>
+ * Откат хранит только удалённый текст и длину вставки, поэтому история растёт вместе с объёмом
+ * изменённого текста. Вставки и удаления в начале сдвигают весь буфер.
+ */
+final class StringBuilderBuffer implements TextBuffer {
+
+  private final StringBuilder builder;
+
+  StringBuilderBuffer(String string) {
+    this.builder = new StringBuilder(string);
+  }
+
+  @Override
+  public int length() {
+    return builder.length();
+  }
+
+  @Override
+  public char charAt(int index) {
+    return builder.charAt(index);
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    return builder.subSequence(start, end);
+  }
+
+  @Override
+  public String toString() {
+    return builder.toString();
+  }
+
+  @Override
+  public void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
+    builder.getChars(srcBegin, srcEnd, dst, dstBegin);
+  }
+
+  @Override
+  public Revision replace(int start, int end, String text) {
+    String removed = builder.substring(start, end);
+    builder.replace(start, end, text);
+    return new Edit(start, removed, text.length());
+  }
+
+  /**
+   * Обратная операция: на позиции offset заменить insertedLength символов на removed.
+   */
+  private final class Edit implements Revision {
+    private final int offset;
+    private final String removed;
+    private final int insertedLength;
+
+    private Edit(int offset, String removed, int insertedLength) {
+      this.offset = offset;
+      this.removed = removed;
+      this.insertedLength = insertedLength;
+    }
+
+    @Override
+    public Revision revert() {
+      return replace(offset, offset + insertedLength, removed);
+    }
+
+    @Override
+    public long retainedBytes() {
+      return 24 + 2L * removed.length();
+    }
+  }
+}
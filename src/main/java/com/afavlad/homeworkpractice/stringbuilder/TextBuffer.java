@@ -0,0 +1,22 @@
+package com.afavlad.homeworkpractice.stringbuilder;
+
+/**
+ * Хранилище текста для {@link CustomStringBuilder}.
+ * <p>
+ * Все изменения сводятся к одной операции {@link #replace(int, int, String)}, которая возвращает
+ * запись для отката. Границы проверяет вызывающий код.
+ */
+interface TextBuffer extends CharSequence {
+
+  /**
+   * Заменяет символы в диапазоне [start, end) на text.
+   *
+   * @return запись, откатывающая эту замену
+   */
+  Revision replace(int start, int end, String text);
+
+  /**
+   * Копирует символы [srcBegin, srcEnd) в dst, начиная с позиции dstBegin.
+   */
+  void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin);
+}
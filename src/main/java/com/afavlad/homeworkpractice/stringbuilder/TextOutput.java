@@ -0,0 +1,110 @@
+package com.afavlad.homeworkpractice.stringbuilder;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Вывод содержимого {@link TextBuffer} частями фиксированного размера.
+ * <p>
+ * Символы копируются через один переиспользуемый буфер на {@link #CHUNK_SIZE} символов, поэтому
+ * дополнительная память не зависит от размера текста и {@link String} целиком не создаётся.
+ */
+final class TextOutput {
+
+  static final int CHUNK_SIZE = 8 * 1024;
+
+  private TextOutput() {
+  }
+
+  static void writeTo(TextBuffer text, Writer writer) throws IOException {
+    char[] chunk = new char[CHUNK_SIZE];
+    int length = text.length();
+    for (int start = 0; start < length; start += CHUNK_SIZE) {
+      int end = Math.min(start + CHUNK_SIZE, length);
+      text.getChars(start, end, chunk, 0);
+      writer.write(chunk, 0, end - start);
+    }
+  }
+
+  /**
+   * @throws BufferOverflowException если закодированный текст не помещается в target
+   */
+  static void encodeTo(TextBuffer text, ByteBuffer target, Charset charset) {
+    try {
+      encode(text, charset, target, full -> {
+        throw new BufferOverflowException();
+      });
+    } catch (IOException e) {
+      throw new IllegalStateException("Unexpected I/O error while encoding to a buffer", e);
+    }
+  }
+
+  /**
+   * Пишет текст в канал с его текущей позиции.
+   *
+   * @return количество записанных байт
+   */
+  static long transferTo(TextBuffer text, FileChannel channel, Charset charset) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE * 4);
+    long[] written = new long[1];
+    ByteSink drain = full -> {
+      full.flip();
+      while (full.hasRemaining()) {
+        written[0] += channel.write(full);
+      }
+      full.clear();
+    };
+    encode(text, charset, buffer, drain);
+    drain.accept(buffer);
+    return written[0];
+  }
+
+  /**
+   * Кодирует текст в out, отдавая буфер в sink каждый раз, когда он заполнен. Суррогатная пара,
+   * разрезанная границей части, переносится в следующую часть.
+   */
+  private static void encode(TextBuffer text, Charset charset, ByteBuffer out, ByteSink sink)
+      throws IOException {
+    CharsetEncoder encoder = charset.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    char[] chunk = new char[CHUNK_SIZE];
+    CharBuffer in = CharBuffer.wrap(chunk);
+    in.limit(0);
+    int length = text.length();
+    int next = 0;
+    boolean last;
+    do {
+      in.compact();
+      int count = Math.min(in.remaining(), length - next);
+      text.getChars(next, next + count, chunk, in.position());
+      in.position(in.position() + count);
+      in.flip();
+      next += count;
+      last = next == length;
+      CoderResult result;
+      while ((result = encoder.encode(in, out, last)).isOverflow()) {
+        sink.accept(out);
+      }
+      if (result.isError()) {
+        result.throwException();
+      }
+    } while (!last);
+    while (encoder.flush(out).isOverflow()) {
+      sink.accept(out);
+    }
+  }
+
+  @FunctionalInterface
+  private interface ByteSink {
+    void accept(ByteBuffer full) throws IOException;
+  }
+}
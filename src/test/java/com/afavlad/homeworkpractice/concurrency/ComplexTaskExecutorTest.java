@@ -0,0 +1,195 @@
+package com.afavlad.homeworkpractice.concurrency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Режимы выполнения {@link ComplexTaskExecutor}: каждый режим возвращает результаты всех задач
+ * своей серии и сообщает об ошибках вызывающему коду.
+ */
+class ComplexTaskExecutorTest {
+
+  private static final int POOL_SIZE = 2;
+  private static final int TASKS = 1_000;
+  private static final int FAILING_TASK = 10;
+  private static final int CHUNKED_TASKS = 100_000;
+  private static final int SLOW_TASK_EVERY = 5_000;
+
+  @Test
+  void concurrentTaskSeriesShareThePoolAndCombineTheirOwnResults() throws Exception {
+    CombinedResults metrics = new CombinedResults();
+    try (ComplexTaskExecutor executor =
+        new ComplexTaskExecutor(POOL_SIZE, ExecutionMode.PLATFORM, metrics)) {
+      // Серий больше, чем потоков в пуле: задачи ждут друг друга на барьере и не должны
+      // застревать в очереди.
+      CompletableFuture<Void> first = CompletableFuture.runAsync(() -> executor.executeTasks(3));
+      CompletableFuture<Void> second = CompletableFuture.runAsync(() -> executor.executeTasks(4));
+      first.get(30, TimeUnit.SECONDS);
+      second.get(30, TimeUnit.SECONDS);
+    }
+
+    // Задача i получает i + 1 и возвращает квадрат; серии складывают только свои результаты.
+    assertThat(metrics.results()).containsExactlyInAnyOrder(1L + 4 + 9, 1L + 4 + 9 + 16);
+  }
+
+  @Test
+  void closedExecutorRejectsNewSeries() {
+    ComplexTaskExecutor executor = new ComplexTaskExecutor(POOL_SIZE);
+    executor.close();
+
+    assertThatThrownBy(() -> executor.executeTasks(1)).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void submitBatchCollectsResultOfEveryTask() throws Exception {
+    try (ComplexTaskExecutor executor = new ComplexTaskExecutor(POOL_SIZE)) {
+      Map<Integer, Long> byIndex = executor.submitBatch(TASKS, i -> i,
+          i -> Map.entry(i, (long) i * i),
+          Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)).get(10, TimeUnit.SECONDS);
+
+      assertThat(byIndex).hasSize(TASKS);
+      byIndex.forEach((index, square) -> assertThat(square).isEqualTo((long) index * index));
+      assertThat(executor.submitBatch(3).get(30, TimeUnit.SECONDS)).isEqualTo(1L + 4 + 9);
+      assertThat(executor.submitBatch(0).get(10, TimeUnit.SECONDS)).isZero();
+    }
+    // С одной полосой задачи накапливаются строго по порядку индексов.
+    try (ComplexTaskExecutor executor = new ComplexTaskExecutor(1)) {
+      assertThat(executor.submitBatch(TASKS, i -> i, Function.identity(), Collectors.toList())
+          .get(10, TimeUnit.SECONDS)).isEqualTo(indices(TASKS));
+    }
+  }
+
+  @Test
+  void submitBatchFailsWithTaskExceptionAndStopsLaunchingTasks() throws Exception {
+    AtomicInteger started = new AtomicInteger();
+    try (ComplexTaskExecutor executor = new ComplexTaskExecutor(POOL_SIZE)) {
+      CompletableFuture<List<Integer>> batch = executor.submitBatch(TASKS, i -> i, i -> {
+        started.incrementAndGet();
+        if (i == FAILING_TASK) {
+          throw new IllegalStateException("task " + i + " failed");
+        }
+        sleep(1);
+        return i;
+      }, Collectors.toList());
+
+      assertThatThrownBy(() -> batch.get(10, TimeUnit.SECONDS))
+          .isInstanceOf(ExecutionException.class)
+          .hasRootCauseInstanceOf(IllegalStateException.class)
+          .hasRootCauseMessage("task " + FAILING_TASK + " failed");
+    }
+    assertThat(started.get()).isLessThan(TASKS);
+  }
+
+  @Test
+  void submitBatchOnClosedExecutorIsRejected() {
+    ComplexTaskExecutor executor = new ComplexTaskExecutor(POOL_SIZE);
+    executor.close();
+
+    assertThatThrownBy(() -> executor.submitBatch(1)).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void submitChunkedKeepsIndexOrder() throws Exception {
+    try (ComplexTaskExecutor executor = new ComplexTaskExecutor(POOL_SIZE)) {
+      List<Integer> fast = executor.submitChunked(CHUNKED_TASKS, i -> i, Function.identity(),
+          Collectors.toList()).get(10, TimeUnit.SECONDS);
+      // Медленные задачи заставляют отдавать остаток куска на кражу другим потокам.
+      List<Integer> uneven = executor.submitChunked(CHUNKED_TASKS, i -> i, i -> {
+        if (i % SLOW_TASK_EVERY == 0) {
+          sleep(1);
+        }
+        return i;
+      }, Collectors.toList()).get(10, TimeUnit.SECONDS);
+
+      assertThat(fast).isEqualTo(indices(CHUNKED_TASKS));
+      assertThat(uneven).isEqualTo(indices(CHUNKED_TASKS));
+      assertThat(executor.submitChunked(0, i -> i, Function.identity(), Collectors.toList())
+          .get(10, TimeUnit.SECONDS)).isEmpty();
+    }
+  }
+
+  @Test
+  void submitChunkedFailsWithTaskException() {
+    try (ComplexTaskExecutor executor = new ComplexTaskExecutor(POOL_SIZE)) {
+      CompletableFuture<List<Integer>> batch = executor.submitChunked(CHUNKED_TASKS, i -> i, i -> {
+        if (i == FAILING_TASK) {
+          throw new IllegalStateException("task " + i + " failed");
+        }
+        return i;
+      }, Collectors.toList());
+
+      assertThatThrownBy(() -> batch.get(10, TimeUnit.SECONDS))
+          .isInstanceOf(ExecutionException.class)
+          .hasRootCauseInstanceOf(IllegalStateException.class)
+          .hasRootCauseMessage("task " + FAILING_TASK + " failed");
+    }
+  }
+
+  @Test
+  void submitChunkedOnClosedExecutorIsRejected() {
+    ComplexTaskExecutor executor = new ComplexTaskExecutor(POOL_SIZE);
+    executor.close();
+
+    assertThatThrownBy(() -> executor.submitChunked(1, i -> i, Function.identity(),
+        Collectors.toList())).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void virtualModeRunsTasksOrIsRejected() throws Exception {
+    if (!ComplexTaskExecutor.isVirtualThreadsSupported()) {
+      assertThatThrownBy(() -> new ComplexTaskExecutor(2, ExecutionMode.VIRTUAL))
+          .isInstanceOf(UnsupportedOperationException.class);
+      return;
+    }
+    try (ComplexTaskExecutor executor = new ComplexTaskExecutor(2, ExecutionMode.VIRTUAL)) {
+      assertThat(executor.getMode()).isEqualTo(ExecutionMode.VIRTUAL);
+      // Задач больше, чем poolSize: в виртуальном режиме размер пула ничего не ограничивает.
+      long sum = executor.submitBatch(100, i -> i, i -> (long) i,
+          Collectors.summingLong(Long::longValue)).get(10, TimeUnit.SECONDS);
+      assertThat(sum).isEqualTo(99L * 100 / 2);
+    }
+  }
+
+  private static List<Integer> indices(int count) {
+    List<Integer> indices = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      indices.add(i);
+    }
+    return indices;
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Запоминает объединённые результаты серий {@link ComplexTaskExecutor#executeTasks(int)}.
+   */
+  private static final class CombinedResults implements ExecutorMetrics {
+    private final List<Long> results = new ArrayList<>();
+
+    @Override
+    public synchronized void batchCombined(int numberOfTasks, long combinedResult) {
+      results.add(combinedResult);
+    }
+
+    synchronized List<Long> results() {
+      return new ArrayList<>(results);
+    }
+  }
+}
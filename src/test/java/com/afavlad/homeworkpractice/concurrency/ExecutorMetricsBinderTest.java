@@ -0,0 +1,91 @@
+package com.afavlad.homeworkpractice.concurrency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Значения, которые {@link ExecutorMetricsBinder} публикует после серий задач: счётчик
+ * выполняющихся задач возвращается к нулю, а не уходит в минус.
+ */
+class ExecutorMetricsBinderTest {
+
+  private static final int POOL_SIZE = 2;
+
+  @Test
+  void gaugesReturnToZeroAfterBatches() throws Exception {
+    HistogramExecutorMetrics metrics = new HistogramExecutorMetrics();
+    MeterRegistry registry = new SimpleMeterRegistry();
+    try (ComplexTaskExecutor executor =
+        new ComplexTaskExecutor(POOL_SIZE, ExecutionMode.PLATFORM, metrics)) {
+      new ExecutorMetricsBinder(executor, metrics).bindTo(registry);
+
+      executor.executeTasks(3);
+      assertThat(gauge(registry, "tasks.active")).isZero();
+      assertThat(counter(registry, "tasks.completed")).isEqualTo(3);
+      assertThat(counter(registry, "queue.wait.count")).isEqualTo(3);
+      assertThat(counter(registry, "batch.makespan.count")).isEqualTo(1);
+      assertThat(metrics.getLastCombinedResult()).isEqualTo(1 + 4 + 9);
+
+      CountDownLatch release = new CountDownLatch(1);
+      CompletableFuture<Long> blocked = executor.submitBatch(POOL_SIZE, i -> i, i -> {
+        await(release);
+        return 1L;
+      }, Collectors.summingLong(Long::longValue));
+      waitUntil(() -> gauge(registry, "tasks.active") == POOL_SIZE);
+      assertThat(gauge(registry, "pool.utilization")).isEqualTo(1.0);
+      release.countDown();
+      assertThat(blocked.get(10, TimeUnit.SECONDS)).isEqualTo(POOL_SIZE);
+
+      assertThat(gauge(registry, "tasks.active")).isZero();
+      assertThat(gauge(registry, "pool.utilization")).isZero();
+      assertThat(counter(registry, "tasks.completed")).isEqualTo(3 + POOL_SIZE);
+    }
+  }
+
+  @Test
+  void taskRunDirectlyPairsStartAndFinish() {
+    HistogramExecutorMetrics metrics = new HistogramExecutorMetrics();
+    int[] results = new int[1];
+
+    new ComplexTask(0, 3, results, new CyclicBarrier(1), metrics).run();
+
+    assertThat(results[0]).isEqualTo(9);
+    assertThat(metrics.getActiveTasks()).isZero();
+    assertThat(metrics.getCompletedTasks()).isEqualTo(1);
+    assertThat(metrics.getQueueWait().getCount()).isEqualTo(1);
+  }
+
+  private static double gauge(MeterRegistry registry, String name) {
+    return registry.get("complex.executor." + name).gauge().value();
+  }
+
+  private static double counter(MeterRegistry registry, String name) {
+    return registry.get("complex.executor." + name).functionCounter().count();
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void waitUntil(BooleanSupplier condition)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean()) {
+      assertThat(System.nanoTime()).isLessThan(deadline);
+      Thread.sleep(1);
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package com.afavlad.homeworkpractice.concurrency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link PhasedComputation} на пуле {@link ComplexTaskExecutor}: фазы объединяются по порядку и
+ * каждая содержит результаты всех участников, а ошибка участника или combiner-а завершает
+ * вычисление этой ошибкой.
+ */
+class PhasedComputationTest {
+
+  private static final int POOL_SIZE = 2;
+  private static final int WORKERS = 3;
+  private static final int MAX_PHASES = 5;
+  private static final int FAILING_PHASE = 2;
+
+  @Test
+  void phasesAreCombinedInOrderWithEveryWorker() throws Exception {
+    List<List<Integer>> combined = new ArrayList<>();
+    try (ComplexTaskExecutor executor = new ComplexTaskExecutor(POOL_SIZE)) {
+      PhasedComputation<Integer> computation = executor.newPhasedComputation(MAX_PHASES,
+          (phase, partials) -> {
+            assertThat(phase).isEqualTo(combined.size());
+            combined.add(sorted(partials));
+            return true;
+          });
+      registerWorkers(computation);
+
+      assertThat(computation.start().get(10, TimeUnit.SECONDS)).isEqualTo(MAX_PHASES);
+    }
+
+    assertThat(combined).hasSize(MAX_PHASES);
+    for (int phase = 0; phase < MAX_PHASES; phase++) {
+      assertThat(combined.get(phase)).containsExactly(phase * 10, phase * 10 + 1, phase * 10 + 2);
+    }
+  }
+
+  @Test
+  void combinerEndsComputationEarly() throws Exception {
+    try (ComplexTaskExecutor executor = new ComplexTaskExecutor(POOL_SIZE)) {
+      PhasedComputation<Integer> computation = executor.newPhasedComputation(MAX_PHASES,
+          (phase, partials) -> phase < FAILING_PHASE);
+      registerWorkers(computation);
+
+      assertThat(computation.start().get(10, TimeUnit.SECONDS)).isEqualTo(FAILING_PHASE + 1);
+      assertThat(computation.getPhase()).isNegative();
+    }
+  }
+
+  @Test
+  void workerExceptionFailsComputation() throws Exception {
+    List<Integer> combinedPhases = new ArrayList<>();
+    try (ComplexTaskExecutor executor = new ComplexTaskExecutor(POOL_SIZE)) {
+      PhasedComputation<Integer> computation = executor.newPhasedComputation(MAX_PHASES,
+          (phase, partials) -> combinedPhases.add(phase));
+      registerWorkers(computation);
+      computation.register(phase -> {
+        if (phase == FAILING_PHASE) {
+          throw new IllegalStateException("worker failed in phase " + phase);
+        }
+        return -1;
+      });
+
+      assertFailsWith(computation.start(), "worker failed in phase " + FAILING_PHASE);
+    }
+    assertThat(combinedPhases).containsExactly(0, 1);
+  }
+
+  @Test
+  void combinerExceptionFailsComputation() throws Exception {
+    try (ComplexTaskExecutor executor = new ComplexTaskExecutor(POOL_SIZE)) {
+      PhasedComputation<Integer> computation = executor.newPhasedComputation(MAX_PHASES,
+          (phase, partials) -> {
+            if (phase == FAILING_PHASE) {
+              throw new IllegalStateException("combiner failed in phase " + phase);
+            }
+            return true;
+          });
+      registerWorkers(computation);
+
+      assertFailsWith(computation.start(), "combiner failed in phase " + FAILING_PHASE);
+    }
+  }
+
+  /**
+   * Участник w возвращает в фазе p число p * 10 + w.
+   */
+  private static void registerWorkers(PhasedComputation<Integer> computation) {
+    for (int worker = 0; worker < WORKERS; worker++) {
+      int id = worker;
+      computation.register(phase -> phase * 10 + id);
+    }
+  }
+
+  private static void assertFailsWith(CompletableFuture<Integer> completion, String message) {
+    assertThatThrownBy(() -> completion.get(10, TimeUnit.SECONDS))
+        .isInstanceOf(ExecutionException.class)
+        .hasRootCauseInstanceOf(IllegalStateException.class)
+        .hasRootCauseMessage(message);
+  }
+
+  private static List<Integer> sorted(List<Integer> partials) {
+    List<Integer> sorted = new ArrayList<>(partials);
+    sorted.sort(null);
+    return sorted;
+  }
+}
@@ -0,0 +1,45 @@
+package com.afavlad.homeworkpractice.concurrency.bank;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link BalanceColumn} на границе сегментов: ячейки по обе стороны индекса {@code 1 << 20}
+ * независимы, а сумма учитывает ровно ячейки до заданного предела.
+ */
+class BalanceColumnTest {
+
+  private static final long BOUNDARY = 1 << 20;
+
+  @Test
+  void cellsOnBothSidesOfSegmentBoundaryAreIndependent() {
+    BalanceColumn column = new BalanceColumn();
+
+    column.add(BOUNDARY - 1, 10);
+    column.add(BOUNDARY, 20);
+    column.add(BOUNDARY + 1, 40);
+    assertThat(column.tryWithdraw(BOUNDARY, 15)).isTrue();
+    assertThat(column.tryWithdraw(BOUNDARY - 1, 11)).isFalse();
+
+    assertThat(column.get(BOUNDARY - 1)).isEqualTo(10);
+    assertThat(column.get(BOUNDARY)).isEqualTo(5);
+    assertThat(column.get(BOUNDARY + 1)).isEqualTo(40);
+    assertThat(column.get(0)).isZero();
+  }
+
+  @Test
+  void sumStopsAtLimitAcrossSegments() {
+    BalanceColumn column = new BalanceColumn();
+    column.add(0, 1);
+    column.add(BOUNDARY - 1, 10);
+    column.add(BOUNDARY, 100);
+    column.add(BOUNDARY + 1, 1_000);
+
+    assertThat(column.sum(BOUNDARY - 1)).isEqualTo(1);
+    assertThat(column.sum(BOUNDARY)).isEqualTo(11);
+    assertThat(column.sum(BOUNDARY + 1)).isEqualTo(111);
+    assertThat(column.sum(BOUNDARY + 2)).isEqualTo(1_111);
+    assertThat(column.sum(3 * BOUNDARY)).isEqualTo(1_111);
+  }
+}
@@ -0,0 +1,107 @@
+package com.afavlad.homeworkpractice.concurrency.bank;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link ColumnarBank} и его счета {@link ColumnarAccount}: пополнение и снятие, переводы между
+ * счетами из разных сегментов {@link BalanceColumn} и отказ для несуществующих id.
+ */
+class ColumnarBankTest {
+
+  private static final long INITIAL_BALANCE = 100;
+  private static final int THREADS = 4;
+  private static final int OPERATIONS_PER_THREAD = 100_000;
+  private static final int SEGMENT_SIZE = 1 << 20;
+
+  @Test
+  void accountDepositsAndWithdraws() {
+    ColumnarBank bank = new ColumnarBank();
+    long id = bank.createAccount(INITIAL_BALANCE);
+    ColumnarAccount account = bank.findAccount(id);
+
+    account.deposit(50);
+    assertThat(account.withdraw(120)).isTrue();
+    assertThat(account.withdraw(31)).isFalse();
+
+    assertThat(account.getId()).isEqualTo(id);
+    assertThat(account.getBalance()).isEqualTo(30);
+    assertThat(bank.getBalance(id)).isEqualTo(30);
+    assertThat(bank.findAccount(id)).isEqualTo(account).hasSameHashCodeAs(account);
+    assertThatThrownBy(() -> account.deposit(0)).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> account.withdraw(-1)).isInstanceOf(IllegalArgumentException.class);
+    assertThat(account.getBalance()).isEqualTo(30);
+  }
+
+  @Test
+  void concurrentDepositsAndWithdrawalsKeepBalanceExact() throws InterruptedException {
+    ColumnarBank bank = new ColumnarBank();
+    ColumnarAccount account = bank.findAccount(bank.createAccount(0));
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+          account.deposit(2);
+          // Только что внесённых денег хватает всегда, поэтому каждое снятие проходит.
+          account.withdraw(1);
+        }
+      }));
+    }
+    threads.forEach(Thread::start);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(account.getBalance()).isEqualTo((long) THREADS * OPERATIONS_PER_THREAD);
+    assertThat(bank.getTotalBalance()).isEqualTo((long) THREADS * OPERATIONS_PER_THREAD);
+  }
+
+  @Test
+  void transfersCrossSegmentBoundary() {
+    ColumnarBank bank = new ColumnarBank();
+    for (int i = 0; i < SEGMENT_SIZE + 1; i++) {
+      bank.createAccount(i < SEGMENT_SIZE - 1 ? 0 : INITIAL_BALANCE);
+    }
+    // Счёт SEGMENT_SIZE лежит в последней ячейке первого сегмента, следующий — во втором.
+    long lastInFirst = SEGMENT_SIZE;
+    long firstInSecond = SEGMENT_SIZE + 1;
+
+    assertThat(bank.transfer(lastInFirst, firstInSecond, 70)).isTrue();
+    assertThat(bank.transfer(firstInSecond, 1, 150)).isTrue();
+    assertThat(bank.transfer(lastInFirst, firstInSecond, 31)).isFalse();
+
+    assertThat(bank.getAccountCount()).isEqualTo(SEGMENT_SIZE + 1);
+    assertThat(bank.getBalance(lastInFirst)).isEqualTo(30);
+    assertThat(bank.getBalance(firstInSecond)).isEqualTo(20);
+    assertThat(bank.getBalance(1)).isEqualTo(150);
+    assertThat(bank.getTotalBalance()).isEqualTo(2 * INITIAL_BALANCE);
+  }
+
+  @Test
+  void unknownIdsAreRejected() {
+    ColumnarBank bank = new ColumnarBank();
+    long id = bank.createAccount(INITIAL_BALANCE);
+    long missing = id + 1;
+
+    assertThat(bank.findAccount(0)).isNull();
+    assertThat(bank.findAccount(-1)).isNull();
+    assertThat(bank.findAccount(missing)).isNull();
+    assertThatThrownBy(() -> bank.getBalance(missing))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining(String.valueOf(missing));
+    assertThatThrownBy(() -> bank.getBalance(0)).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> bank.transfer(id, missing, 1))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> bank.transfer(missing, id, 1))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> bank.transfer(id, id, 0)).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> bank.createAccount(-1)).isInstanceOf(IllegalArgumentException.class);
+
+    assertThat(bank.getAccountCount()).isEqualTo(1);
+    assertThat(bank.getTotalBalance()).isEqualTo(INITIAL_BALANCE);
+  }
+}
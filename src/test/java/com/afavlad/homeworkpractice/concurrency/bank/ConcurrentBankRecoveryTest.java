@@ -0,0 +1,172 @@
+package com.afavlad.homeworkpractice.concurrency.bank;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Восстановление долговечного {@link ConcurrentBank} из снимка и журнала: после повторного
+ * открытия балансы всех счетов совпадают с балансами до закрытия.
+ */
+class ConcurrentBankRecoveryTest {
+
+  private static final long INITIAL_BALANCE = 1_000;
+  private static final long DURATION_MILLIS = 500;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void directDepositAndWithdrawAreJournaled() throws IOException {
+    try (ConcurrentBank bank = ConcurrentBank.open(directory, null)) {
+      BankAccount x = bank.createAccount(0);
+      BankAccount y = bank.createAccount(0);
+      x.deposit(100);
+      assertThat(bank.transfer(x, y, 50)).isTrue();
+      assertThat(y.withdraw(20)).isTrue();
+      assertThat(y.withdraw(1_000)).isFalse();
+    }
+
+    try (ConcurrentBank bank = ConcurrentBank.open(directory, null)) {
+      assertThat(bank.findAccount(1).getBalance()).isEqualTo(50);
+      assertThat(bank.findAccount(2).getBalance()).isEqualTo(30);
+    }
+  }
+
+  @Test
+  void transfersRacingWithAccountCreationRecover() throws Exception {
+    long[] expected;
+    try (ConcurrentBank bank = ConcurrentBank.open(directory, null)) {
+      bank.createAccount(INITIAL_BALANCE);
+      AtomicBoolean running = new AtomicBoolean(true);
+      AtomicLong created = new AtomicLong(1);
+      List<Thread> workers = new ArrayList<>();
+      workers.add(new Thread(() -> {
+        while (running.get()) {
+          bank.createAccount(INITIAL_BALANCE);
+          created.incrementAndGet();
+        }
+      }));
+      for (int t = 0; t < 3; t++) {
+        workers.add(new Thread(() -> {
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          while (running.get()) {
+            // Счёт, который, возможно, ещё создаётся: он уже виден по id, но запись о
+            // создании может быть ещё не в журнале.
+            BankAccount fresh = bank.findAccount(created.get() + 1 + random.nextInt(2));
+            if (fresh != null) {
+              bank.transfer(fresh, bank.findAccount(1), 1 + random.nextInt(10));
+            }
+          }
+        }));
+      }
+      workers.forEach(Thread::start);
+      TimeUnit.MILLISECONDS.sleep(DURATION_MILLIS);
+      running.set(false);
+      for (Thread worker : workers) {
+        worker.join();
+      }
+      expected = balances(bank, created.get());
+    }
+
+    try (ConcurrentBank bank = ConcurrentBank.open(directory, null)) {
+      assertThat(balances(bank, expected.length)).containsExactly(expected);
+    }
+  }
+
+  @Test
+  void checkpointAndJournalTailRecover() throws IOException {
+    long[] expected;
+    try (ConcurrentBank bank = ConcurrentBank.open(directory, null)) {
+      for (int i = 0; i < 10; i++) {
+        bank.createAccount(INITIAL_BALANCE);
+      }
+      randomTransfers(bank, 10, 200);
+      bank.checkpoint();
+      bank.createAccount(INITIAL_BALANCE);
+      randomTransfers(bank, 11, 200);
+      bank.findAccount(11).deposit(7);
+      expected = balances(bank, 11);
+    }
+
+    try (ConcurrentBank bank = ConcurrentBank.open(directory, null)) {
+      assertThat(balances(bank, 11)).containsExactly(expected);
+      assertThat(bank.getTotalBalance()).isEqualTo(11 * INITIAL_BALANCE + 7);
+    }
+  }
+
+  @Test
+  void tornTailIsTruncated() throws IOException {
+    long[] expected;
+    try (ConcurrentBank bank = ConcurrentBank.open(directory, null)) {
+      for (int i = 0; i < 5; i++) {
+        bank.createAccount(INITIAL_BALANCE);
+      }
+      randomTransfers(bank, 5, 100);
+      expected = balances(bank, 5);
+    }
+    Path tail = lastNonEmptySegment();
+    // Недописанная запись: заголовок обещает 64 байта тела, а на диске только 10.
+    try (FileChannel file = FileChannel.open(tail, StandardOpenOption.APPEND)) {
+      ByteBuffer torn = ByteBuffer.allocate(Integer.BYTES * 2 + 10);
+      torn.putInt(64).putInt(0x12345678).position(torn.capacity()).flip();
+      file.write(torn);
+    }
+
+    try (ConcurrentBank bank = ConcurrentBank.open(directory, null)) {
+      assertThat(balances(bank, 5)).containsExactly(expected);
+      assertThat(bank.transfer(1, 2, 1)).isTrue();
+      expected = balances(bank, 5);
+    }
+
+    try (ConcurrentBank bank = ConcurrentBank.open(directory, null)) {
+      assertThat(balances(bank, 5)).containsExactly(expected);
+    }
+  }
+
+  private static void randomTransfers(ConcurrentBank bank, int accounts, int count) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = 0; i < count; i++) {
+      bank.transfer(1 + random.nextInt(accounts), 1 + random.nextInt(accounts),
+          1 + random.nextInt(100));
+    }
+  }
+
+  private static long[] balances(ConcurrentBank bank, long accounts) {
+    long[] balances = new long[(int) accounts];
+    for (int i = 0; i < balances.length; i++) {
+      balances[i] = bank.findAccount(i + 1).getBalance();
+    }
+    return balances;
+  }
+
+  private Path lastNonEmptySegment() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(file -> file.getFileName().toString().startsWith("journal-"))
+          .filter(file -> {
+            try {
+              return Files.size(file) > 0;
+            } catch (IOException e) {
+              throw new IllegalStateException(e);
+            }
+          })
+          .max(Path::compareTo)
+          .orElseThrow();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package com.afavlad.homeworkpractice.concurrency.bank;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Стресс-тест согласованности {@link ConcurrentBank#getTotalBalance()}: пока несколько потоков
+ * переводят деньги, снимки непрерывно проверяют инвариант суммы.
+ */
+class ConcurrentBankSnapshotTest {
+
+  private static final int ACCOUNTS = 64;
+  private static final long INITIAL_BALANCE = 1_000;
+  private static final int TRANSFER_THREADS = 4;
+  private static final long DURATION_MILLIS = 1_000;
+
+  @Test
+  void totalBalanceIsExactWhileTransfersRun() throws InterruptedException {
+    ConcurrentBank bank = new ConcurrentBank();
+    for (int i = 0; i < ACCOUNTS; i++) {
+      bank.createAccount(INITIAL_BALANCE);
+    }
+    long expected = ACCOUNTS * INITIAL_BALANCE;
+
+    AtomicBoolean running = new AtomicBoolean(true);
+    AtomicLong transfers = new AtomicLong();
+    List<Thread> workers = startTransfers(bank, running, transfers, false);
+
+    long snapshots = 0;
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS);
+    while (System.nanoTime() < deadline) {
+      assertThat(bank.getTotalBalance()).isEqualTo(expected);
+      snapshots++;
+    }
+    stop(running, workers);
+
+    assertThat(transfers.get()).isPositive();
+    assertThat(snapshots).isPositive();
+    assertThat(bank.getTotalBalance()).isEqualTo(expected);
+  }
+
+  @Test
+  void totalBalanceNeverMissesCompletedAccountCreation() throws InterruptedException {
+    ConcurrentBank bank = new ConcurrentBank();
+    for (int i = 0; i < ACCOUNTS; i++) {
+      bank.createAccount(INITIAL_BALANCE);
+    }
+
+    AtomicBoolean running = new AtomicBoolean(true);
+    AtomicLong created = new AtomicLong(ACCOUNTS);
+    List<Thread> workers = startTransfers(bank, running, new AtomicLong(), true);
+    Thread creator = new Thread(() -> {
+      while (running.get()) {
+        bank.createAccount(INITIAL_BALANCE);
+        created.incrementAndGet();
+      }
+    });
+    creator.start();
+    workers.add(creator);
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS);
+    while (System.nanoTime() < deadline) {
+      // Счета, созданные до начала снимка, обязаны в него попасть, начатые после — не обязаны.
+      long before = created.get() * INITIAL_BALANCE;
+      long total = bank.getTotalBalance();
+      long after = created.get() * INITIAL_BALANCE;
+      assertThat(total % INITIAL_BALANCE).isZero();
+      assertThat(total).isBetween(before, after + INITIAL_BALANCE);
+    }
+    stop(running, workers);
+
+    assertThat(bank.getTotalBalance()).isEqualTo(created.get() * INITIAL_BALANCE);
+  }
+
+  private static List<Thread> startTransfers(ConcurrentBank bank, AtomicBoolean running,
+      AtomicLong transfers, boolean byId) {
+    List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < TRANSFER_THREADS; t++) {
+      Thread worker = new Thread(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running.get()) {
+          long fromId = 1 + random.nextInt(ACCOUNTS);
+          long toId = 1 + random.nextInt(ACCOUNTS);
+          long amount = 1 + random.nextInt((int) INITIAL_BALANCE);
+          if (byId) {
+            bank.transfer(fromId, toId, amount);
+          } else {
+            bank.transfer(bank.findAccount(fromId), bank.findAccount(toId), amount);
+          }
+          transfers.incrementAndGet();
+        }
+      });
+      worker.start();
+      workers.add(worker);
+    }
+    return workers;
+  }
+
+  private static void stop(AtomicBoolean running, List<Thread> workers) throws InterruptedException {
+    running.set(false);
+    for (Thread worker : workers) {
+      worker.join();
+    }
+  }
+}
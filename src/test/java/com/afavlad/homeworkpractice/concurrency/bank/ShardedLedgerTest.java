@@ -0,0 +1,110 @@
+package com.afavlad.homeworkpractice.concurrency.bank;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.Timeout.ThreadMode;
+
+/**
+ * Переводы {@link ShardedLedger} внутри шарда и между шардами, возврат денег несуществующему
+ * получателю, снимок общего баланса во время переводов и устойчивость шардов к чужим id.
+ * <p>
+ * Счёт с id {@code n} живёт в шарде {@code (n - 1) % shardCount}.
+ */
+class ShardedLedgerTest {
+
+  @Test
+  void crossShardTransferMovesMoney() {
+    try (ShardedLedger ledger = new ShardedLedger(2, 16)) {
+      long first = ledger.createAccount(100);
+      long second = ledger.createAccount(0);
+      long third = ledger.createAccount(0);
+
+      assertThat(ledger.shardOf(first)).isNotEqualTo(ledger.shardOf(second));
+      assertThat(ledger.transfer(first, second, 30).join()).isEqualTo(TransferResult.SUCCESS);
+      assertThat(ledger.transfer(first, third, 20).join()).isEqualTo(TransferResult.SUCCESS);
+      assertThat(ledger.transfer(second, first, 31).join())
+          .isEqualTo(TransferResult.INSUFFICIENT_FUNDS);
+
+      assertThat(ledger.getBalance(first)).isEqualTo(50);
+      assertThat(ledger.getBalance(second)).isEqualTo(30);
+      assertThat(ledger.getBalance(third)).isEqualTo(20);
+      assertThat(ledger.getTotalBalance()).isEqualTo(100);
+    }
+  }
+
+  @Test
+  void creditToMissingAccountIsRefunded() {
+    try (ShardedLedger ledger = new ShardedLedger(2, 16)) {
+      long source = ledger.createAccount(100);
+      // Ещё не созданный счёт в другом шарде: списание проходит, зачисление возвращается.
+      long missing = source + 3;
+
+      assertThat(ledger.shardOf(missing)).isNotEqualTo(ledger.shardOf(source));
+      assertThat(ledger.transfer(source, missing, 40).join())
+          .isEqualTo(TransferResult.ACCOUNT_NOT_FOUND);
+      assertThat(ledger.getBalance(source)).isEqualTo(100);
+      assertThat(ledger.getTotalBalance()).isEqualTo(100);
+    }
+  }
+
+  @Test
+  void totalBalanceCountsMoneyInFlight() {
+    int accounts = 40;
+    long initialBalance = 1_000;
+    try (ShardedLedger ledger = new ShardedLedger(4, 64)) {
+      for (int i = 0; i < accounts; i++) {
+        ledger.createAccount(initialBalance);
+      }
+      Random random = new Random(42);
+      List<CompletableFuture<TransferResult>> results = new ArrayList<>();
+      for (int round = 0; round < 200; round++) {
+        for (int i = 0; i < 50; i++) {
+          results.add(ledger.transfer(1 + random.nextInt(accounts), 1 + random.nextInt(accounts),
+              1 + random.nextInt(200)));
+        }
+        // Снимок берётся, пока переводы этого раунда ещё в очередях шардов.
+        assertThat(ledger.getTotalBalance()).isEqualTo(accounts * initialBalance);
+      }
+      CompletableFuture.allOf(results.toArray(CompletableFuture<?>[]::new)).join();
+
+      long sum = 0;
+      for (int id = 1; id <= accounts; id++) {
+        long balance = ledger.getBalance(id);
+        assertThat(balance).isNotNegative();
+        sum += balance;
+      }
+      assertThat(sum).isEqualTo(accounts * initialBalance);
+      assertThat(results).extracting(CompletableFuture::join)
+          .contains(TransferResult.SUCCESS);
+    }
+  }
+
+  @Test
+  @Timeout(value = 10, threadMode = ThreadMode.SEPARATE_THREAD)
+  void unknownIdsDoNotStopShards() {
+    try (ShardedLedger ledger = new ShardedLedger(1, 16)) {
+      long account = ledger.createAccount(100);
+
+      assertThat(ledger.transfer(account, Long.MAX_VALUE, 1).join())
+          .isEqualTo(TransferResult.ACCOUNT_NOT_FOUND);
+      assertThat(ledger.transfer(Long.MAX_VALUE, account, 1).join())
+          .isEqualTo(TransferResult.ACCOUNT_NOT_FOUND);
+      assertThat(ledger.transfer(account, account + 5_000, 1).join())
+          .isEqualTo(TransferResult.ACCOUNT_NOT_FOUND);
+      assertThatThrownBy(() -> ledger.getBalance(Long.MAX_VALUE))
+          .isInstanceOf(IllegalArgumentException.class);
+
+      // Шард жив: следующие операции завершаются, close() не находит зависших.
+      long other = ledger.createAccount(0);
+      assertThat(ledger.transfer(account, other, 10).join()).isEqualTo(TransferResult.SUCCESS);
+      assertThat(ledger.getTotalBalance()).isEqualTo(100);
+    }
+  }
+}
@@ -0,0 +1,175 @@
+package com.afavlad.homeworkpractice.concurrency.bank;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * {@link ConcurrentBank#transferBatch(List)} сравнивается с последовательными вызовами
+ * {@link ConcurrentBank#transfer(long, long, long)} на тех же входных данных: результаты
+ * переводов и итоговые балансы должны совпадать. Пакеты затрагивают больше
+ * {@link TransferBatch#MAX_LOCKED_ACCOUNTS} счетов, поэтому делятся на несколько групп;
+ * для долговечного банка балансы проверяются ещё и после повторного открытия.
+ */
+class TransferBatchTest {
+
+  private static final int ACCOUNTS = TransferBatch.MAX_LOCKED_ACCOUNTS * 3;
+  private static final int TRANSFERS = 20_000;
+  private static final long MAX_INITIAL_BALANCE = 500;
+  private static final long MAX_AMOUNT = 300;
+  private static final long SEED = 20_240_519L;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void randomBatchMatchesSequentialTransfers() {
+    Random random = new Random(SEED);
+    long[] initial = initialBalances(random);
+    List<Transfer> transfers = randomTransfers(random);
+
+    ConcurrentBank batched = bankWith(initial);
+    ConcurrentBank sequential = bankWith(initial);
+
+    assertThat(batched.transferBatch(transfers)).isEqualTo(applySequentially(sequential, transfers));
+    assertThat(balances(batched)).isEqualTo(balances(sequential));
+    assertThat(batched.getTotalBalance()).isEqualTo(sum(initial));
+  }
+
+  @Test
+  void transfersInsideGroupSeeEarlierTransfersOfTheSameGroup() {
+    // Счёт 2 пуст: перевод 2 -> 3 проходит только благодаря предыдущему 1 -> 2 той же группы,
+    // а второй 1 -> 2 уже не проходит — оба изменения счёта 1 сворачиваются в одно.
+    ConcurrentBank bank = bankWith(new long[]{100, 0, 0});
+    List<Transfer> transfers = List.of(
+        new Transfer(1, 2, 70),
+        new Transfer(2, 3, 50),
+        new Transfer(1, 2, 40),
+        new Transfer(3, 1, 10),
+        new Transfer(1, 2, 40),
+        new Transfer(2, 2, 1_000),
+        new Transfer(2, 99, 1));
+
+    assertThat(bank.transferBatch(transfers)).containsExactly(
+        TransferResult.SUCCESS,
+        TransferResult.SUCCESS,
+        TransferResult.INSUFFICIENT_FUNDS,
+        TransferResult.SUCCESS,
+        TransferResult.SUCCESS,
+        TransferResult.SUCCESS,
+        TransferResult.ACCOUNT_NOT_FOUND);
+    assertThat(balances(bank)).containsExactly(0L, 60L, 40L);
+  }
+
+  @Test
+  void transferAfterGroupBoundarySeesPreviousGroup() {
+    // Первая группа занимает ровно MAX_LOCKED_ACCOUNTS счетов, и каждый чётный счёт получает
+    // деньги от нечётного соседа. Следующий перевод добавляет новый счёт, начинает вторую
+    // группу и может пройти, только если первая группа уже применена.
+    int groupAccounts = TransferBatch.MAX_LOCKED_ACCOUNTS;
+    long[] initial = new long[groupAccounts + 1];
+    List<Transfer> transfers = new ArrayList<>();
+    for (int id = 1; id < groupAccounts; id += 2) {
+      initial[id - 1] = 10;
+      transfers.add(new Transfer(id, id + 1, 10));
+    }
+    transfers.add(new Transfer(groupAccounts, groupAccounts + 1, 10));
+    ConcurrentBank batched = bankWith(initial);
+    ConcurrentBank sequential = bankWith(initial);
+
+    List<TransferResult> results = batched.transferBatch(transfers);
+
+    assertThat(results).containsOnly(TransferResult.SUCCESS);
+    assertThat(results).isEqualTo(applySequentially(sequential, transfers));
+    assertThat(balances(batched)).isEqualTo(balances(sequential));
+  }
+
+  @Test
+  void durableBatchRecoversAfterReopen() throws IOException {
+    Random random = new Random(SEED + 1);
+    long[] initial = initialBalances(random);
+    List<Transfer> transfers = randomTransfers(random);
+    ConcurrentBank sequential = bankWith(initial);
+    List<TransferResult> expected = applySequentially(sequential, transfers);
+
+    try (ConcurrentBank durable = ConcurrentBank.open(directory, null)) {
+      for (long balance : initial) {
+        durable.createAccount(balance);
+      }
+      assertThat(durable.transferBatch(transfers)).isEqualTo(expected);
+      assertThat(balances(durable)).isEqualTo(balances(sequential));
+    }
+
+    try (ConcurrentBank reopened = ConcurrentBank.open(directory, null)) {
+      assertThat(balances(reopened)).isEqualTo(balances(sequential));
+      assertThat(reopened.getTotalBalance()).isEqualTo(sum(initial));
+    }
+  }
+
+  private static long[] initialBalances(Random random) {
+    long[] initial = new long[ACCOUNTS];
+    for (int i = 0; i < ACCOUNTS; i++) {
+      initial[i] = random.nextLong(MAX_INITIAL_BALANCE + 1);
+    }
+    return initial;
+  }
+
+  /**
+   * Случайные переводы, включая переводы на тот же счёт и на несуществующие счета.
+   */
+  private static List<Transfer> randomTransfers(Random random) {
+    List<Transfer> transfers = new ArrayList<>(TRANSFERS);
+    for (int i = 0; i < TRANSFERS; i++) {
+      long from = 1 + random.nextInt(ACCOUNTS + 2);
+      long to = random.nextInt(10) == 0 ? from : 1 + random.nextInt(ACCOUNTS + 2);
+      transfers.add(new Transfer(from, to, 1 + random.nextLong(MAX_AMOUNT)));
+    }
+    return transfers;
+  }
+
+  private static ConcurrentBank bankWith(long[] initial) {
+    ConcurrentBank bank = new ConcurrentBank();
+    for (long balance : initial) {
+      bank.createAccount(balance);
+    }
+    return bank;
+  }
+
+  private static List<TransferResult> applySequentially(ConcurrentBank bank,
+      List<Transfer> transfers) {
+    List<TransferResult> results = new ArrayList<>(transfers.size());
+    for (Transfer transfer : transfers) {
+      if (bank.findAccount(transfer.fromId()) == null
+          || bank.findAccount(transfer.toId()) == null) {
+        results.add(TransferResult.ACCOUNT_NOT_FOUND);
+      } else if (bank.transfer(transfer.fromId(), transfer.toId(), transfer.amount())) {
+        results.add(TransferResult.SUCCESS);
+      } else {
+        results.add(TransferResult.INSUFFICIENT_FUNDS);
+      }
+    }
+    return results;
+  }
+
+  private static List<Long> balances(ConcurrentBank bank) {
+    List<Long> balances = new ArrayList<>();
+    for (long id = 1; bank.findAccount(id) != null; id++) {
+      balances.add(bank.findAccount(id).getBalance());
+    }
+    return balances;
+  }
+
+  private static long sum(long[] values) {
+    long sum = 0;
+    for (long value : values) {
+      sum += value;
+    }
+    return sum;
+  }
+}
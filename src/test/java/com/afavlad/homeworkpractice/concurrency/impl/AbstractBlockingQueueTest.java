@@ -0,0 +1,283 @@
+package com.afavlad.homeworkpractice.concurrency.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.afavlad.homeworkpractice.concurrency.CustomBlockingQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.Timeout.ThreadMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Общий контракт {@link CustomBlockingQueue} для реализаций на блокировках: передача элементов
+ * от нескольких производителей нескольким потребителям всеми видами операций, закрытие очереди
+ * с ожидающими потоками, прерывание ожидания и неблокирующие операции.
+ */
+@Timeout(value = 30, threadMode = ThreadMode.SEPARATE_THREAD)
+abstract class AbstractBlockingQueueTest {
+
+  private static final int PRODUCERS = 3;
+  private static final int CONSUMERS = 3;
+  private static final int PER_PRODUCER = 20_000;
+  private static final int BATCH = 10;
+
+  abstract <T> CustomBlockingQueue<T> newQueue(int capacity);
+
+  /**
+   * Производители пишут через enqueue, offer и enqueueAll, потребители читают через dequeue,
+   * poll и drainTo. Каждый элемент доставляется ровно один раз, а элементы одного производителя
+   * каждый потребитель видит в порядке добавления.
+   */
+  @ParameterizedTest
+  @ValueSource(ints = {1, 16})
+  void everyElementIsDeliveredOnceInProducerOrder(int capacity) throws InterruptedException {
+    CustomBlockingQueue<Long> queue = newQueue(capacity);
+    List<Thread> producers = new ArrayList<>();
+    producers.add(start(() -> {
+      for (long i = 0; i < PER_PRODUCER; i++) {
+        queue.enqueue(i);
+      }
+    }));
+    producers.add(start(() -> {
+      for (long i = PER_PRODUCER; i < 2L * PER_PRODUCER; i++) {
+        while (!queue.offer(i, 1, TimeUnit.MILLISECONDS)) {
+          Thread.onSpinWait();
+        }
+      }
+    }));
+    producers.add(start(() -> {
+      for (long i = 2L * PER_PRODUCER; i < 3L * PER_PRODUCER; i += BATCH) {
+        List<Long> batch = new ArrayList<>();
+        for (long j = i; j < i + BATCH; j++) {
+          batch.add(j);
+        }
+        queue.enqueueAll(batch);
+      }
+    }));
+
+    List<List<Long>> received = new ArrayList<>();
+    for (int c = 0; c < CONSUMERS; c++) {
+      received.add(new ArrayList<>());
+    }
+    List<Thread> consumers = new ArrayList<>();
+    consumers.add(start(() -> {
+      Long element;
+      while ((element = queue.dequeue()) != null) {
+        received.get(0).add(element);
+      }
+    }));
+    consumers.add(start(() -> {
+      while (!drained(queue)) {
+        Long element = queue.poll(1, TimeUnit.MILLISECONDS);
+        if (element != null) {
+          received.get(1).add(element);
+        }
+      }
+    }));
+    consumers.add(start(() -> {
+      while (!drained(queue)) {
+        if (queue.drainTo(received.get(2), BATCH) == 0) {
+          Thread.onSpinWait();
+        }
+      }
+    }));
+    joinAll(producers);
+    queue.close();
+    joinAll(consumers);
+
+    Set<Long> all = new HashSet<>();
+    for (List<Long> elements : received) {
+      long[] last = new long[PRODUCERS];
+      Arrays.fill(last, -1);
+      for (long element : elements) {
+        assertThat(all.add(element)).as("duplicate %d", element).isTrue();
+        int producer = (int) (element / PER_PRODUCER);
+        assertThat(element).isGreaterThan(last[producer]);
+        last[producer] = element;
+      }
+    }
+    assertThat(all).hasSize(PRODUCERS * PER_PRODUCER);
+    assertThat(queue.size()).isZero();
+  }
+
+  @Test
+  void closeFailsBlockedProducersAndKeepsAcceptedElements() throws InterruptedException {
+    CustomBlockingQueue<Integer> queue = newQueue(1);
+    queue.enqueue(1);
+    AtomicReference<Throwable> enqueueFailure = new AtomicReference<>();
+    AtomicReference<Throwable> offerFailure = new AtomicReference<>();
+    AtomicReference<Throwable> enqueueAllFailure = new AtomicReference<>();
+    List<Thread> producers = List.of(
+        startCatching(() -> queue.enqueue(2), enqueueFailure),
+        startCatching(() -> queue.offer(3, 1, TimeUnit.MINUTES), offerFailure),
+        startCatching(() -> queue.enqueueAll(List.of(4, 5)), enqueueAllFailure));
+    awaitBlocked(producers);
+
+    queue.close();
+    joinAll(producers);
+
+    assertThat(enqueueFailure.get()).isInstanceOf(IllegalStateException.class);
+    assertThat(offerFailure.get()).isInstanceOf(IllegalStateException.class);
+    assertThat(enqueueAllFailure.get()).isInstanceOf(IllegalStateException.class);
+    assertThat(queue.isClosed()).isTrue();
+    assertThatThrownBy(() -> queue.tryEnqueue(6)).isInstanceOf(IllegalStateException.class);
+    assertThat(queue.dequeue()).isEqualTo(1);
+    assertThat(queue.dequeue()).isNull();
+    assertThat(queue.poll(1, TimeUnit.MINUTES)).isNull();
+  }
+
+  @Test
+  void closeReleasesBlockedConsumers() throws InterruptedException {
+    CustomBlockingQueue<Integer> queue = newQueue(4);
+    List<Integer> results = new ArrayList<>();
+    List<Thread> consumers = List.of(
+        start(() -> record(results, queue.dequeue())),
+        start(() -> record(results, queue.poll(1, TimeUnit.MINUTES))));
+    awaitBlocked(consumers);
+
+    queue.close();
+    joinAll(consumers);
+
+    assertThat(results).containsExactly(null, null);
+  }
+
+  @Test
+  void interruptedWaitLeavesQueueConsistent() throws InterruptedException {
+    CustomBlockingQueue<Integer> queue = newQueue(1);
+    queue.enqueue(1);
+    AtomicReference<Throwable> producerFailure = new AtomicReference<>();
+    Thread producer = startCatching(() -> queue.enqueue(2), producerFailure);
+    awaitBlocked(List.of(producer));
+
+    producer.interrupt();
+    producer.join();
+
+    assertThat(producerFailure.get()).isInstanceOf(InterruptedException.class);
+    assertThat(queue.size()).isEqualTo(1);
+    assertThat(queue.dequeue()).isEqualTo(1);
+
+    AtomicReference<Throwable> consumerFailure = new AtomicReference<>();
+    Thread consumer = startCatching(queue::dequeue, consumerFailure);
+    awaitBlocked(List.of(consumer));
+
+    consumer.interrupt();
+    consumer.join();
+
+    assertThat(consumerFailure.get()).isInstanceOf(InterruptedException.class);
+    assertThat(queue.tryEnqueue(3)).isTrue();
+    assertThat(queue.dequeue()).isEqualTo(3);
+  }
+
+  @Test
+  void nonBlockingAndTimedOperationsRespectCapacity() throws InterruptedException {
+    CustomBlockingQueue<Integer> queue = newQueue(2);
+
+    assertThat(queue.poll(10, TimeUnit.MILLISECONDS)).isNull();
+    assertThat(queue.tryEnqueue(1)).isTrue();
+    assertThat(queue.offer(2, 10, TimeUnit.MILLISECONDS)).isTrue();
+    assertThat(queue.tryEnqueue(3)).isFalse();
+    assertThat(queue.offer(3, 10, TimeUnit.MILLISECONDS)).isFalse();
+    assertThat(queue.size()).isEqualTo(2);
+    assertThatThrownBy(() -> queue.tryEnqueue(null)).isInstanceOf(NullPointerException.class);
+    assertThatThrownBy(() -> queue.enqueueAll(Arrays.asList(3, null)))
+        .isInstanceOf(NullPointerException.class);
+
+    List<Integer> target = new ArrayList<>();
+    assertThat(queue.drainTo(target, 0)).isZero();
+    assertThat(queue.drainTo(target, 10)).isEqualTo(2);
+    assertThat(target).containsExactly(1, 2);
+    assertThat(queue.size()).isZero();
+  }
+
+  @Test
+  void drainToKeepsElementWhenTargetFails() throws InterruptedException {
+    CustomBlockingQueue<Integer> queue = newQueue(8);
+    queue.enqueueAll(List.of(0, 1, 2, 3, 4));
+    List<Integer> failing = new ArrayList<>() {
+      @Override
+      public boolean add(Integer element) {
+        if (size() == 2) {
+          throw new IllegalStateException("Target is full");
+        }
+        return super.add(element);
+      }
+    };
+
+    assertThatThrownBy(() -> queue.drainTo(failing, 10))
+        .isInstanceOf(IllegalStateException.class);
+
+    assertThat(failing).containsExactly(0, 1);
+    assertThat(queue.size()).isEqualTo(3);
+    List<Integer> rest = new ArrayList<>();
+    assertThat(queue.drainTo(rest, 10)).isEqualTo(3);
+    assertThat(rest).containsExactly(2, 3, 4);
+  }
+
+  /**
+   * Очередь закрыта и пуста: производители уже завершились, новых элементов не будет.
+   */
+  private static boolean drained(CustomBlockingQueue<?> queue) {
+    return queue.isClosed() && queue.size() == 0;
+  }
+
+  private static synchronized void record(List<Integer> results, Integer result) {
+    results.add(result);
+  }
+
+  static Thread start(Action action) {
+    Thread thread = new Thread(() -> {
+      try {
+        action.run();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    thread.start();
+    return thread;
+  }
+
+  static Thread startCatching(Action action, AtomicReference<Throwable> failure) {
+    Thread thread = new Thread(() -> {
+      try {
+        action.run();
+      } catch (Throwable e) {
+        failure.set(e);
+      }
+    });
+    thread.start();
+    return thread;
+  }
+
+  /**
+   * Ждёт, пока все потоки не заснут в ожидании места или элемента.
+   */
+  static void awaitBlocked(List<Thread> threads) throws InterruptedException {
+    for (Thread thread : threads) {
+      while (thread.getState() != Thread.State.WAITING
+          && thread.getState() != Thread.State.TIMED_WAITING) {
+        assertThat(thread.isAlive()).as("%s finished instead of blocking", thread).isTrue();
+        Thread.sleep(1);
+      }
+    }
+  }
+
+  static void joinAll(List<Thread> threads) throws InterruptedException {
+    for (Thread thread : threads) {
+      thread.join();
+    }
+  }
+
+  @FunctionalInterface
+  interface Action {
+    void run() throws InterruptedException;
+  }
+}
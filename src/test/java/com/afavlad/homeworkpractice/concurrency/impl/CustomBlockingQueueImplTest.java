@@ -0,0 +1,14 @@
+package com.afavlad.homeworkpractice.concurrency.impl;
+
+import com.afavlad.homeworkpractice.concurrency.CustomBlockingQueue;
+
+/**
+ * Контракт {@link CustomBlockingQueue} для {@link CustomBlockingQueueImpl} на одном мониторе.
+ */
+class CustomBlockingQueueImplTest extends AbstractBlockingQueueTest {
+
+  @Override
+  <T> CustomBlockingQueue<T> newQueue(int capacity) {
+    return new CustomBlockingQueueImpl<>(capacity);
+  }
+}
@@ -0,0 +1,149 @@
+package com.afavlad.homeworkpractice.concurrency.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.afavlad.homeworkpractice.concurrency.Serializer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Восстановление {@link MappedFileBlockingQueue} после повторного открытия и после сбоев,
+ * которые воспроизводятся правкой файлов сегментов: недописанная запись и переход в
+ * переиспользованный файл, маркер конца которого не успел попасть на диск.
+ * <p>
+ * Сегменты по {@value #SEGMENT_SIZE} байт вмещают по 7 записей из трёх байт.
+ */
+class MappedFileBlockingQueueTest {
+
+  private static final int SEGMENT_SIZE = 128;
+  private static final int NEXT_SEGMENT = -1;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void elementsSurviveReopenAcrossSegments() throws Exception {
+    try (MappedFileBlockingQueue<String> queue = open()) {
+      enqueueRange(queue, 0, 30);
+      assertThat(dequeue(queue, 10)).isEqualTo(range(0, 10));
+    }
+
+    try (MappedFileBlockingQueue<String> queue = open()) {
+      assertThat(queue.size()).isEqualTo(20);
+      queue.enqueue("e30");
+      assertThat(dequeue(queue, 21)).isEqualTo(range(10, 31));
+      assertThat(queue.poll(0, TimeUnit.MILLISECONDS)).isNull();
+    }
+  }
+
+  @Test
+  void tornRecordIsDropped() throws Exception {
+    try (MappedFileBlockingQueue<String> queue = open()) {
+      enqueueRange(queue, 0, 3);
+    }
+    // На диск попало только поле длины следующей записи, без данных и контрольной суммы.
+    Path segment = lastSegment();
+    writeInt(segment, endOfData(segment), 6);
+
+    try (MappedFileBlockingQueue<String> queue = open()) {
+      assertThat(queue.size()).isEqualTo(3);
+      queue.enqueue("e03");
+      assertThat(dequeue(queue, 4)).isEqualTo(range(0, 4));
+    }
+  }
+
+  @Test
+  void staleRecordsInRecycledSegmentAreIgnored() throws Exception {
+    try (MappedFileBlockingQueue<String> queue = open()) {
+      enqueueRange(queue, 0, 14);
+      // Чтение уходит из первого сегмента, и тот становится запасным со старыми записями.
+      assertThat(dequeue(queue, 14)).isEqualTo(range(0, 14));
+    }
+    Path spare = spareSegment();
+    Path current = lastSegment();
+    long next = Long.parseLong(current.getFileName().toString().replace(".seg", "")) + 1;
+
+    // Запасной файл переименован в следующий сегмент и маркер перехода опубликован, а маркер
+    // конца в начале нового сегмента потерян: в нём видны прочитанные записи.
+    Files.move(spare, directory.resolve(String.format("%020d.seg", next)));
+    writeInt(current, endOfData(current), NEXT_SEGMENT);
+
+    try (MappedFileBlockingQueue<String> queue = open()) {
+      assertThat(queue.size()).isZero();
+      queue.enqueue("fresh");
+      assertThat(queue.dequeue()).isEqualTo("fresh");
+    }
+  }
+
+  private MappedFileBlockingQueue<String> open() throws IOException {
+    return new MappedFileBlockingQueue<>(directory, 1_000, Serializer.utf8(), SEGMENT_SIZE,
+        1, TimeUnit.HOURS);
+  }
+
+  private static void enqueueRange(MappedFileBlockingQueue<String> queue, int from, int to)
+      throws InterruptedException {
+    for (String element : range(from, to)) {
+      queue.enqueue(element);
+    }
+  }
+
+  private static List<String> dequeue(MappedFileBlockingQueue<String> queue, int count)
+      throws InterruptedException {
+    List<String> elements = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      elements.add(queue.poll(1, TimeUnit.SECONDS));
+    }
+    return elements;
+  }
+
+  private static List<String> range(int from, int to) {
+    List<String> elements = new ArrayList<>();
+    for (int i = from; i < to; i++) {
+      elements.add(String.format("e%02d", i));
+    }
+    return elements;
+  }
+
+  private Path lastSegment() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(file -> file.getFileName().toString().matches("\\d+\\.seg"))
+          .max(Path::compareTo).orElseThrow();
+    }
+  }
+
+  private Path spareSegment() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(file -> file.getFileName().toString().startsWith("spare-"))
+          .findFirst().orElseThrow();
+    }
+  }
+
+  /**
+   * Смещение маркера конца: записи {@code [длина + 1][CRC32C][данные]}, выровненные по 8 байт.
+   */
+  private static int endOfData(Path segment) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+    int offset = 0;
+    int header;
+    while ((header = buffer.getInt(offset)) > 0) {
+      offset += (2 * Integer.BYTES + header - 1 + Long.BYTES - 1) & -Long.BYTES;
+    }
+    return offset;
+  }
+
+  private static void writeInt(Path file, int offset, int value) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, value), offset);
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package com.afavlad.homeworkpractice.concurrency.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.Timeout.ThreadMode;
+
+/**
+ * Порядок выдачи {@link PriorityDeadlineBlockingQueue} и учёт времени в очереди. Приоритет
+ * элемента — первая цифра строки.
+ */
+@Timeout(value = 30, threadMode = ThreadMode.SEPARATE_THREAD)
+class PriorityDeadlineBlockingQueueTest {
+
+  private static final long BLOCKED_MILLIS = 300;
+
+  @Test
+  void urgentElementsOvertakeAndOldOnesAge() throws InterruptedException {
+    PriorityDeadlineBlockingQueue<String> queue = newQueue(10, 50);
+    queue.enqueue("2-old");
+    queue.enqueue("1-first");
+    queue.enqueue("1-second");
+    queue.enqueue("0-urgent");
+
+    assertThat(drain(queue)).containsExactly("0-urgent", "1-first", "1-second", "2-old");
+
+    queue.enqueue("2-aged");
+    Thread.sleep(150);
+    queue.enqueue("0-new");
+    // Элемент, прождавший дольше priority × agingStep, обгоняет даже высший приоритет.
+    assertThat(drain(queue)).containsExactly("2-aged", "0-new");
+  }
+
+  @Test
+  void timeBlockedOnFullQueueIsNotQueueLatency() throws InterruptedException {
+    PriorityDeadlineBlockingQueue<String> queue = newQueue(1, 1_000);
+    queue.enqueue("0-blocking");
+    Thread producer = new Thread(() -> {
+      try {
+        queue.enqueue("0-waiting");
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    producer.start();
+    Thread.sleep(BLOCKED_MILLIS);
+
+    assertThat(queue.dequeue()).isEqualTo("0-blocking");
+    producer.join();
+    assertThat(queue.dequeue()).isEqualTo("0-waiting");
+
+    // Первый элемент пролежал в очереди всё время ожидания, второй почти нисколько.
+    assertThat(queue.getLatency(0).getCount()).isEqualTo(2);
+    assertThat(queue.getLatency(0).getMaxNanos())
+        .isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(BLOCKED_MILLIS));
+    assertThat(queue.getLatency(0).getValueAtPercentile(50))
+        .isLessThan(TimeUnit.MILLISECONDS.toNanos(BLOCKED_MILLIS / 2));
+  }
+
+  @Test
+  void priorityDoesNotAgeWhileProducerIsBlocked() throws InterruptedException {
+    PriorityDeadlineBlockingQueue<String> queue = newQueue(2, 100);
+    queue.enqueue("0-first");
+    queue.enqueue("0-second");
+    Thread producer = new Thread(() -> {
+      try {
+        queue.enqueue("1-background");
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    producer.start();
+    Thread.sleep(BLOCKED_MILLIS);
+    assertThat(queue.dequeue()).isEqualTo("0-first");
+    producer.join();
+    assertThat(queue.dequeue()).isEqualTo("0-second");
+    queue.enqueue("0-urgent");
+
+    // Фоновый элемент только что попал в очередь: его срок ещё не наступил, срочный впереди.
+    assertThat(drain(queue)).containsExactly("0-urgent", "1-background");
+  }
+
+  private static PriorityDeadlineBlockingQueue<String> newQueue(int capacity, long agingMillis) {
+    return new PriorityDeadlineBlockingQueue<>(capacity, 3,
+        element -> element.charAt(0) - '0', agingMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private static List<String> drain(PriorityDeadlineBlockingQueue<String> queue) {
+    List<String> elements = new ArrayList<>();
+    queue.drainTo(elements, Integer.MAX_VALUE);
+    return elements;
+  }
+}
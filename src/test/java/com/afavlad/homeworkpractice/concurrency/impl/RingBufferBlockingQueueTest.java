@@ -0,0 +1,159 @@
+package com.afavlad.homeworkpractice.concurrency.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.afavlad.homeworkpractice.concurrency.impl.RingBufferBlockingQueue.Mode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.Timeout.ThreadMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * {@link RingBufferBlockingQueue} во всех режимах: передача элементов между потоками, гонка
+ * закрытия с производителями и {@code drainTo} в коллекцию, которая бросает исключение.
+ */
+@Timeout(value = 30, threadMode = ThreadMode.SEPARATE_THREAD)
+class RingBufferBlockingQueueTest {
+
+  private static final int PER_PRODUCER = 20_000;
+
+  @ParameterizedTest
+  @EnumSource(Mode.class)
+  void everyElementIsDeliveredOnceInProducerOrder(Mode mode) throws InterruptedException {
+    RingBufferBlockingQueue<Long> queue = new RingBufferBlockingQueue<>(64, mode);
+    int producers = mode == Mode.SPSC ? 1 : 3;
+    int consumers = mode == Mode.MPMC ? 3 : 1;
+
+    List<Thread> producerThreads = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      long base = (long) p * PER_PRODUCER;
+      producerThreads.add(start(() -> {
+        for (int i = 0; i < PER_PRODUCER; i++) {
+          queue.enqueue(base + i);
+        }
+      }));
+    }
+    List<List<Long>> received = new ArrayList<>();
+    List<Thread> consumerThreads = new ArrayList<>();
+    for (int c = 0; c < consumers; c++) {
+      List<Long> elements = new ArrayList<>();
+      received.add(elements);
+      consumerThreads.add(start(() -> {
+        Long element;
+        while ((element = queue.dequeue()) != null) {
+          elements.add(element);
+        }
+      }));
+    }
+    joinAll(producerThreads);
+    queue.close();
+    joinAll(consumerThreads);
+
+    Set<Long> all = new HashSet<>();
+    for (List<Long> elements : received) {
+      long[] last = new long[producers];
+      Arrays.fill(last, -1);
+      for (long element : elements) {
+        assertThat(all.add(element)).as("duplicate %d", element).isTrue();
+        int producer = (int) (element / PER_PRODUCER);
+        assertThat(element).isGreaterThan(last[producer]);
+        last[producer] = element;
+      }
+    }
+    assertThat(all).hasSize(producers * PER_PRODUCER);
+  }
+
+  @ParameterizedTest
+  @EnumSource(Mode.class)
+  void elementsAcceptedBeforeCloseAreDelivered(Mode mode) throws InterruptedException {
+    int producers = mode == Mode.SPSC ? 1 : 3;
+    for (int round = 0; round < 300; round++) {
+      RingBufferBlockingQueue<Integer> queue = new RingBufferBlockingQueue<>(4, mode);
+      AtomicLong accepted = new AtomicLong();
+      AtomicLong delivered = new AtomicLong();
+      List<Thread> producerThreads = new ArrayList<>();
+      for (int p = 0; p < producers; p++) {
+        producerThreads.add(start(() -> {
+          try {
+            while (true) {
+              if (queue.tryEnqueue(1)) {
+                accepted.incrementAndGet();
+              }
+            }
+          } catch (IllegalStateException closed) {
+            // Очередь закрыта.
+          }
+        }));
+      }
+      Thread consumer = start(() -> {
+        while (queue.dequeue() != null) {
+          delivered.incrementAndGet();
+        }
+      });
+      Thread.sleep(0, 200_000);
+      queue.close();
+      joinAll(producerThreads);
+      consumer.join();
+
+      assertThat(delivered.get()).as("round %d", round).isEqualTo(accepted.get());
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(Mode.class)
+  void drainToKeepsElementWhenTargetFails(Mode mode) {
+    RingBufferBlockingQueue<Integer> queue = new RingBufferBlockingQueue<>(8, mode);
+    for (int i = 0; i < 5; i++) {
+      queue.tryEnqueue(i);
+    }
+    List<Integer> failing = new ArrayList<>() {
+      @Override
+      public boolean add(Integer element) {
+        if (size() == 2) {
+          throw new IllegalStateException("Target is full");
+        }
+        return super.add(element);
+      }
+    };
+
+    assertThatThrownBy(() -> queue.drainTo(failing, 10))
+        .isInstanceOf(IllegalStateException.class);
+    assertThat(failing).containsExactly(0, 1);
+    assertThat(queue.size()).isEqualTo(3);
+
+    List<Integer> rest = new ArrayList<>();
+    assertThat(queue.drainTo(rest, 10)).isEqualTo(3);
+    // С несколькими потребителями элемент нельзя вернуть в голову, он уходит в конец.
+    assertThat(rest).isEqualTo(mode == Mode.MPMC ? List.of(3, 4, 2) : List.of(2, 3, 4));
+  }
+
+  private static Thread start(Action action) {
+    Thread thread = new Thread(() -> {
+      try {
+        action.run();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    thread.start();
+    return thread;
+  }
+
+  private static void joinAll(List<Thread> threads) throws InterruptedException {
+    for (Thread thread : threads) {
+      thread.join();
+    }
+  }
+
+  @FunctionalInterface
+  private interface Action {
+    void run() throws InterruptedException;
+  }
+}
@@ -0,0 +1,69 @@
+package com.afavlad.homeworkpractice.concurrency.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.afavlad.homeworkpractice.concurrency.CustomBlockingQueue;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Контракт {@link CustomBlockingQueue} для {@link TwoLockBlockingQueue} и адресные пробуждения:
+ * операция, освободившая сразу несколько мест или добавившая несколько элементов, будит одного
+ * ожидающего, а тот по цепочке будит остальных.
+ */
+class TwoLockBlockingQueueTest extends AbstractBlockingQueueTest {
+
+  private static final int CAPACITY = 4;
+
+  @Override
+  <T> CustomBlockingQueue<T> newQueue(int capacity) {
+    return new TwoLockBlockingQueue<>(capacity);
+  }
+
+  @Test
+  void drainToWakesEveryBlockedProducer() throws InterruptedException {
+    CustomBlockingQueue<Integer> queue = newQueue(CAPACITY);
+    queue.enqueueAll(List.of(0, 1, 2, 3));
+    List<Thread> producers = new ArrayList<>();
+    for (int i = 0; i < CAPACITY; i++) {
+      int element = CAPACITY + i;
+      producers.add(start(() -> queue.enqueue(element)));
+    }
+    awaitBlocked(producers);
+
+    List<Integer> drained = new ArrayList<>();
+    assertThat(queue.drainTo(drained, CAPACITY)).isEqualTo(CAPACITY);
+    joinAll(producers);
+
+    assertThat(drained).containsExactly(0, 1, 2, 3);
+    assertThat(queue.size()).isEqualTo(CAPACITY);
+    Set<Integer> rest = new HashSet<>();
+    queue.drainTo(rest, CAPACITY);
+    assertThat(rest).containsExactlyInAnyOrder(4, 5, 6, 7);
+  }
+
+  @Test
+  void enqueueAllWakesEveryBlockedConsumer() throws InterruptedException {
+    CustomBlockingQueue<Integer> queue = newQueue(CAPACITY);
+    Set<Integer> received = new HashSet<>();
+    List<Thread> consumers = new ArrayList<>();
+    for (int i = 0; i < CAPACITY; i++) {
+      consumers.add(start(() -> {
+        Integer element = queue.dequeue();
+        synchronized (received) {
+          received.add(element);
+        }
+      }));
+    }
+    awaitBlocked(consumers);
+
+    queue.enqueueAll(List.of(0, 1, 2, 3));
+    joinAll(consumers);
+
+    assertThat(received).containsExactlyInAnyOrder(0, 1, 2, 3);
+    assertThat(queue.size()).isZero();
+  }
+}
@@ -0,0 +1,87 @@
+package com.afavlad.homeworkpractice.count;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Проверка заявленных гарантий {@link ApproximateCounts} на потоке с известными точными
+ * частотами: оценка Count-Min не бывает меньше настоящей и завышена не больше чем на
+ * {@code frequencyError * total}, все горячие ключи попадают в {@code topK}, а ошибка
+ * HyperLogLog укладывается в несколько стандартных отклонений.
+ */
+class ApproximateCountsTest {
+
+  private static final int STREAM_SIZE = 500_000;
+  private static final int COLD_KEYS = 50_000;
+  private static final int HOT_KEYS = 10;
+  private static final double FREQUENCY_ERROR = 1e-3;
+  private static final double FAILURE_PROBABILITY = 1e-3;
+  private static final double DISTINCT_ERROR = 0.01;
+
+  @Test
+  void estimatesStayWithinDeclaredBounds() {
+    Random random = new Random(42);
+    SketchAccuracy accuracy =
+        SketchAccuracy.of(FREQUENCY_ERROR, FAILURE_PROBABILITY, DISTINCT_ERROR, 100);
+    ApproximateCounts<String> counts = new ApproximateCounts<>(accuracy);
+    Map<String, Long> exact = new HashMap<>();
+    for (int i = 0; i < STREAM_SIZE; i++) {
+      // Пятая часть потока приходится на горячие ключи, остальное размазано по холодным.
+      String key = random.nextInt(5) == 0
+          ? "hot-" + random.nextInt(HOT_KEYS)
+          : "cold-" + random.nextInt(COLD_KEYS);
+      counts.add(key);
+      exact.merge(key, 1L, Long::sum);
+    }
+
+    assertThat(counts.total()).isEqualTo(STREAM_SIZE);
+    long bound = (long) Math.ceil(FREQUENCY_ERROR * STREAM_SIZE);
+    int outOfBound = 0;
+    for (Map.Entry<String, Long> entry : exact.entrySet()) {
+      long estimate = counts.estimateCount(entry.getKey());
+      assertThat(estimate).as(entry.getKey()).isGreaterThanOrEqualTo(entry.getValue());
+      if (estimate - entry.getValue() > bound) {
+        outOfBound++;
+      }
+    }
+    // Граница выполняется с вероятностью 1 - failureProbability для каждого ключа отдельно.
+    assertThat(outOfBound).isLessThanOrEqualTo((int) (10 * FAILURE_PROBABILITY * exact.size()));
+
+    List<HeavyHitter<String>> top = counts.topK(HOT_KEYS);
+    assertThat(top).extracting(HeavyHitter::key)
+        .containsExactlyInAnyOrder(LongStream.range(0, HOT_KEYS)
+            .mapToObj(i -> "hot-" + i).toArray(String[]::new));
+    for (HeavyHitter<String> hitter : top) {
+      long actual = exact.get(hitter.key());
+      assertThat(hitter.guaranteedCount()).isLessThanOrEqualTo(actual);
+      assertThat(hitter.count()).isGreaterThanOrEqualTo(actual);
+    }
+
+    assertRelativeError(counts.estimateDistinct(), exact.size());
+  }
+
+  @Test
+  void distinctEstimateAcrossCardinalities() {
+    SketchAccuracy accuracy = SketchAccuracy.of(FREQUENCY_ERROR, FAILURE_PROBABILITY,
+        DISTINCT_ERROR, 0);
+    for (long distinct : new long[] {100, 10_000, 1_000_000}) {
+      // Каждое значение встречается дважды: повторы не должны менять оценку.
+      ApproximateCounts<Long> counts = ElementsCounter.approximateCountOfElements(
+          LongStream.range(0, 2 * distinct).map(i -> i % distinct).boxed(), accuracy);
+
+      assertRelativeError(counts.estimateDistinct(), distinct);
+    }
+  }
+
+  private static void assertRelativeError(long estimate, long actual) {
+    double relativeError = Math.abs(estimate - actual) / (double) actual;
+    assertThat(relativeError).as("estimate %d of %d", estimate, actual)
+        .isLessThanOrEqualTo(3 * DISTINCT_ERROR);
+  }
+}
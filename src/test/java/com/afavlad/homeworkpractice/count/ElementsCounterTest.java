@@ -0,0 +1,77 @@
+package com.afavlad.homeworkpractice.count;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Сверка точных подсчётов {@link ElementsCounter} с эталонным {@link HashMap}. Массивы больше
+ * минимального куска {@link RangeCount}, так что параллельные варианты действительно делятся
+ * и сливают частичные счётчики.
+ */
+class ElementsCounterTest {
+
+  private static final int SIZE = 300_000;
+  private static final int DISTINCT = 5_000;
+
+  @Test
+  void objectCountsMatchHashMapIncludingNulls() {
+    Random random = new Random(42);
+    String[] array = new String[SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      // Каждый десятый элемент — null, остальные с перекосом к малым значениям.
+      array[i] = random.nextInt(10) == 0 ? null : "key-" + skewed(random);
+    }
+    Map<String, Long> expected = new HashMap<>();
+    for (String element : array) {
+      expected.merge(element, 1L, Long::sum);
+    }
+
+    ObjectCounts<String> sequential = ElementsCounter.countOfElementsAsLong(array);
+    ObjectCounts<String> parallel = ElementsCounter.parallelCountOfElements(array);
+
+    assertThat(sequential.toMap()).isEqualTo(expected);
+    assertThat(parallel.toMap()).isEqualTo(expected);
+    assertThat(parallel.count(null)).isEqualTo(expected.get(null));
+    assertThat(parallel.size()).isEqualTo(expected.size());
+    assertThat(parallel.total()).isEqualTo(SIZE);
+  }
+
+  @Test
+  void primitiveCountsMatchHashMap() {
+    Random random = new Random(7);
+    int[] ints = new int[SIZE];
+    long[] longs = new long[SIZE];
+    Map<Integer, Long> expectedInts = new HashMap<>();
+    Map<Long, Long> expectedLongs = new HashMap<>();
+    for (int i = 0; i < SIZE; i++) {
+      // Ноль и отрицательные значения тоже должны считаться как обычные ключи.
+      ints[i] = skewed(random) - DISTINCT / 2;
+      longs[i] = ((long) ints[i] << 32) ^ ints[i];
+      expectedInts.merge(ints[i], 1L, Long::sum);
+      expectedLongs.merge(longs[i], 1L, Long::sum);
+    }
+
+    assertThat(ElementsCounter.countOfElements(ints).toMap()).isEqualTo(expectedInts);
+    assertThat(ElementsCounter.parallelCountOfElements(ints).toMap()).isEqualTo(expectedInts);
+    assertThat(ElementsCounter.countOfElements(longs).toMap()).isEqualTo(expectedLongs);
+    assertThat(ElementsCounter.parallelCountOfElements(longs).toMap()).isEqualTo(expectedLongs);
+  }
+
+  @Test
+  void arrayOfOnlyNulls() {
+    String[] array = new String[3];
+
+    ObjectCounts<String> counts = ElementsCounter.parallelCountOfElements(array);
+
+    assertThat(counts.count(null)).isEqualTo(3);
+    assertThat(counts.toMap()).hasSize(1).containsEntry(null, 3L);
+  }
+
+  private static int skewed(Random random) {
+    return random.nextInt(1 + random.nextInt(DISTINCT));
+  }
+}
@@ -0,0 +1,109 @@
+package com.afavlad.homeworkpractice.stringbuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.Timeout.ThreadMode;
+
+/**
+ * {@link ConcurrentCustomStringBuilder}: одновременные дописывания и отмены из нескольких
+ * потоков и ограничение истории.
+ */
+@Timeout(value = 30, threadMode = ThreadMode.SEPARATE_THREAD)
+class ConcurrentCustomStringBuilderTest {
+
+  private static final int THREADS = 4;
+  private static final int OPERATIONS = 5_000;
+
+  @Test
+  void concurrentAppendsKeepEveryFragmentInThreadOrder() throws InterruptedException {
+    ConcurrentCustomStringBuilder builder = new ConcurrentCustomStringBuilder();
+
+    runConcurrently(thread -> {
+      for (int i = 0; i < OPERATIONS; i++) {
+        builder.append(thread + ":" + i + ";");
+      }
+    });
+
+    int[] next = new int[THREADS];
+    for (String token : builder.toString().split(";")) {
+      String[] parts = token.split(":");
+      int thread = Integer.parseInt(parts[0]);
+      // Фрагменты одного потока публикуются по порядку, чужие могут оказаться между ними.
+      assertThat(Integer.parseInt(parts[1])).isEqualTo(next[thread]++);
+    }
+    assertThat(next).containsOnly(OPERATIONS);
+  }
+
+  @Test
+  void concurrentUndoRemovesExactlyOnePublishedChange() throws InterruptedException {
+    ConcurrentCustomStringBuilder builder = new ConcurrentCustomStringBuilder("", 64);
+    AtomicInteger undone = new AtomicInteger();
+
+    runConcurrently(thread -> {
+      for (int i = 0; i < OPERATIONS; i++) {
+        builder.append('x');
+        if (i % 3 != 0 && builder.undo()) {
+          undone.incrementAndGet();
+        }
+      }
+    });
+
+    // Каждая версия длиннее предыдущей на один символ, поэтому каждая отмена убирает ровно его.
+    assertThat(builder.length()).isEqualTo(THREADS * OPERATIONS - undone.get());
+    assertThat(builder.toString()).matches("x*");
+    assertThat(undone.get()).isPositive();
+  }
+
+  @Test
+  void historyIsBoundedByDefault() {
+    ConcurrentCustomStringBuilder builder = new ConcurrentCustomStringBuilder();
+    int edits = 10 * ConcurrentCustomStringBuilder.DEFAULT_MAX_HISTORY;
+    for (int i = 0; i < edits; i++) {
+      builder.append('x');
+    }
+
+    int undone = 0;
+    while (builder.undo()) {
+      undone++;
+    }
+    assertThat(undone).isBetween(ConcurrentCustomStringBuilder.DEFAULT_MAX_HISTORY,
+        2 * ConcurrentCustomStringBuilder.DEFAULT_MAX_HISTORY);
+    assertThat(builder.length()).isEqualTo(edits - undone);
+  }
+
+  @Test
+  void trimmedHistoryStillUndoesLatestEdits() {
+    ConcurrentCustomStringBuilder builder = new ConcurrentCustomStringBuilder("start", 3);
+    for (int i = 0; i < 20; i++) {
+      builder.insert(0, i + ",");
+    }
+
+    for (int i = 19; i >= 17; i--) {
+      assertThat(builder.toString()).startsWith(i + ",");
+      assertThat(builder.undo()).isTrue();
+    }
+    assertThat(builder.toString()).startsWith("16,").endsWith("start");
+  }
+
+  private static void runConcurrently(Worker worker) throws InterruptedException {
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      int thread = t;
+      threads.add(new Thread(() -> worker.run(thread)));
+    }
+    threads.forEach(Thread::start);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+  }
+
+  @FunctionalInterface
+  private interface Worker {
+    void run(int thread);
+  }
+}
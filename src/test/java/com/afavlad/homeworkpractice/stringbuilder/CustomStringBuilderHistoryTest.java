@@ -0,0 +1,43 @@
+package com.afavlad.homeworkpractice.stringbuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.Timeout.ThreadMode;
+
+/**
+ * Откат к контрольной точке при ограниченной по байтам истории.
+ */
+class CustomStringBuilderHistoryTest {
+
+  @Test
+  @Timeout(value = 5, threadMode = ThreadMode.SEPARATE_THREAD)
+  void rollbackKeepsPathToCheckpointWhenRevertsOutgrowLimit() {
+    CustomStringBuilder builder = new CustomStringBuilder("", HistoryLimit.ofBytes(1000));
+    Checkpoint start = builder.checkpoint("start");
+    builder.append("a");
+    builder.append("b");
+    builder.append("x".repeat(450));
+
+    builder.rollbackTo(start);
+
+    assertThat(builder.toString()).isEmpty();
+    assertThat(builder.historyRetainedBytes()).isLessThanOrEqualTo(1000);
+  }
+
+  @Test
+  @Timeout(value = 5, threadMode = ThreadMode.SEPARATE_THREAD)
+  void rollbackForwardThroughRedo() {
+    CustomStringBuilder builder = new CustomStringBuilder("", HistoryLimit.ofBytes(1000));
+    builder.append("a");
+    builder.append("b");
+    Checkpoint end = builder.checkpoint("end");
+    builder.undo();
+    builder.undo();
+
+    builder.rollbackTo(end);
+
+    assertThat(builder.toString()).isEqualTo("ab");
+  }
+}
@@ -0,0 +1,135 @@
+package com.afavlad.homeworkpractice.stringbuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Вывод {@link CustomStringBuilder} частями через {@link TextOutput}: текст, записанный в
+ * {@link java.io.Writer}, {@link ByteBuffer} или {@link FileChannel}, читается обратно без
+ * изменений. Текст длиннее нескольких частей по {@link TextOutput#CHUNK_SIZE} символов, и
+ * суррогатные пары попадают на границы частей.
+ */
+class CustomStringBuilderOutputTest {
+
+  private static final String PREFIX = "prefix:";
+  private static final long SEED = 20_240_611L;
+
+  @TempDir
+  Path directory;
+
+  @ParameterizedTest
+  @EnumSource(StorageMode.class)
+  void writerReceivesWholeText(StorageMode mode) throws IOException {
+    String text = chunkedText();
+    StringWriter writer = new StringWriter();
+
+    new CustomStringBuilder(text, mode).writeTo(writer);
+
+    assertThat(writer.toString()).isEqualTo(text);
+  }
+
+  @ParameterizedTest
+  @EnumSource(StorageMode.class)
+  void encodedBytesDecodeToText(StorageMode mode) {
+    String text = chunkedText();
+    CustomStringBuilder builder = new CustomStringBuilder(text, mode);
+
+    for (Charset charset : new Charset[]{StandardCharsets.UTF_8, StandardCharsets.UTF_16BE}) {
+      byte[] expected = text.getBytes(charset);
+      ByteBuffer target = ByteBuffer.allocate(PREFIX.length() + expected.length);
+      target.put(PREFIX.getBytes(StandardCharsets.US_ASCII));
+
+      builder.encodeTo(target, charset);
+
+      assertThat(target.hasRemaining()).isFalse();
+      assertThat(Arrays.copyOfRange(target.array(), PREFIX.length(), target.limit()))
+          .isEqualTo(expected);
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(StorageMode.class)
+  void encodingIntoShortBufferOverflows(StorageMode mode) {
+    String text = chunkedText();
+    ByteBuffer target = ByteBuffer.allocate(text.getBytes(StandardCharsets.UTF_8).length - 1);
+
+    assertThatThrownBy(() -> new CustomStringBuilder(text, mode)
+        .encodeTo(target, StandardCharsets.UTF_8))
+        .isInstanceOf(BufferOverflowException.class);
+  }
+
+  @ParameterizedTest
+  @EnumSource(StorageMode.class)
+  void channelReceivesTextAfterItsPosition(StorageMode mode) throws IOException {
+    String text = chunkedText();
+    Path file = directory.resolve(mode + ".txt");
+
+    long written;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(PREFIX.getBytes(StandardCharsets.US_ASCII)));
+      written = new CustomStringBuilder(text, mode).transferTo(channel);
+    }
+
+    assertThat(written).isEqualTo(text.getBytes(StandardCharsets.UTF_8).length);
+    assertThat(Files.readString(file, StandardCharsets.UTF_8)).isEqualTo(PREFIX + text);
+  }
+
+  @ParameterizedTest
+  @EnumSource(StorageMode.class)
+  void emptyTextWritesNothing(StorageMode mode) throws IOException {
+    CustomStringBuilder builder = new CustomStringBuilder("", mode);
+    StringWriter writer = new StringWriter();
+    ByteBuffer target = ByteBuffer.allocate(0);
+    Path file = directory.resolve(mode + "-empty.txt");
+
+    builder.writeTo(writer);
+    builder.encodeTo(target, StandardCharsets.UTF_8);
+    long written;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.WRITE)) {
+      written = builder.transferTo(channel);
+    }
+
+    assertThat(writer.toString()).isEmpty();
+    assertThat(written).isZero();
+    assertThat(Files.size(file)).isZero();
+  }
+
+  /**
+   * Несколько частей со случайной смесью однобайтовых, двухбайтовых и четырёхбайтовых в UTF-8
+   * символов; на каждой границе части стоит суррогатная пара, разрезанная пополам.
+   */
+  private static String chunkedText() {
+    Random random = new Random(SEED);
+    String[] pieces = {"a", "z", " ", "ж", "Ω", "😀"};
+    StringBuilder text = new StringBuilder();
+    for (int chunk = 1; chunk <= 3; chunk++) {
+      while (text.length() < chunk * TextOutput.CHUNK_SIZE - 1) {
+        text.append(pieces[random.nextInt(pieces.length)]);
+      }
+      text.setLength(chunk * TextOutput.CHUNK_SIZE - 1);
+      if (Character.isHighSurrogate(text.charAt(text.length() - 1))) {
+        text.setCharAt(text.length() - 1, 'a');
+      }
+      text.append("😀");
+    }
+    return text.append("tail").toString();
+  }
+}
@@ -0,0 +1,203 @@
+package com.afavlad.homeworkpractice.stringbuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Случайные правки и откаты {@link CustomStringBuilder} сравниваются с эталоном на
+ * {@link StringBuilder}, который хранит все версии текста. В режиме {@link StorageMode#ROPE}
+ * отдельно проверяются высота дерева (балансировка и слияние листьев) и представления
+ * {@link Rope#subSequence(int, int)}, которые не меняются при последующих правках.
+ */
+class CustomStringBuilderRopeTest {
+
+  private static final int OPERATIONS = 5_000;
+  private static final int MAX_TEXT_LENGTH = 2 * Rope.MAX_LEAF_LENGTH;
+  private static final long SEED = 20_240_603L;
+
+  @ParameterizedTest
+  @EnumSource(StorageMode.class)
+  void randomEditsAndUndoMatchStringBuilder(StorageMode mode) {
+    Random random = new Random(SEED + mode.ordinal());
+    String initial = randomText(random, 3 * Rope.MAX_LEAF_LENGTH);
+    CustomStringBuilder builder = new CustomStringBuilder(initial, mode);
+    List<String> versions = new ArrayList<>(List.of(initial));
+    int current = 0;
+
+    for (int i = 0; i < OPERATIONS; i++) {
+      StringBuilder expected = new StringBuilder(versions.get(current));
+      int length = expected.length();
+      int start = random.nextInt(length + 1);
+      int end = start + random.nextInt(length - start + 1);
+      int operation = random.nextInt(8);
+      if (operation == 0 && current > 0) {
+        builder.undo();
+        current--;
+        assertThat(builder.toString()).isEqualTo(versions.get(current));
+        continue;
+      }
+      if (operation == 1 && current + 1 < versions.size()) {
+        builder.redo();
+        current++;
+        assertThat(builder.toString()).isEqualTo(versions.get(current));
+        continue;
+      }
+      switch (operation) {
+        case 2 -> {
+          String text = randomText(random, MAX_TEXT_LENGTH);
+          builder.append(text);
+          expected.append(text);
+        }
+        case 3 -> {
+          String text = randomText(random, MAX_TEXT_LENGTH);
+          builder.insert(start, text);
+          expected.insert(start, text);
+        }
+        case 4 -> {
+          builder.delete(start, end);
+          expected.delete(start, end);
+        }
+        case 5 -> {
+          if (length == 0) {
+            continue;
+          }
+          int index = Math.min(start, length - 1);
+          char ch = (char) ('a' + random.nextInt(26));
+          builder.setCharAt(index, ch);
+          expected.setCharAt(index, ch);
+        }
+        default -> {
+          String text = randomText(random, MAX_TEXT_LENGTH);
+          builder.replace(start, end, text);
+          expected.replace(start, end, text);
+        }
+      }
+      versions.subList(current + 1, versions.size()).clear();
+      versions.add(expected.toString());
+      current++;
+
+      assertMatches(builder, versions.get(current), random);
+    }
+
+    while (builder.canUndo()) {
+      builder.undo();
+    }
+    assertThat(builder.toString()).isEqualTo(initial);
+  }
+
+  @Test
+  void ropeStaysBalancedUnderRandomEdits() {
+    Random random = new Random(SEED);
+    Rope rope = Rope.of(randomText(random, 10 * Rope.MAX_LEAF_LENGTH));
+    StringBuilder expected = new StringBuilder(rope.toString());
+
+    for (int i = 0; i < OPERATIONS; i++) {
+      int start = random.nextInt(expected.length() + 1);
+      int end = Math.min(start + random.nextInt(64), expected.length());
+      String text = randomText(random, 64);
+      rope = rope.replace(start, end, text);
+      expected.replace(start, end, text);
+
+      assertThat(rope.height()).isLessThanOrEqualTo(avlHeightBound(rope.length()));
+    }
+    assertThat(rope.toString()).isEqualTo(expected.toString());
+  }
+
+  @Test
+  void appendedCharactersAreMergedIntoFullLeaves() {
+    int length = 20 * Rope.MAX_LEAF_LENGTH;
+    Rope rope = Rope.of("");
+    for (int i = 0; i < length; i++) {
+      rope = Rope.concat(rope, Rope.of(String.valueOf((char) ('a' + i % 26))));
+    }
+
+    // Если каждый символ остался отдельным листом, высота была бы не меньше log2(length).
+    int leaves = 2 * length / Rope.MAX_LEAF_LENGTH;
+    assertThat(rope.length()).isEqualTo(length);
+    assertThat(rope.height()).isLessThanOrEqualTo(avlHeightBound(leaves));
+    assertThat(rope.height()).isLessThan(log2(length));
+  }
+
+  @Test
+  void shortNeighbourLeavesAreMerged() {
+    Rope leaf = Rope.of("x");
+    Rope node = Rope.of("y".repeat(Rope.MAX_LEAF_LENGTH + 1));
+
+    Rope leaves = Rope.concat(Rope.of("ab"), Rope.of("cd"));
+    Rope leafThenNode = Rope.concat(leaf, node);
+    Rope nodeThenLeaf = Rope.concat(node, leaf);
+
+    assertThat(node.height()).isEqualTo(1);
+    assertThat(leaves.height()).isZero();
+    assertThat(leaves.toString()).isEqualTo("abcd");
+    assertThat(leafThenNode.height()).isEqualTo(1);
+    assertThat(leafThenNode.toString()).isEqualTo("x" + node);
+    assertThat(nodeThenLeaf.height()).isEqualTo(1);
+    assertThat(nodeThenLeaf.toString()).isEqualTo(node + "x");
+    assertThat(Rope.concat(node, node).height()).isEqualTo(2);
+  }
+
+  @Test
+  void subSequenceIsSnapshotOfVersion() {
+    CustomStringBuilder builder = new CustomStringBuilder(
+        "0123456789".repeat(Rope.MAX_LEAF_LENGTH), StorageMode.ROPE);
+    String before = builder.toString();
+    int start = Rope.MAX_LEAF_LENGTH - 3;
+    int end = 3 * Rope.MAX_LEAF_LENGTH + 5;
+    CharSequence slice = builder.subSequence(start, end);
+
+    builder.delete(0, Rope.MAX_LEAF_LENGTH);
+    builder.insert(10, "inserted");
+    builder.reverse();
+
+    assertThat(slice.toString()).isEqualTo(before.substring(start, end));
+    assertThat(slice.length()).isEqualTo(end - start);
+    assertThat(slice.charAt(0)).isEqualTo(before.charAt(start));
+    CharSequence nested = slice.subSequence(5, 600);
+    assertThat(nested.toString()).isEqualTo(before.substring(start + 5, start + 600));
+    assertThat(nested.subSequence(1, 2).toString()).isEqualTo(before.substring(start + 6, start + 7));
+    assertThatThrownBy(() -> slice.charAt(end - start))
+        .isInstanceOf(StringIndexOutOfBoundsException.class);
+    assertThatThrownBy(() -> slice.subSequence(2, 1))
+        .isInstanceOf(StringIndexOutOfBoundsException.class);
+  }
+
+  private static void assertMatches(CustomStringBuilder builder, String expected, Random random) {
+    assertThat(builder.length()).isEqualTo(expected.length());
+    assertThat(builder.toString()).isEqualTo(expected);
+    if (expected.isEmpty()) {
+      return;
+    }
+    int index = random.nextInt(expected.length());
+    assertThat(builder.charAt(index)).isEqualTo(expected.charAt(index));
+    int start = random.nextInt(expected.length() + 1);
+    int end = start + random.nextInt(expected.length() - start + 1);
+    assertThat(builder.subSequence(start, end).toString()).isEqualTo(expected.substring(start, end));
+  }
+
+  /**
+   * Верхняя граница высоты AVL-дерева с n листьями: 1.44 * log2(n + 2).
+   */
+  private static int avlHeightBound(int leaves) {
+    return (int) (1.45 * Math.log(leaves + 2) / Math.log(2));
+  }
+
+  private static int log2(int value) {
+    return 31 - Integer.numberOfLeadingZeros(value);
+  }
+
+  private static String randomText(Random random, int maxLength) {
+    char[] chars = new char[random.nextInt(maxLength + 1)];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = (char) ('a' + random.nextInt(26));
+    }
+    return new String(chars);
+  }
+}